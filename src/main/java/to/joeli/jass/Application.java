@@ -40,6 +40,8 @@ public class Application {
 
 		logger.info("Connecting... Server socket URL: {}", websocketUrl);
 
+		// The bot has the cores on its own, so it can use the time of the other players too
+		STRATEGY.getConfig().getMctsConfig().setPonderingEnabled(true);
 		Player player = new Player(botName, STRATEGY);
 
 		new RemoteGame(websocketUrl, player, SessionType.SINGLE_GAME, sessionName, chosenTeamIndex, advisedPlayerName).start();
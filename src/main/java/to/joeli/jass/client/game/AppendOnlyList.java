@@ -0,0 +1,132 @@
+package to.joeli.jass.client.game;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An unmodifiable list which shares its elements with the lists it was appended from.
+ * <p>
+ * The lists appended from one another share one array and only differ by their size: The first list which appends an
+ * element at a position writes it into the array, the positions of the array are never written again. Another list
+ * appending at a position which is taken already (e.g. after it was truncated) copies its elements to a new array,
+ * unless it appends the very same element which is there already.
+ * Like this, appending is O(1) and the lists can be shared between the copies of a game and between threads.
+ * <p>
+ * A list which is handed to somebody else is marked as shared first (see {@link #share()}). Like this, the list which
+ * appended an element can tell whether it is still the only one referencing it.
+ *
+ * @param <E> the type of the elements, which must not be null
+ */
+final class AppendOnlyList<E> extends AbstractList<E> implements RandomAccess {
+
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicInteger numTaken; // the number of positions of the array written by one of the lists
+	private final AtomicInteger numShared; // the number of first positions of the array which other lists may reference
+	private final int size;
+
+	private AppendOnlyList(AtomicReferenceArray<E> elements, AtomicInteger numTaken, AtomicInteger numShared, int size) {
+		this.elements = elements;
+		this.numTaken = numTaken;
+		this.numShared = numShared;
+		this.size = size;
+	}
+
+	/**
+	 * Creates an empty list
+	 *
+	 * @param capacity the number of elements which can be appended before the array has to be copied
+	 * @param <E>
+	 * @return
+	 */
+	static <E> AppendOnlyList<E> empty(int capacity) {
+		return new AppendOnlyList<>(new AtomicReferenceArray<>(Math.max(capacity, 1)), new AtomicInteger(), new AtomicInteger(), 0);
+	}
+
+	/**
+	 * Returns this list with the element appended. This list stays the same.
+	 *
+	 * @param element
+	 * @return
+	 */
+	AppendOnlyList<E> append(E element) {
+		Objects.requireNonNull(element);
+		if (size < elements.length()) {
+			if (numTaken.compareAndSet(size, size + 1)) {
+				elements.set(size, element);
+				return new AppendOnlyList<>(elements, numTaken, numShared, size + 1);
+			}
+			if (elements.get(size) == element)
+				return new AppendOnlyList<>(elements, numTaken, numShared, size + 1);
+		}
+
+		final AtomicReferenceArray<E> copy = new AtomicReferenceArray<>(Math.max(elements.length(), 2 * size));
+		for (int i = 0; i < size; i++)
+			copy.set(i, elements.get(i));
+		copy.set(size, element);
+		// The elements copied are still referenced by the lists sharing the old array
+		return new AppendOnlyList<>(copy, new AtomicInteger(size + 1), new AtomicInteger(size), size + 1);
+	}
+
+	/**
+	 * Returns this list with all the elements appended in order
+	 *
+	 * @param elements
+	 * @return
+	 */
+	AppendOnlyList<E> appendAll(List<? extends E> elements) {
+		AppendOnlyList<E> list = this;
+		for (E element : elements)
+			list = list.append(element);
+		return list;
+	}
+
+	/**
+	 * Returns the first elements of this list. The truncated list shares the elements with this list.
+	 *
+	 * @param size
+	 * @return
+	 */
+	AppendOnlyList<E> truncate(int size) {
+		if (size < 0 || size > this.size)
+			throw new IndexOutOfBoundsException("Size: " + size + ", Size of the list: " + this.size);
+		return new AppendOnlyList<>(elements, numTaken, numShared, size);
+	}
+
+	/**
+	 * Marks all the elements of this list as shared, before the list is handed to somebody else (e.g. a copy of a game).
+	 * The marks are never removed again.
+	 *
+	 * @return this list
+	 */
+	AppendOnlyList<E> share() {
+		numShared.accumulateAndGet(size, Math::max);
+		return this;
+	}
+
+	/**
+	 * Checks whether other lists may reference the element, because it was shared or appended before a list was shared.
+	 * Otherwise the list which appended the element is the only one referencing it.
+	 *
+	 * @param index
+	 * @return
+	 */
+	boolean isShared(int index) {
+		return index < numShared.get();
+	}
+
+	@Override
+	public E get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return elements.get(index);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
@@ -1,12 +1,11 @@
 package to.joeli.jass.client.game;
 
 import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
+import to.joeli.jass.game.cards.Color;
 import to.joeli.jass.game.mode.Mode;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class Game {
@@ -16,7 +15,14 @@ public class Game {
 	private final Result result;
 	private final boolean shifted;
 
-	private List<Round> previousRounds = new ArrayList<>();
+	// INFO: Finished rounds are never modified again once they are shared. Therefore the lists of the previous rounds and
+	// their moves are shared between copies of the game. A finished round is appended without copying the rounds before
+	// (see AppendOnlyList). Only a round which was never shared is resumed in place when moves are undone.
+	private AppendOnlyList<Round> previousRounds = AppendOnlyList.empty(LAST_ROUND_NUMBER + 1);
+	private AppendOnlyList<Move> movesOfPreviousRounds = AppendOnlyList.empty(4 * (LAST_ROUND_NUMBER + 1));
+
+	// Updated with every move so that the played cards do not have to be collected from all the rounds
+	private long playedCards;
 
 	private Game(Mode mode, PlayingOrder order, List<Team> teams, boolean shifted) {
 		this.mode = mode;
@@ -26,7 +32,9 @@ public class Game {
 	}
 
 	/**
-	 * Copy constructor for deep copy
+	 * Copy constructor for deep copy of the mutable parts. The finished rounds are immutable and shared with the copy,
+	 * so the cost of copying does not grow with the number of rounds played.
+	 * The finished rounds are marked as shared, so that neither game resumes them in place anymore.
 	 *
 	 * @param game
 	 */
@@ -36,10 +44,10 @@ public class Game {
 		this.mode = game.getCurrentRoundMode();
 		this.currentRound = new Round(game.getCurrentRound());
 		this.result = new Result(game.getResult());
-		this.previousRounds = new ArrayList<>();
-		for (Round previousRound : game.getPreviousRounds())
-			this.previousRounds.add(new Round(previousRound));
+		this.previousRounds = game.previousRounds.share();
+		this.movesOfPreviousRounds = game.movesOfPreviousRounds;
 		this.shifted = game.shifted;
+		this.playedCards = game.playedCards;
 	}
 
 	public static Game startGame(Mode mode, PlayingOrder order, List<Team> teams, boolean shifted) {
@@ -64,7 +72,7 @@ public class Game {
 
 	public Round startNextRound() {
 		updateRoundResult();
-		previousRounds.add(getCurrentRound());
+		addPreviousRound(getCurrentRound());
 		if (currentRound.isLastRound() && result.isMatch()) {
 			result.updateWinningTeamScore(calculateMatchBonus());
 		}
@@ -72,34 +80,76 @@ public class Game {
 		return currentRound;
 	}
 
+	private void addPreviousRound(Round round) {
+		previousRounds = previousRounds.append(round);
+		movesOfPreviousRounds = movesOfPreviousRounds.appendAll(round.getMoves());
+	}
+
+	/**
+	 * Returns the finished rounds of the game. They may be shared with copies of this game and must not be modified.
+	 *
+	 * @return
+	 */
 	public List<Round> getPreviousRounds() {
 		return previousRounds;
 	}
 
+	/**
+	 * Returns an unmodifiable snapshot of the cards played so far in this game
+	 *
+	 * @return
+	 */
 	public Set<Card> getAlreadyPlayedCards() {
-		Set<Card> cards = currentRound.getPlayedCards();
-		for (Round round : previousRounds) {
-			cards.addAll(round.getPlayedCardsInOrder());
-		}
-		return cards;
+		return CardMasks.asSet(playedCards);
+	}
+
+	public long getAlreadyPlayedCardsMask() {
+		return playedCards;
+	}
+
+	/**
+	 * Returns an unmodifiable snapshot of the cards of the given color which have not been played yet
+	 *
+	 * @param color
+	 * @return
+	 */
+	public Set<Card> getRemainingCards(Color color) {
+		return CardMasks.asSet(getRemainingCardsMask(color));
+	}
+
+	public long getRemainingCardsMask(Color color) {
+		return CardMasks.colorMask(color) & ~playedCards;
 	}
 
 	public List<Card> getAlreadyPlayedCardsInOrder() {
-		List<Card> cards = new ArrayList<>();
-		for (Round round : previousRounds) {
-			cards.addAll(round.getPlayedCardsInOrder());
-		}
-		cards.addAll(currentRound.getPlayedCardsInOrder());
+		final List<Move> moves = getAlreadyPlayedMovesInOrder();
+		List<Card> cards = new ArrayList<>(moves.size());
+		for (Move move : moves)
+			cards.add(move.getPlayedCard());
 		return cards;
 	}
 
+	/**
+	 * Returns an unmodifiable view of all the moves made in this game
+	 *
+	 * @return
+	 */
 	public List<Move> getAlreadyPlayedMovesInOrder() {
-		List<Move> moves = new ArrayList<>();
-		for (Round round : previousRounds) {
-			moves.addAll(round.getMoves());
-		}
-		moves.addAll(currentRound.getMoves());
-		return moves;
+		final List<Move> previousMoves = movesOfPreviousRounds;
+		final List<Move> currentMoves = currentRound.getMoves();
+		return new AbstractList<Move>() {
+			@Override
+			public Move get(int index) {
+				if (index < previousMoves.size())
+					return previousMoves.get(index);
+				return currentMoves.get(index - previousMoves.size());
+			}
+
+			@Override
+			public int size() {
+				return previousMoves.size() + currentMoves.size();
+			}
+		};
 	}
 
 	public boolean gameFinished() {
@@ -112,6 +162,50 @@ public class Game {
 
 	public void makeMove(Move move) {
 		getCurrentRound().makeMove(move);
+		playedCards |= CardMasks.bit(move.getPlayedCard());
+	}
+
+	/**
+	 * Takes back the last move of the game. If the current round has not started yet, the previous round is resumed first
+	 * and its score (and the match bonus) is removed from the result again.
+	 * The cards of the players are not touched: The caller has to give the card back to the player.
+	 *
+	 * @return the move taken back
+	 */
+	public Move undoMove() {
+		if (currentRound.getMoves().isEmpty())
+			resumePreviousRound();
+
+		final Move move = currentRound.undoMove();
+		playedCards &= ~CardMasks.bit(move.getPlayedCard());
+		return move;
+	}
+
+	private void resumePreviousRound() {
+		if (previousRounds.isEmpty())
+			throw new IllegalStateException("There is no move to undo in this game.");
+
+		final Round round = previousRounds.get(previousRounds.size() - 1);
+		final Round resumedRound;
+		if (!previousRounds.isShared(previousRounds.size() - 1)) {
+			// This game finished the round and nobody else references it, so we can just continue with it
+			resumedRound = round;
+		} else {
+			// The finished round is shared with other copies of the game, so we replay its moves on a new round with our players
+			final List<Player> players = getPlayers();
+			resumedRound = Round.createRound(mode, round.getRoundNumber(),
+					PlayingOrder.createOrderStartingFromPlayer(players, round.getMoves().get(0).getPlayer()));
+			for (Move move : round.getMoves())
+				resumedRound.makeMove(move);
+		}
+
+		if (round.isLastRound() && result.isMatch())
+			result.updateWinningTeamScore(-calculateMatchBonus());
+		result.updateTeamScore(round.getWinner(), -round.calculateScore());
+
+		previousRounds = previousRounds.truncate(previousRounds.size() - 1);
+		movesOfPreviousRounds = movesOfPreviousRounds.truncate(movesOfPreviousRounds.size() - round.getMoves().size());
+		currentRound = resumedRound;
 	}
 
 	private int calculateMatchBonus() {
@@ -67,6 +67,10 @@ public class PlayingOrder {
 		currentPlayerIndex++;
 	}
 
+	public void moveToPreviousPlayer() {
+		currentPlayerIndex--;
+	}
+
 	private int getStartingPlayerIndex() {
 		return startingPlayerIndex;
 	}
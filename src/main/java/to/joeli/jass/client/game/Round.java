@@ -51,6 +51,19 @@ public class Round {
 		playingOrder.moveToNextPlayer();
 	}
 
+	/**
+	 * Takes back the last move of this round
+	 *
+	 * @return the move taken back
+	 */
+	public Move undoMove() {
+		if (moves.isEmpty())
+			throw new IllegalStateException("There is no move to undo in this round.");
+
+		playingOrder.moveToPreviousPlayer();
+		return moves.remove(moves.size() - 1);
+	}
+
 	public Card getCardOfPlayer(Player player) {
 		for (Move move : moves) {
 			if (move.getPlayer().equals(player))
@@ -64,8 +77,14 @@ public class Round {
 	}
 
 	public int calculateScore() {
-
-		return mode.calculateRoundScore(roundNumber, getPlayedCards());
+		final int[] cardScores = mode.getCardScores();
+		int score = 0;
+		for (Move move : moves)
+			score += cardScores[move.getPlayedCard().ordinal()];
+		score *= mode.getFactor();
+		if (isLastRound())
+			score += mode.getLastRoundBonus();
+		return score;
 	}
 
 	public Card getWinningCard() {
@@ -5,6 +5,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import to.joeli.jass.client.game.Game;
 import to.joeli.jass.client.game.GameSession;
+import to.joeli.jass.client.game.Player;
+import to.joeli.jass.client.game.Round;
 import to.joeli.jass.client.strategy.config.Config;
 import to.joeli.jass.client.strategy.config.MCTSConfig;
 import to.joeli.jass.client.strategy.config.StrengthLevel;
@@ -18,6 +20,7 @@ import to.joeli.jass.client.strategy.mcts.TrumpfMove;
 import to.joeli.jass.client.strategy.mcts.src.Move;
 import to.joeli.jass.client.strategy.mcts.src.PlayoutSelectionPolicy;
 import to.joeli.jass.client.strategy.training.networks.CardsEstimator;
+import to.joeli.jass.client.strategy.training.networks.EvaluationCache;
 import to.joeli.jass.client.strategy.training.networks.ScoreEstimator;
 import to.joeli.jass.game.cards.Card;
 import to.joeli.jass.game.mode.Mode;
@@ -115,6 +118,10 @@ TODO Make new experiments with the improvements so far:
 
 	private MCTSHelper mctsHelper;
 
+	// Only used for pondering: the session we play in and the player we last chose a card for
+	private GameSession session;
+	private Player player;
+
 	private CardsEstimator cardsEstimator = new CardsEstimator(config.isCardsEstimatorTrainable());
 	private ScoreEstimator scoreEstimator = new ScoreEstimator(config.isScoreEstimatorTrainable());
 
@@ -178,6 +185,8 @@ TODO Make new experiments with the improvements so far:
 			if (possibleCards.isEmpty())
 				logger.error("We have a serious problem! No possible card to play!");
 
+			player = game.getCurrentPlayer();
+
 			if (possibleCards.size() == 1) {
 				card = Iterables.getOnlyElement(possibleCards);
 				logger.info("Only one possible card to play: {}", card);
@@ -188,6 +197,8 @@ TODO Make new experiments with the improvements so far:
 						Move move = mctsHelper.predictMove(availableCards, session, false, game.isShifted());
 						card = ((CardMove) move).getPlayedCard();
 						logger.info("Chose card based on MCTS, Hurra!");
+						if (getScoreEstimator() != null && getScoreEstimator().getEvaluationCache() != null)
+							logger.debug("{}", getScoreEstimator().getEvaluationCache());
 					} catch (MCTSException e) {
 						logger.error("{}", e);
 						logger.error("Something went wrong. Had to choose random card, damn it!");
@@ -225,6 +236,55 @@ TODO Make new experiments with the improvements so far:
 		}
 	}
 
+	@Override
+	public void onSessionStarted(GameSession session) {
+		this.session = session;
+	}
+
+	@Override
+	public void onGameStarted(GameSession session) {
+		this.session = session;
+	}
+
+	/**
+	 * If pondering is enabled, the search continues while the other players are choosing their cards.
+	 * NOTE: The copies of the players in the simulated games share this strategy, so the moves of the search end up here too.
+	 * They are CardMoves and never the last move of the real game.
+	 *
+	 * @param move
+	 */
+	@Override
+	public void onMoveMade(to.joeli.jass.client.game.Move move) {
+		if (move instanceof CardMove || !config.isMctsEnabled() || !config.getMctsConfig().getPonderingEnabled() || session == null)
+			return;
+		final Game game = session.getCurrentGame();
+		if (game == null)
+			return;
+		final Round round = game.getCurrentRound();
+		final boolean moveOfRealGame = !round.getMoves().isEmpty() && round.getMoves().get(round.getMoves().size() - 1) == move;
+		final boolean ourTurn = !round.roundFinished() && game.getCurrentPlayer().equals(player);
+		if (moveOfRealGame && !ourTurn && !round.isLastRound())
+			mctsHelper.startPondering(game);
+	}
+
+	/**
+	 * @return true if the search continues in the background while the other players are choosing their cards
+	 */
+	public boolean isPondering() {
+		return mctsHelper.isPondering();
+	}
+
+	@Override
+	public void onGameFinished() {
+		mctsHelper.stopPondering();
+	}
+
+	@Override
+	public void onSessionFinished() {
+		mctsHelper.stopPondering();
+		session = null;
+	}
+
 	private void waitUntilTimeIsUp(long endingTime) {
 		while (System.currentTimeMillis() < endingTime) {
 			try {
@@ -280,10 +340,18 @@ TODO Make new experiments with the improvements so far:
 		if (this.mctsHelper != null)
 			this.mctsHelper.shutDown();
 		this.mctsHelper = new MCTSHelper(config.getMctsConfig());
-		if (config.isCardsEstimatorUsed())
+		if (config.isCardsEstimatorUsed()) {
 			cardsEstimator.setTrainable(config.isCardsEstimatorTrainable());
-		if (config.isScoreEstimatorUsed())
+			cardsEstimator.setBackendType(config.getInferenceBackendType());
+			cardsEstimator.setMaxQuantizationError(config.getMaxQuantizationError());
+		}
+		if (config.isScoreEstimatorUsed()) {
 			scoreEstimator.setTrainable(config.isScoreEstimatorTrainable());
+			scoreEstimator.setBackendType(config.getInferenceBackendType());
+			scoreEstimator.setMaxQuantizationError(config.getMaxQuantizationError());
+			scoreEstimator.setBatchSize(config.getInferenceBatchSize());
+			scoreEstimator.setEvaluationCache(config.getEvaluationCacheBits() > 0 ? new EvaluationCache(config.getEvaluationCacheBits(), config.isEvaluationCacheCanonical()) : null);
+		}
 	}
 
 	public Config getConfig() {
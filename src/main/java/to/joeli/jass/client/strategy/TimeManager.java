@@ -0,0 +1,95 @@
+package to.joeli.jass.client.strategy;
+
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.client.strategy.mcts.src.TimeControl;
+
+/**
+ * Distributes the thinking time of a game over its card decisions and decides when the search of a decision can stop.
+ * <p>
+ * Every decision gets a share of the remaining budget of the game. The earlier in the game, the bigger the share,
+ * because there are more cards to choose from and more of the game depends on the decision.
+ * The time a decision does not use goes back into the budget for the later decisions.
+ * <p>
+ * The share is only a soft limit:
+ * Before it is used up, the search stops as soon as the best move cannot be overtaken by the visits still to come.
+ * Afterwards, the search is only extended if the best two moves are close, but never beyond the max thinking time.
+ */
+public class TimeManager implements TimeControl {
+
+	// INFO: The last card is always forced, so there are at most eight decisions per game
+	private static final int NUM_DECISIONS = Game.LAST_ROUND_NUMBER;
+	// INFO: The budget of a game is this fraction of the max thinking time of all its decisions. The rest is there for extensions
+	private static final double BUDGET_FRACTION = 0.5;
+	// INFO: The search is extended if the second best move has at least this fraction of the visits of the best move
+	private static final double CLOSE_FRACTION = 0.8;
+
+	private final long maxThinkingTime;
+
+	private Game game;
+	private long remainingBudget;
+	private long startTime;
+	private long softEndingTime;
+	private long endingTime;
+
+	public TimeManager(long maxThinkingTime) {
+		this.maxThinkingTime = maxThinkingTime;
+	}
+
+	/**
+	 * Starts the clock for a card decision. When the game is a new one, the budget is reset.
+	 *
+	 * @param game
+	 * @param endingTime time when the decision has to be made at the latest (in milliseconds)
+	 */
+	public void startDecision(Game game, long endingTime) {
+		if (game != this.game) {
+			this.game = game;
+			remainingBudget = (long) (BUDGET_FRACTION * NUM_DECISIONS * maxThinkingTime);
+		}
+		startTime = System.currentTimeMillis();
+		this.endingTime = endingTime;
+		softEndingTime = Math.min(endingTime, startTime + computeShare(game.getCurrentRound().getRoundNumber()));
+	}
+
+	/**
+	 * Stops the clock for the current decision and takes the used time from the budget.
+	 */
+	public void finishDecision() {
+		remainingBudget = Math.max(0, remainingBudget - (System.currentTimeMillis() - startTime));
+	}
+
+	/**
+	 * The decision in round r gets a share proportional to 8 - r of the remaining budget.
+	 *
+	 * @param roundNumber
+	 * @return
+	 */
+	long computeShare(int roundNumber) {
+		final int weight = Math.max(1, NUM_DECISIONS - roundNumber);
+		final int remainingWeights = weight * (weight + 1) / 2;
+		return remainingBudget * weight / remainingWeights;
+	}
+
+	@Override
+	public boolean canStop(double[] visits) {
+		if (visits.length < 2)
+			return visits.length == 1; // there is nothing to decide
+		final long now = System.currentTimeMillis();
+		double totalVisits = 0;
+		for (double visit : visits)
+			totalVisits += visit;
+		final double visitsPerMilli = totalVisits / Math.max(1, now - startTime);
+		final double lead = visits[0] - visits[1];
+		if (now < softEndingTime)
+			return lead > visitsPerMilli * (softEndingTime - now);
+		return visits[1] < CLOSE_FRACTION * visits[0] || lead > visitsPerMilli * (endingTime - now);
+	}
+
+	long getRemainingBudget() {
+		return remainingBudget;
+	}
+
+	long getSoftEndingTime() {
+		return softEndingTime;
+	}
+}
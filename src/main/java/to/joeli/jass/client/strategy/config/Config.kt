@@ -10,6 +10,11 @@ class Config {
     var isCardsEstimatorUsed = false // This is used in Self Play Training
     var isScoreEstimatorTrainable = false // This is used in Self Play Training
     var isCardsEstimatorTrainable = false // This is used in Self Play Training
+    var inferenceBatchSize = Runtime.getRuntime().availableProcessors() // predicts the scores of the MCTS threads together in batches of up to this size, 1 to disable
+    var inferenceBackendType = InferenceBackendType.TENSORFLOW // JAVA runs the networks in the pure java engine without tensorflow
+    var maxQuantizationError = 0.01 // JAVA_INT8 falls back to JAVA if the int8 network deviates more on the test set (relative to the largest output)
+    var evaluationCacheBits = 0 // caches the scores predicted for up to 2^bits positions, 0 to disable (hardly any hits before the endgame solver takes over)
+    var isEvaluationCacheCanonical = false // positions which only differ by a permutation of the colors share their score in trumpf games
 
     // TODO MCTS still does not like to shift by itself. It is forced to shift now because of the rule-based pruning
     //  --> Investigate why MCTS without pruning does not like shifting
@@ -43,7 +48,7 @@ class Config {
     }
 
     override fun toString(): String {
-        return "Config(mctsConfig=$mctsConfig, isMctsEnabled=$isMctsEnabled, isScoreEstimatorUsed=$isScoreEstimatorUsed, isCardsEstimatorUsed=$isCardsEstimatorUsed, isScoreEstimatorTrainable=$isScoreEstimatorTrainable, isCardsEstimatorTrainable=$isCardsEstimatorTrainable, trumpfSelectionMethod=$trumpfSelectionMethod)"
+        return "Config(mctsConfig=$mctsConfig, isMctsEnabled=$isMctsEnabled, isScoreEstimatorUsed=$isScoreEstimatorUsed, isCardsEstimatorUsed=$isCardsEstimatorUsed, isScoreEstimatorTrainable=$isScoreEstimatorTrainable, isCardsEstimatorTrainable=$isCardsEstimatorTrainable, inferenceBatchSize=$inferenceBatchSize, inferenceBackendType=$inferenceBackendType, maxQuantizationError=$maxQuantizationError, evaluationCacheBits=$evaluationCacheBits, isEvaluationCacheCanonical=$isEvaluationCacheCanonical, trumpfSelectionMethod=$trumpfSelectionMethod)"
     }
 
 
@@ -0,0 +1,10 @@
+package to.joeli.jass.client.strategy.config
+
+/**
+ * Determines how the exported networks are run:
+ * TENSORFLOW loads the saved model into a tensorflow session, JAVA runs the exported weights in the pure java MLP engine
+ * and JAVA_INT8 runs the weights quantized to int8 in the pure java MLP engine (if they are accurate enough)
+ */
+enum class InferenceBackendType {
+    TENSORFLOW, JAVA, JAVA_INT8
+}
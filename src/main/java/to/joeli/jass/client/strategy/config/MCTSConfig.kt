@@ -7,6 +7,8 @@ import kotlin.math.sqrt
 
 class MCTSConfig {
     var runMode = RunMode.TIME
+    var parallelisationMode = ParallelisationMode.ROOT
+    var searchAlgorithm = SearchAlgorithm.DETERMINIZED
     var trumpfStrengthLevel = StrengthLevel.POWERFUL
     var cardStrengthLevel = StrengthLevel.POWERFUL
 
@@ -14,7 +16,13 @@ class MCTSConfig {
     var hardPruningEnabled = false // enable this for hard pruning cards to focus more on promising areas of the tree
 
     var seed = 42
-    var scoreBoundsUsed = false
+    var scoreBoundsUsed = false // stops searching the subtrees whose exact score is proven (MCTS-Solver), not with tree parallelisation
+    var arenaTreeUsed = true // stores the nodes in primitive arrays, ignored with score bounds or tree parallelisation
+    var treeReuseEnabled = true // continues the trees of the last card decision, only with root parallelisation
+    var ponderingEnabled = false // continues the trees while the other players are thinking, only with tree reuse
+    var timeManagementEnabled = true // distributes the thinking time over the card decisions of a game, only when running by time
+    var voteConfidence = 0.95 // cancels the remaining determinizations when they cannot change the vote with this probability (in [0.5, 1)), 0 to disable
+    var endgameSolverThreshold = 4 // solves the determinizations exactly when every player has at most this many cards left, 0 to disable
     var explorationConstant = sqrt(2.0)
     var pessimisticBias = 0.0
     var optimisticBias = 0.0
@@ -59,6 +67,14 @@ class MCTSConfig {
         this.numPlayouts = numPlayouts
     }
 
+    constructor(parallelisationMode: ParallelisationMode) : this() {
+        this.parallelisationMode = parallelisationMode
+    }
+
+    constructor(searchAlgorithm: SearchAlgorithm) : this() {
+        this.searchAlgorithm = searchAlgorithm
+    }
+
     constructor(finalSelectionPolicy: FinalSelectionPolicy) : this() {
         this.finalSelectionPolicy = finalSelectionPolicy
     }
@@ -81,8 +97,18 @@ class MCTSConfig {
         this.playoutSelectionPolicy = playoutSelectionPolicy
     }
 
+    /**
+     * Checks that the options can be used together. The shared tree of the tree parallelisation mixes the scores of
+     * different determinizations, so it cannot prove scores and has no bounds for the optimistic and pessimistic bias.
+     */
+    fun validate() {
+        if (searchAlgorithm == SearchAlgorithm.DETERMINIZED && parallelisationMode == ParallelisationMode.TREE
+                && (scoreBoundsUsed || pessimisticBias != 0.0 || optimisticBias != 0.0))
+            throw IllegalArgumentException("The score bounds and the optimistic and pessimistic bias are not supported with tree parallelisation.")
+    }
+
     override fun toString(): String {
-        return "MCTSConfig(runMode=$runMode, trumpfStrengthLevel=$trumpfStrengthLevel, cardStrengthLevel=$cardStrengthLevel, cheating=$cheating, hardPruningEnabled=$hardPruningEnabled, seed=$seed, scoreBoundsUsed=$scoreBoundsUsed, explorationConstant=$explorationConstant, pessimisticBias=$pessimisticBias, optimisticBias=$optimisticBias, numPlayouts=$numPlayouts, finalSelectionPolicy=$finalSelectionPolicy, heuristicFunction=$heuristicFunction, playoutSelectionPolicy=$playoutSelectionPolicy)"
+        return "MCTSConfig(runMode=$runMode, parallelisationMode=$parallelisationMode, searchAlgorithm=$searchAlgorithm, trumpfStrengthLevel=$trumpfStrengthLevel, cardStrengthLevel=$cardStrengthLevel, cheating=$cheating, hardPruningEnabled=$hardPruningEnabled, seed=$seed, scoreBoundsUsed=$scoreBoundsUsed, arenaTreeUsed=$arenaTreeUsed, treeReuseEnabled=$treeReuseEnabled, ponderingEnabled=$ponderingEnabled, timeManagementEnabled=$timeManagementEnabled, voteConfidence=$voteConfidence, endgameSolverThreshold=$endgameSolverThreshold, explorationConstant=$explorationConstant, pessimisticBias=$pessimisticBias, optimisticBias=$optimisticBias, numPlayouts=$numPlayouts, finalSelectionPolicy=$finalSelectionPolicy, heuristicFunction=$heuristicFunction, playoutSelectionPolicy=$playoutSelectionPolicy)"
     }
 
 
@@ -0,0 +1,8 @@
+package to.joeli.jass.client.strategy.config
+
+/**
+ * Determines if the threads of the MCTS search one tree per determinization (ROOT) or one tree shared by all the threads (TREE)
+ */
+enum class ParallelisationMode {
+    ROOT, TREE
+}
@@ -0,0 +1,9 @@
+package to.joeli.jass.client.strategy.config
+
+/**
+ * Determines if the MCTS searches one tree per determinization and votes at the end (DETERMINIZED)
+ * or if it searches one tree over the information sets of the player (INFORMATION_SET)
+ */
+enum class SearchAlgorithm {
+    DETERMINIZED, INFORMATION_SET
+}
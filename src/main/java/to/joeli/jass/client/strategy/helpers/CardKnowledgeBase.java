@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import to.joeli.jass.client.game.*;
 import to.joeli.jass.client.strategy.training.networks.CardsEstimator;
 import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
 import to.joeli.jass.game.cards.CardValue;
 import to.joeli.jass.game.cards.Color;
 
@@ -281,15 +282,11 @@ public class CardKnowledgeBase {
 	 * @return
 	 */
 	private static Set<Card> getRemainingCards(Set<Card> availableCards, Game game) {
-		Set<Card> cards = EnumSet.allOf(Card.class);
-		if (cards.size() != 36) throw new AssertionError();
-		cards.removeAll(availableCards);
-		Set<Card> alreadyPlayedCards = game.getAlreadyPlayedCards();
+		final long alreadyPlayedCards = game.getAlreadyPlayedCardsMask();
 		Round round = game.getCurrentRound();
-		if (alreadyPlayedCards.size() != round.getRoundNumber() * 4 + round.getPlayedCards().size())
+		if (CardMasks.size(alreadyPlayedCards) != round.getRoundNumber() * 4 + round.getMoves().size())
 			throw new AssertionError();
-		cards.removeAll(alreadyPlayedCards);
-		return cards;
+		return CardMasks.toSet(CardMasks.ALL_CARDS & ~alreadyPlayedCards & ~CardMasks.toMask(availableCards));
 	}
 
 }
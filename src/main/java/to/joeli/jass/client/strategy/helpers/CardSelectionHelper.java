@@ -8,7 +8,9 @@ import to.joeli.jass.client.game.Move;
 import to.joeli.jass.client.game.Player;
 import to.joeli.jass.client.game.Round;
 import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
 import to.joeli.jass.game.cards.Color;
+import to.joeli.jass.game.mode.LegalMoveGenerator;
 import to.joeli.jass.game.mode.Mode;
 
 import java.util.*;
@@ -534,15 +536,13 @@ public class CardSelectionHelper {
 
 	@NotNull
 	private static Set<Card> getCardsPossibleToPlay(Set<Card> availableCards, Round round) {
-		Mode mode = round.getMode();
-		// If you have a card
-		Set<Card> validCards = EnumSet.noneOf(Card.class);
-		for (Card card : availableCards)
-			if (mode.canPlayCard(card, round.getPlayedCards(), round.getRoundColor(), availableCards))
-				validCards.add(card);
-		if (!validCards.isEmpty())
-			return validCards;
-		return availableCards;
+		long trick = 0L;
+		for (Move move : round.getMoves())
+			trick |= CardMasks.bit(move.getPlayedCard());
+		final Color roundColor = round.getRoundColor();
+		final int leadSuit = roundColor == null ? LegalMoveGenerator.NO_SUIT : CardMasks.suitIndex(roundColor);
+		final long validCards = LegalMoveGenerator.getLegalCards(CardMasks.toMask(availableCards), trick, leadSuit, round.getMode());
+		return CardMasks.toSet(validCards);
 	}
 
 
@@ -0,0 +1,272 @@
+package to.joeli.jass.client.strategy.helpers;
+
+import to.joeli.jass.client.game.GameSession;
+import to.joeli.jass.game.GameState;
+import to.joeli.jass.game.TranspositionTable;
+import to.joeli.jass.game.Zobrist;
+import to.joeli.jass.game.cards.CardMasks;
+import to.joeli.jass.game.mode.Mode;
+
+/**
+ * Solves the end of a game exactly, as a perfect information game in which every player knows all the cards
+ * (double dummy). All the players play perfectly: The team of the player to move at the start maximizes its final
+ * score and the other team minimizes it.
+ * <p>
+ * The search is an alpha-beta search on a {@link GameState} with
+ * <ul>
+ * <li>a {@link TranspositionTable} at the start of every trick, storing bounds of the points still to be won and the best
+ * card to lead. The table can be shared by the solvers of all the threads, so the solutions of one determinization help
+ * the others.</li>
+ * <li>move ordering: The card of the transposition table first, then the cards which are most likely to be good
+ * (e.g. winning the trick as cheaply as possible or putting points on the trick of the partner).</li>
+ * <li>trick level pruning: At the start of every trick, the search stops if even winning all the remaining points cannot
+ * reach alpha.</li>
+ * </ul>
+ * NOTE: Not thread safe. Every thread needs its own solver, but the solvers can share the transposition table.
+ */
+public final class EndgameSolver {
+
+	private static final int DEFAULT_TABLE_BITS = 16;
+	private static final int NO_CARD = TranspositionTable.NO_MOVE;
+	private static final int MAX_MOVES_PER_HAND = CardMasks.CARDS_PER_SUIT;
+
+	// The bounds in the table are the points the root team wins from the start of the trick on. They depend on the team and
+	// on whether the opponents can still make a match, so these are added to the hash of the state
+	private static final long[] ROOT_TEAM_KEYS = Zobrist.randomKeys(2);
+	private static final long OPPONENTS_SCORED_KEY = Zobrist.randomKeys(1)[0];
+
+	private final TranspositionTable table;
+
+	// The moves and their ordering keys for every depth of the search
+	private final int[][] moves = new int[CardMasks.NUMBER_OF_CARDS][MAX_MOVES_PER_HAND];
+	private final int[][] orderKeys = new int[CardMasks.NUMBER_OF_CARDS][MAX_MOVES_PER_HAND];
+
+	private Mode mode;
+	private int[] strengths;
+	private int[] scores;
+	private int trumpfSuit;
+	private int factor;
+	private int totalScore;
+	private int matchBonus;
+
+	private GameState state;
+	private int rootTeam;
+	private long numNodes;
+
+	public EndgameSolver() {
+		this(new TranspositionTable(DEFAULT_TABLE_BITS));
+	}
+
+	public EndgameSolver(TranspositionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Computes the final scores of both teams if all the players play perfectly from the given state on.
+	 *
+	 * @param state      the state to solve. It is modified during the search but in the same state again afterwards
+	 * @param teamScores the array the scores are written to, indexed by the team (see {@link GameState#getTeam(int)})
+	 */
+	public void solve(GameState state, int[] teamScores) {
+		setMode(state.getMode());
+		this.state = state;
+		rootTeam = GameState.getTeam(state.getCurrentPlayer());
+		numNodes = 0;
+
+		final int score = search(Integer.MIN_VALUE, Integer.MAX_VALUE, 0);
+		teamScores[rootTeam] = score;
+		teamScores[1 - rootTeam] = score >= totalScore ? 0 : totalScore - score + (score == 0 ? matchBonus : 0);
+	}
+
+	/**
+	 * Prepares the tables of the mode
+	 *
+	 * @param mode
+	 */
+	private void setMode(Mode mode) {
+		if (mode.equals(this.mode))
+			return;
+		this.mode = mode;
+		strengths = mode.getCardStrengths();
+		scores = mode.getCardScores();
+		trumpfSuit = mode.isTrumpfMode() ? CardMasks.suitIndex(mode.getTrumpfColor()) : -1;
+		factor = mode.getFactor();
+		int cardScores = 0;
+		for (int cardScore : scores)
+			cardScores += cardScore;
+		totalScore = cardScores * factor + mode.getLastRoundBonus();
+		matchBonus = GameSession.MATCH_BONUS_ENABLED ? factor * 100 : 0;
+	}
+
+	private int search(int alpha, int beta, int depth) {
+		numNodes++;
+		if (state.isGameOver())
+			return state.getTeamScore(rootTeam) + (state.getTeamScore(1 - rootTeam) == 0 ? matchBonus : 0);
+		if (state.getTrickSize() == 0)
+			return searchTrick(alpha, beta, depth);
+		return searchMoves(alpha, beta, depth, NO_CARD);
+	}
+
+	/**
+	 * Searches the state at the start of a trick with the help of the transposition table
+	 */
+	private int searchTrick(int alpha, int beta, int depth) {
+		final int score = state.getTeamScore(rootTeam);
+		final boolean opponentsScored = state.getTeamScore(1 - rootTeam) > 0;
+		// Trick level pruning: The root team wins at least nothing and at most all the remaining points
+		if (score >= beta)
+			return score;
+		final int maxScore = score + computeRemainingScore() + (opponentsScored ? 0 : matchBonus);
+		if (maxScore <= alpha)
+			return maxScore;
+
+		final long hash = state.getHash() ^ ROOT_TEAM_KEYS[rootTeam] ^ (opponentsScored ? OPPONENTS_SCORED_KEY : 0L);
+		final long entry = table.probe(hash);
+
+		int lowerBound = score;
+		int upperBound = maxScore;
+		int bestCard = NO_CARD;
+		if (entry != TranspositionTable.NOT_FOUND) {
+			lowerBound = Math.max(lowerBound, score + TranspositionTable.getLowerBound(entry));
+			upperBound = Math.min(upperBound, score + TranspositionTable.getUpperBound(entry));
+			bestCard = TranspositionTable.getBestMove(entry);
+			if (lowerBound >= beta || lowerBound == upperBound)
+				return lowerBound;
+			if (upperBound <= alpha)
+				return upperBound;
+		}
+		alpha = Math.max(alpha, lowerBound);
+		beta = Math.min(beta, upperBound);
+
+		final int value = searchMoves(alpha, beta, depth, bestCard);
+
+		// The value is exact inside the window, an upper bound at alpha or below and a lower bound at beta or above
+		if (value > alpha)
+			lowerBound = Math.max(lowerBound, value);
+		if (value < beta)
+			upperBound = Math.min(upperBound, value);
+		table.store(hash, lowerBound - score, upperBound - score, moves[depth][0]);
+		return value;
+	}
+
+	/**
+	 * Tries the legal cards of the current player in the order of {@link #orderMoves(int, int)}.
+	 * The best card is moved to the front of the moves of the depth, so that it can be stored in the transposition table.
+	 */
+	private int searchMoves(int alpha, int beta, int depth, int firstCard) {
+		final boolean maximizing = GameState.getTeam(state.getCurrentPlayer()) == rootTeam;
+		final int numMoves = orderMoves(depth, firstCard);
+		final int[] depthMoves = moves[depth];
+		int bestValue = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		int bestIndex = 0;
+		for (int i = 0; i < numMoves; i++) {
+			state.makeMove(depthMoves[i]);
+			final int value = search(alpha, beta, depth + 1);
+			state.unmakeMove();
+			if (maximizing ? value > bestValue : value < bestValue) {
+				bestValue = value;
+				bestIndex = i;
+			}
+			if (maximizing)
+				alpha = Math.max(alpha, value);
+			else
+				beta = Math.min(beta, value);
+			if (alpha >= beta)
+				break;
+		}
+		final int bestCard = depthMoves[bestIndex];
+		depthMoves[bestIndex] = depthMoves[0];
+		depthMoves[0] = bestCard;
+		return bestValue;
+	}
+
+	/**
+	 * Collects the legal cards of the current player and sorts them by how promising they are:
+	 * <ul>
+	 * <li>The first card (from the transposition table) is tried first</li>
+	 * <li>When leading, the strongest cards come first</li>
+	 * <li>When the partner wins the trick so far, the cards with the most points come first</li>
+	 * <li>When the opponents win the trick so far, the weakest card beating them comes first, then the cards with the least points</li>
+	 * </ul>
+	 *
+	 * @param depth
+	 * @param firstCard the card to try first or NO_CARD
+	 * @return the number of moves
+	 */
+	private int orderMoves(int depth, int firstCard) {
+		final int[] depthMoves = moves[depth];
+		final int[] keys = orderKeys[depth];
+		final int trickSize = state.getTrickSize();
+		int winningCard = NO_CARD;
+		boolean partnerWins = false;
+		if (trickSize > 0) {
+			final int winningIndex = determineWinningIndex();
+			winningCard = state.getTrickCard(winningIndex);
+			// The partner played two cards before the current player
+			partnerWins = winningIndex == trickSize - 2;
+		}
+
+		int numMoves = 0;
+		for (long legalCards = state.getLegalCards(); legalCards != 0; legalCards &= legalCards - 1) {
+			final int card = Long.numberOfTrailingZeros(legalCards);
+			final int key;
+			if (card == firstCard)
+				key = Integer.MAX_VALUE;
+			else if (winningCard == NO_CARD)
+				key = strengths[card];
+			else if (partnerWins)
+				key = scores[card];
+			else if (beats(card, winningCard))
+				key = 1000 - strengths[card];
+			else
+				key = -scores[card];
+
+			// Insertion sort, descending by key
+			int i = numMoves++;
+			while (i > 0 && keys[i - 1] < key) {
+				keys[i] = keys[i - 1];
+				depthMoves[i] = depthMoves[i - 1];
+				i--;
+			}
+			keys[i] = key;
+			depthMoves[i] = card;
+		}
+		return numMoves;
+	}
+
+	private int determineWinningIndex() {
+		int winningIndex = 0;
+		for (int i = 1; i < state.getTrickSize(); i++)
+			if (beats(state.getTrickCard(i), state.getTrickCard(winningIndex)))
+				winningIndex = i;
+		return winningIndex;
+	}
+
+	/**
+	 * Checks if the card would win against the card currently winning the trick
+	 */
+	private boolean beats(int card, int winningCard) {
+		final int suit = CardMasks.suitOf(card);
+		final int leadSuit = CardMasks.suitOf(state.getTrickCard(0));
+		return (suit == leadSuit || suit == trumpfSuit) && strengths[card] > strengths[winningCard];
+	}
+
+	/**
+	 * Returns the points of all the cards not played yet including the bonus of the last trick
+	 */
+	private int computeRemainingScore() {
+		int score = 0;
+		for (long remainingCards = CardMasks.ALL_CARDS & ~state.getPlayedCards(); remainingCards != 0; remainingCards &= remainingCards - 1)
+			score += scores[Long.numberOfTrailingZeros(remainingCards)];
+		return score * factor + mode.getLastRoundBonus();
+	}
+
+	/**
+	 * Returns the number of states visited by the last call of {@link #solve(GameState, int[])}
+	 *
+	 * @return
+	 */
+	public long getNumNodes() {
+		return numNodes;
+	}
+}
@@ -0,0 +1,189 @@
+package to.joeli.jass.client.strategy.helpers;
+
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.client.game.Move;
+import to.joeli.jass.client.game.Player;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
+import to.joeli.jass.game.mode.Mode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.List;
+
+/**
+ * Encodes the score features of a game exactly like {@link NeuralNetworkHelper#getScoreFeatures(Game)}, but writes them
+ * directly into a FloatBuffer instead of building a new float[73][18] per call. The rows are stored one after the other.
+ * <p>
+ * The encoding of every card is looked up in tables, the cards history is written in the order of appearance and
+ * the cards distribution is written at the row of every card, so that nothing needs to be sorted or allocated.
+ */
+public final class FeatureEncoder {
+
+	public static final int NUM_ROWS = 73;
+	public static final int NUM_COLUMNS = 18;
+	public static final int NUM_FEATURES = NUM_ROWS * NUM_COLUMNS;
+	public static final int MAX_INPUTS = CardMasks.CARDS_PER_SUIT; // one afterstate per card in the hand at most
+
+	private static final int INFO_ROW = 0;
+	private static final int HISTORY_ROW = 1;
+	private static final int DISTRIBUTION_ROW = 37;
+
+	private static final int MODE_COLUMN = 2;
+	private static final int INITIAL_PLAYER_COLUMN = 2 + 7;
+	private static final int CURRENT_PLAYER_COLUMN = 2 + 7 + 4;
+	private static final int TRUMPF_COLUMN = 14 - 1;
+	private static final int PLAYER_COLUMN = 14;
+
+	// The columns of the suit and the value of every card (by ordinal) and the trumpf bit of every card in every mode (by code)
+	private static final int[] SUIT_COLUMNS = new int[CardMasks.NUMBER_OF_CARDS];
+	private static final int[] VALUE_COLUMNS = new int[CardMasks.NUMBER_OF_CARDS];
+	private static final float[][] TRUMPF_BITS = new float[8][CardMasks.NUMBER_OF_CARDS];
+	private static final float[] NO_TRUMPF_BITS = new float[CardMasks.NUMBER_OF_CARDS]; // e.g. for shifting
+
+	private static final ThreadLocal<FloatBuffer> BUFFERS = ThreadLocal.withInitial(FeatureEncoder::allocateBuffer);
+
+	static {
+		for (Card card : Card.values()) {
+			SUIT_COLUMNS[card.ordinal()] = card.getColor().getValue();
+			VALUE_COLUMNS[card.ordinal()] = 3 + card.getValue().getRank();
+		}
+		for (Mode mode : Mode.standardModes())
+			for (Card card : Card.values())
+				TRUMPF_BITS[mode.getCode()][card.ordinal()] = NeuralNetworkHelper.getTrumpfBit(card, mode);
+	}
+
+	private FeatureEncoder() {
+	}
+
+	/**
+	 * Allocates a direct buffer for the features of the given number of inputs
+	 *
+	 * @param numInputs
+	 * @return
+	 */
+	public static FloatBuffer allocateBuffer(int numInputs) {
+		return ByteBuffer.allocateDirect(numInputs * NUM_FEATURES * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	private static FloatBuffer allocateBuffer() {
+		return allocateBuffer(MAX_INPUTS);
+	}
+
+	/**
+	 * Returns the buffer of the current thread for the features of one input. It is reused by every call of the thread.
+	 *
+	 * @return
+	 */
+	public static FloatBuffer getThreadLocalBuffer() {
+		return getThreadLocalBuffer(1);
+	}
+
+	/**
+	 * Returns the buffer of the current thread for the features of the given number of inputs (at most MAX_INPUTS).
+	 * It is reused by every call of the thread.
+	 *
+	 * @param numInputs
+	 * @return
+	 */
+	public static FloatBuffer getThreadLocalBuffer(int numInputs) {
+		final FloatBuffer buffer = BUFFERS.get();
+		buffer.clear();
+		buffer.limit(numInputs * NUM_FEATURES);
+		return buffer;
+	}
+
+	/**
+	 * Writes the score features of a determinized game (perfect information) into the buffer, starting at its position.
+	 * The position of the buffer is not changed.
+	 *
+	 * @param game
+	 * @param buffer at least NUM_FEATURES floats remaining
+	 */
+	public static void encodeScoreFeatures(Game game, FloatBuffer buffer) {
+		final int offset = buffer.position();
+		for (int i = 0; i < NUM_FEATURES; i++)
+			buffer.put(offset + i, 0);
+
+		// INFO_ROW
+		final Mode mode = game.getMode();
+		final int infoRow = offset + INFO_ROW * NUM_COLUMNS;
+		buffer.put(infoRow + (game.isShifted() ? 1 : 0), 1);
+		buffer.put(infoRow + MODE_COLUMN + mode.getCode(), 1);
+		buffer.put(infoRow + INITIAL_PLAYER_COLUMN + game.getOrder().getPlayersInInitialOrder().get(0).getSeatId(), 1);
+		buffer.put(infoRow + CURRENT_PLAYER_COLUMN + game.getCurrentPlayer().getSeatId(), 1);
+
+		final float[] trumpfBits = getTrumpfBits(mode);
+
+		// CARDS_HISTORY and the played cards of the CARDS_DISTRIBUTION
+		final List<Move> history = game.getAlreadyPlayedMovesInOrder();
+		for (int i = 0; i < history.size(); i++) {
+			final Move move = history.get(i);
+			final int card = move.getPlayedCard().ordinal();
+			final int seatId = move.getPlayer().getSeatId();
+			encodeCard(buffer, offset + (HISTORY_ROW + i) * NUM_COLUMNS, card, seatId, trumpfBits);
+			encodeCard(buffer, offset + (DISTRIBUTION_ROW + card) * NUM_COLUMNS, card, seatId, trumpfBits);
+		}
+
+		// The cards in the hands of the CARDS_DISTRIBUTION
+		for (Player player : game.getPlayers())
+			for (long hand = CardMasks.toMask(player.getCards()); hand != 0; hand &= hand - 1) {
+				final int card = Long.numberOfTrailingZeros(hand);
+				encodeCard(buffer, offset + (DISTRIBUTION_ROW + card) * NUM_COLUMNS, card, player.getSeatId(), trumpfBits);
+			}
+	}
+
+	/**
+	 * Writes the score features of the states after the current player played each of the cards (the afterstates) into
+	 * the buffer, one after the other, starting at its position. The position of the buffer is not changed.
+	 * <p>
+	 * Instead of playing the cards on copies of the game, the features of the game are encoded once and copied.
+	 * An afterstate only differs in the current player and in the played card added to the cards history:
+	 * In the cards distribution the card belongs to the same player, no matter if it is in the hand or played.
+	 * After the last card of a round, the next round is not started yet (like after {@link Game#makeMove(Move)}).
+	 *
+	 * @param game
+	 * @param cards  the cards the current player can play
+	 * @param buffer at least cards.length * NUM_FEATURES floats remaining
+	 */
+	public static void encodeAfterstateFeatures(Game game, Card[] cards, FloatBuffer buffer) {
+		final int offset = buffer.position();
+		encodeScoreFeatures(game, buffer);
+
+		final FloatBuffer source = buffer.duplicate();
+		source.limit(offset + NUM_FEATURES);
+		final FloatBuffer target = buffer.duplicate();
+		target.position(offset + NUM_FEATURES);
+		for (int i = 1; i < cards.length; i++) {
+			source.position(offset);
+			target.put(source);
+		}
+
+		final int seatId = game.getCurrentPlayer().getSeatId();
+		final int nextSeatId = game.getOrder().getNextPlayer().getSeatId();
+		final int historyRow = HISTORY_ROW + game.getAlreadyPlayedMovesInOrder().size();
+		final float[] trumpfBits = getTrumpfBits(game.getMode());
+		for (int i = 0; i < cards.length; i++) {
+			final int afterstate = offset + i * NUM_FEATURES;
+			buffer.put(afterstate + INFO_ROW * NUM_COLUMNS + CURRENT_PLAYER_COLUMN + seatId, 0);
+			buffer.put(afterstate + INFO_ROW * NUM_COLUMNS + CURRENT_PLAYER_COLUMN + nextSeatId, 1);
+			encodeCard(buffer, afterstate + historyRow * NUM_COLUMNS, cards[i].ordinal(), seatId, trumpfBits);
+		}
+	}
+
+	private static float[] getTrumpfBits(Mode mode) {
+		return mode.getCode() < TRUMPF_BITS.length ? TRUMPF_BITS[mode.getCode()] : NO_TRUMPF_BITS;
+	}
+
+	/**
+	 * Writes the three hot encoding of the card and the one hot encoding of the player into the row
+	 * (see {@link NeuralNetworkHelper#fromMoveToEncoding(Card, Mode, int)})
+	 */
+	private static void encodeCard(FloatBuffer buffer, int row, int card, int seatId, float[] trumpfBits) {
+		buffer.put(row + SUIT_COLUMNS[card], 1);
+		buffer.put(row + VALUE_COLUMNS[card], 1);
+		buffer.put(row + TRUMPF_COLUMN, trumpfBits[card]);
+		buffer.put(row + PLAYER_COLUMN + seatId, 1);
+	}
+}
@@ -65,6 +65,19 @@ object IOHelper {
         return ObjectMapper(CBORFactory()).writeValueAsBytes(array)
     }
 
+    /**
+     * Reads the features of all the CBOR files in the directory (see [saveData])
+     *
+     * @param directory
+     * @return
+     */
+    @Throws(IOException::class)
+    fun readFeatures(directory: String): List<Array<FloatArray>> {
+        val files = File(directory).listFiles { file -> file.extension == "cbor" } ?: return emptyList()
+        val mapper = ObjectMapper(CBORFactory())
+        return files.flatMap { mapper.readValue(it, Array<Array<FloatArray>>::class.java).asList() }
+    }
+
     /**
      * Creates the directory and all necessary subdirectories if they do not yet exist.
      *
@@ -6,6 +6,7 @@ import to.joeli.jass.client.game.Game;
 import to.joeli.jass.client.game.Player;
 import to.joeli.jass.client.game.Round;
 import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
 import to.joeli.jass.game.cards.CardValue;
 import to.joeli.jass.game.cards.Color;
 import to.joeli.jass.game.mode.Mode;
@@ -26,6 +27,20 @@ public class JassHelper {
 
 	public static final Logger logger = LoggerFactory.getLogger(JassHelper.class);
 
+	// The cards of every color with the strongest card first, indexed by the mode code (0 - 5) and the color value
+	private static final Card[][][] CARDS_IN_STRENGTH_ORDER = new Card[6][Color.values().length][];
+
+	static {
+		for (int code = 0; code < CARDS_IN_STRENGTH_ORDER.length; code++) {
+			final int[] cardStrengths = Mode.from(code).getCardStrengths();
+			for (Color color : Color.values())
+				CARDS_IN_STRENGTH_ORDER[code][color.getValue()] = Arrays.stream(Card.values())
+						.filter(card -> card.getColor() == color)
+						.sorted(Comparator.comparingInt((Card card) -> cardStrengths[card.ordinal()]).reversed())
+						.toArray(Card[]::new);
+		}
+	}
+
 	private JassHelper() {
 
 	}
@@ -41,15 +56,10 @@ public class JassHelper {
 		EnumSet<Card> bocks = EnumSet.noneOf(Card.class);
 		for (Color color : Color.values()) {
 			if (!isTrumpfModeAndMatchesColor(game.getMode(), color)) {
-				// Start with the highest card first
-				List<CardValue> values = Arrays.asList(CardValue.values());
-				if (!isBottomUp(game.getMode()))
-					Collections.reverse(values);
-				// And then check for every card down the value line
-				for (CardValue value : values) {
-					Card card = Card.getCard(color, value);
-					// if it is still in the game
-					if (!game.getAlreadyPlayedCards().contains(card)) {
+				final long remainingCards = game.getRemainingCardsMask(color);
+				// Start with the highest card first and take the first one still in the game
+				for (Card card : getCardsInStrengthOrder(game.getMode(), color)) {
+					if ((remainingCards & CardMasks.bit(card)) != 0) {
 						bocks.add(card);
 						break;
 					}
@@ -109,26 +119,28 @@ public class JassHelper {
 	public static Map<Color, List<Card>> getCardsStillInGameInStrengthOrder(Game game) {
 		EnumMap<Color, List<Card>> orderedRemainingCards = new EnumMap<>(Color.class);
 		for (Color color : Color.values()) {
-			// Start with the highest card first
-			List<CardValue> values = Arrays.asList(CardValue.values());
-			if (!isBottomUp(game.getMode()))
-				Collections.reverse(values);
-			if (isTrumpfModeAndMatchesColor(game.getMode(), color))
-				values = values.stream().sorted(Comparator.comparing(CardValue::getTrumpfRank).reversed()).collect(Collectors.toList());
-
-			List<Card> cards = new ArrayList<>();
-			// And then check for every card down the value line
-			for (CardValue value : values) {
-				Card card = Card.getCard(color, value);
-				// if it is still in the game
-				if (!game.getAlreadyPlayedCards().contains(card))
+			final long remainingCards = game.getRemainingCardsMask(color);
+			List<Card> cards = new ArrayList<>(CardMasks.size(remainingCards));
+			for (Card card : getCardsInStrengthOrder(game.getMode(), color))
+				if ((remainingCards & CardMasks.bit(card)) != 0)
 					cards.add(card);
-				orderedRemainingCards.put(color, cards);
-			}
+			orderedRemainingCards.put(color, cards);
 		}
 		return orderedRemainingCards;
 	}
 
+	/**
+	 * Returns the cards of the color with the strongest card first. Shifting is treated like top down.
+	 *
+	 * @param mode
+	 * @param color
+	 * @return
+	 */
+	private static Card[] getCardsInStrengthOrder(Mode mode, Color color) {
+		final int code = mode.getCode() < CARDS_IN_STRENGTH_ORDER.length ? mode.getCode() : Mode.topDown().getCode();
+		return CARDS_IN_STRENGTH_ORDER[code][color.getValue()];
+	}
+
 	private static boolean isTrumpfModeAndMatchesColor(Mode mode, Color color) {
 		return mode.isTrumpfMode() && mode.getTrumpfColor().equals(color);
 	}
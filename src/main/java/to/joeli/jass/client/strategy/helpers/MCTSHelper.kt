@@ -2,13 +2,18 @@ package to.joeli.jass.client.strategy.helpers
 
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
+import to.joeli.jass.client.game.Game
 import to.joeli.jass.client.game.GameSession
+import to.joeli.jass.client.strategy.TimeManager
 import to.joeli.jass.client.strategy.config.MCTSConfig
+import to.joeli.jass.client.strategy.config.ParallelisationMode
 import to.joeli.jass.client.strategy.config.RunMode
+import to.joeli.jass.client.strategy.config.SearchAlgorithm
 import to.joeli.jass.client.strategy.config.StrengthLevel
 import to.joeli.jass.client.strategy.exceptions.MCTSException
+import to.joeli.jass.client.strategy.mcts.CardMove
+import to.joeli.jass.client.strategy.mcts.ISMCTS
 import to.joeli.jass.client.strategy.mcts.JassBoard
-import to.joeli.jass.client.strategy.mcts.src.Board
 import to.joeli.jass.client.strategy.mcts.src.MCTS
 import to.joeli.jass.client.strategy.mcts.src.Move
 import to.joeli.jass.client.strategy.training.networks.CardsEstimator
@@ -21,18 +26,59 @@ import to.joeli.jass.game.cards.Card
 class MCTSHelper(private val mctsConfig: MCTSConfig) {
 
     private val mcts = MCTS()
+    // Only used if the information set search algorithm is selected
+    private val ismcts: ISMCTS? = if (mctsConfig.searchAlgorithm === SearchAlgorithm.INFORMATION_SET)
+        ISMCTS(mctsConfig.explorationConstant, mctsConfig.numPlayouts, mctsConfig.playoutSelectionPolicy, mctsConfig.seed)
+    else null
+
+    // Only used for tree reuse: the game and the number of moves made in it at the time of the last search
+    private var lastGame: Game? = null
+    private var numMovesAtLastSearch = 0
+    // Only used for card decisions by time: distributes the thinking time over the decisions of a game
+    private val timeManager = TimeManager(mctsConfig.cardStrengthLevel.maxThinkingTime - BUFFER_TIME_MILLIS)
+    // Only used for pondering: the thread continuing the trees while the other players are choosing their cards
+    private var ponderingThread: Thread? = null
 
     /**
-     * Checks whether the thread pool in the mcts object has been shut down.
+     * Checks whether the mcts object has been shut down.
      *
      * @return
      */
     val isShutDown: Boolean
-        get() = mcts.isShutDown
+        get() = ismcts?.isShutDown ?: mcts.isShutDown
+
+    /**
+     * Checks whether the trees are being searched in the background (see startPondering).
+     *
+     * @return
+     */
+    val isPondering: Boolean
+        get() = ponderingThread?.isAlive ?: false
+
+    /**
+     * The summed visits of the roots of the trees which the next card decision continues (0 while pondering).
+     *
+     * @return
+     */
+    val reusableRootGames: Double
+        get() = mcts.reusableRootGames
+
+    /**
+     * The summed visits of the roots of the trees which the last card decision continued (0 if it started from scratch).
+     *
+     * @return
+     */
+    val reusedRootGames: Double
+        get() = mcts.reusedRootGames
 
     init {
+        mctsConfig.validate()
         mcts.setRandom(mctsConfig.seed)
         mcts.setScoreBoundsUsed(mctsConfig.scoreBoundsUsed)
+        mcts.setArenaTreeUsed(mctsConfig.arenaTreeUsed)
+        mcts.setTreeReuseEnabled(mctsConfig.treeReuseEnabled)
+        mcts.setVoteConfidence(mctsConfig.voteConfidence)
+        mcts.setEndgameSolverThreshold(mctsConfig.endgameSolverThreshold)
         mcts.setExplorationConstant(mctsConfig.explorationConstant)
         mcts.setOptimisticBias(mctsConfig.optimisticBias)
         mcts.setPessimisticBias(mctsConfig.pessimisticBias)
@@ -41,19 +87,25 @@ class MCTSHelper(private val mctsConfig: MCTSConfig) {
         mcts.setHeuristicFunction(mctsConfig.heuristicFunction)
         mcts.setPlayoutSelectionPolicy(mctsConfig.playoutSelectionPolicy)
 
-        // if we run by runs we want the threadPool to only have as many threads as there are cores available for maximal efficiency (no unnecessary scheduling overhead)
-        if (mctsConfig.runMode === RunMode.RUNS)
-            mcts.enableRootParallelisation(Runtime.getRuntime().availableProcessors())
-        // if we run by time we want the threadPool to have enough threads to have all determinizations running at the same time
-        if (mctsConfig.runMode === RunMode.TIME)
-            mcts.enableRootParallelisation(ROUND_MULTIPLIER * mctsConfig.trumpfStrengthLevel.numDeterminizationsFactor) // NOTE: It creates A LOT of threads here now!
+        // All the searches run on the process-wide thread pool with as many threads as there are cores available.
+        // When running by time, the determinizations are time sliced, so that there can be more of them than threads.
+        if (ismcts != null)
+            ismcts.enableParallelisation()
+        else if (mctsConfig.parallelisationMode === ParallelisationMode.TREE)
+            mcts.enableTreeParallelisation()
+        else
+            mcts.enableRootParallelisation()
     }
 
     /**
-     * Shuts down the thread pool in the mcts object. Has to be called as soon as it is not used anymore!
+     * Shuts down the mcts object. Has to be called as soon as it is not used anymore!
      */
     fun shutDown() {
-        mcts.shutDown()
+        stopPondering()
+        if (ismcts != null)
+            ismcts.shutDown()
+        else
+            mcts.shutDown()
     }
 
     /**
@@ -65,7 +117,8 @@ class MCTSHelper(private val mctsConfig: MCTSConfig) {
      */
     @Throws(MCTSException::class)
     fun predictMove(availableCards: Set<Card>, gameSession: GameSession, isChoosingTrumpf: Boolean, shifted: Boolean): Move? {
-        val jassBoard: Board
+        stopPondering()
+        val jassBoard: JassBoard
         val scoreEstimator: ScoreEstimator?
         val cardsEstimator: CardsEstimator?
         val strengthLevel: StrengthLevel
@@ -74,11 +127,16 @@ class MCTSHelper(private val mctsConfig: MCTSConfig) {
             scoreEstimator = gameSession.trumpfSelectingPlayer.scoreEstimator
             cardsEstimator = gameSession.trumpfSelectingPlayer.cardsEstimator
             jassBoard = JassBoard.constructTrumpfSelectionJassBoard(availableCards, gameSession, shifted, mctsConfig.cheating, mctsConfig.hardPruningEnabled, scoreEstimator, cardsEstimator)
+            // The trees of the trumpf selection cannot be continued in the card play
+            mcts.discardTrees()
+            lastGame = null
         } else {
             strengthLevel = mctsConfig.cardStrengthLevel
             scoreEstimator = gameSession.currentGame.currentPlayer.scoreEstimator
             cardsEstimator = gameSession.currentGame.currentPlayer.cardsEstimator
             jassBoard = JassBoard.constructCardSelectionJassBoard(availableCards, gameSession.currentGame, mctsConfig.cheating, mctsConfig.hardPruningEnabled, scoreEstimator, cardsEstimator)
+            if (mctsConfig.treeReuseEnabled)
+                observeMovesSinceLastSearch(gameSession.currentGame)
         }
 
         var numDeterminizations = computeNumDeterminizations(gameSession, isChoosingTrumpf, strengthLevel.numDeterminizationsFactor)
@@ -110,12 +168,76 @@ class MCTSHelper(private val mctsConfig: MCTSConfig) {
         if (mctsConfig.runMode === RunMode.RUNS) {
             if (mctsConfig.cardStrengthLevel == StrengthLevel.HSLU_SERVER) // small hack to make it to 1000000 simulations every time
                 numRuns = 100000L / numDeterminizations
+            if (ismcts != null) // the information set search pools the runs of all the determinizations in one tree
+                return ismcts.runForRuns(jassBoard, numRuns * numDeterminizations)
             return mcts.runForRuns(jassBoard, numDeterminizations, numRuns)
-        } else if (mctsConfig.runMode === RunMode.TIME)
-            return mcts.runForTime(jassBoard, numDeterminizations, System.currentTimeMillis() + strengthLevel.maxThinkingTime - BUFFER_TIME_MILLIS)
+        } else if (mctsConfig.runMode === RunMode.TIME) {
+            val endingTime = System.currentTimeMillis() + strengthLevel.maxThinkingTime - BUFFER_TIME_MILLIS
+            if (ismcts != null)
+                return ismcts.runForTime(jassBoard, endingTime)
+            if (isChoosingTrumpf || !mctsConfig.timeManagementEnabled)
+                return mcts.runForTime(jassBoard, numDeterminizations, endingTime)
+            timeManager.startDecision(gameSession.currentGame, endingTime)
+            try {
+                return mcts.runForTime(jassBoard, numDeterminizations, endingTime, timeManager)
+            } finally {
+                timeManager.finishDecision()
+            }
+        }
         return null
     }
 
+    /**
+     * Continues the trees of the last card decision in the background while the other players are choosing their cards
+     * (pondering). The trees are advanced with the moves made in the game so far and the next card decision continues
+     * where the pondering stopped. Pondering only uses one thread and stops after the thinking time of a card decision.
+     *
+     * @param game
+     */
+    fun startPondering(game: Game) {
+        stopPondering()
+        if (ismcts != null || mctsConfig.parallelisationMode === ParallelisationMode.TREE || !mctsConfig.treeReuseEnabled)
+            return
+        observeMovesSinceLastSearch(game)
+        val endingTime = System.currentTimeMillis() + mctsConfig.cardStrengthLevel.maxThinkingTime
+        ponderingThread = Thread({ mcts.ponder(endingTime) }, "pondering").apply {
+            isDaemon = true
+            start()
+        }
+    }
+
+    /**
+     * Stops the pondering and waits until the trees are handed back, so that they can be searched again.
+     */
+    fun stopPondering() {
+        val thread = ponderingThread ?: return
+        ponderingThread = null
+        thread.interrupt()
+        try {
+            thread.join()
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+    }
+
+    /**
+     * Tells the mcts object which moves have been made since the last search, so that it can continue its trees.
+     * If the last search was in another game, the trees are discarded.
+     *
+     * @param game
+     */
+    private fun observeMovesSinceLastSearch(game: Game) {
+        val moves = game.alreadyPlayedMovesInOrder
+        if (game !== lastGame || moves.size < numMovesAtLastSearch)
+            mcts.discardTrees()
+        else {
+            val observedMoves: List<Move> = moves.subList(numMovesAtLastSearch, moves.size).map { CardMove(it.player, it.playedCard) }
+            mcts.observeMoves(observedMoves)
+        }
+        lastGame = game
+        numMovesAtLastSearch = moves.size
+    }
+
     private fun computeNumDeterminizations(gameSession: GameSession, isChoosingTrumpf: Boolean, numDeterminizationsFactor: Int): Int {
         return if (!isChoosingTrumpf) (9 - gameSession.currentRound!!.roundNumber) * numDeterminizationsFactor else ROUND_MULTIPLIER * numDeterminizationsFactor
     }
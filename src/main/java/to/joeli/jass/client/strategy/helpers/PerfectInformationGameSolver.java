@@ -144,7 +144,6 @@ public class PerfectInformationGameSolver {
 
 		// BOCK SPIELEN
 		// TODO find different method to find bocks!
-		// TODO game.getAlreadyPlayedCards() method is a performance bottleneck!
 
 		final Map<Color, List<Card>> orderedRemainingCards = JassHelper.getCardsStillInGameInStrengthOrder(game);
 		final Set<Card> bocks = JassHelper.getBocks(mode, orderedRemainingCards);
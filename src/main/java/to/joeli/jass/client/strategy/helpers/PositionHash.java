@@ -0,0 +1,180 @@
+package to.joeli.jass.client.strategy.helpers;
+
+import com.google.common.collect.Collections2;
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.client.game.Move;
+import to.joeli.jass.client.game.Player;
+import to.joeli.jass.game.Zobrist;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
+import to.joeli.jass.game.cards.Color;
+import to.joeli.jass.game.mode.Mode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Hashes a determinized game in the card play (perfect information) with {@link Zobrist} keys of everything the score
+ * features depend on (see {@link FeatureEncoder}): the hands, the leader of the current trick, the current player,
+ * the mode, whether it was shifted and the cards history. The cards of the current trick are part of the history.
+ * <p>
+ * Unlike in the endgame solver, the history is hashed in the order of play (a key per card and position) because the
+ * features and therefore the predicted score depend on it (e.g. on the points the teams already won).
+ * <p>
+ * In trumpf games, the canonical hash is the same for all the games which only differ by a permutation of the colors
+ * (like {@link NeuralNetworkHelper#getAnalogousScoreFeatures(Game)}).
+ */
+public final class PositionHash {
+
+	private static final int NUM_CARDS = CardMasks.NUMBER_OF_CARDS;
+
+	private static final long[] HISTORY_KEYS = Zobrist.randomKeys(NUM_CARDS * NUM_CARDS); // the card at the position of the history
+	private static final long[] CURRENT_PLAYER_KEYS = Zobrist.randomKeys(4);
+	private static final long SHIFTED_KEY = Zobrist.randomKeys(1)[0];
+
+	// The ordinals of the cards and the codes of the trumpf modes under every permutation of the colors
+	private static final int[] IDENTITY = new int[NUM_CARDS];
+	private static final int[][] PERMUTED_CARDS;
+	private static final int[][] PERMUTED_TRUMPF_CODES;
+
+	static {
+		for (int card = 0; card < NUM_CARDS; card++)
+			IDENTITY[card] = card;
+
+		final List<List<Color>> permutations = new ArrayList<>(Collections2.permutations(asList(Color.values())));
+		PERMUTED_CARDS = new int[permutations.size()][NUM_CARDS];
+		PERMUTED_TRUMPF_CODES = new int[permutations.size()][Color.values().length];
+		for (int p = 0; p < permutations.size(); p++) {
+			final List<Color> colors = permutations.get(p);
+			for (Card card : Card.values())
+				PERMUTED_CARDS[p][card.ordinal()] = DataAugmentationHelper.getRespectiveCard(card, colors).ordinal();
+			for (Mode mode : Mode.trumpfModes())
+				PERMUTED_TRUMPF_CODES[p][mode.getCode()] = DataAugmentationHelper.getRespectiveMode(mode, colors).getCode();
+		}
+	}
+
+	private PositionHash() {
+	}
+
+	/**
+	 * Hashes the game exactly: Two games with the same hash have the same score features.
+	 *
+	 * @param game
+	 * @return
+	 */
+	public static long hash(Game game) {
+		final Position position = new Position(game);
+		return position.hash(IDENTITY, game.getMode().getCode());
+	}
+
+	/**
+	 * Hashes the game like {@link #hash(Game)}, but in trumpf games the hash is the smallest hash of all the games
+	 * obtained by permuting the colors.
+	 *
+	 * @param game
+	 * @return
+	 */
+	public static long canonicalHash(Game game) {
+		final Mode mode = game.getMode();
+		final Position position = new Position(game);
+		if (!mode.isTrumpfMode())
+			return position.hash(IDENTITY, mode.getCode());
+
+		long hash = Long.MAX_VALUE;
+		for (int p = 0; p < PERMUTED_CARDS.length; p++)
+			hash = Math.min(hash, position.hash(PERMUTED_CARDS[p], PERMUTED_TRUMPF_CODES[p][mode.getCode()]));
+		return hash;
+	}
+
+	/**
+	 * Hashes the states after the current player played each of the cards (the afterstates) like {@link #hash(Game)},
+	 * without playing the cards (see {@link FeatureEncoder#encodeAfterstateFeatures(Game, Card[], java.nio.FloatBuffer)}).
+	 *
+	 * @param game
+	 * @param cards the cards the current player can play
+	 * @return the hash of the afterstate of every card
+	 */
+	public static long[] afterstateHashes(Game game, Card[] cards) {
+		final Position position = new Position(game);
+		final long hash = position.hash(IDENTITY, game.getMode().getCode());
+		final long[] hashes = new long[cards.length];
+		for (int i = 0; i < cards.length; i++)
+			hashes[i] = position.afterstateHash(hash, IDENTITY, cards[i]);
+		return hashes;
+	}
+
+	/**
+	 * Hashes the afterstates like {@link #afterstateHashes(Game, Card[])}, but in trumpf games the hash of every
+	 * afterstate is the smallest hash of all the afterstates obtained by permuting the colors (like {@link #canonicalHash(Game)}).
+	 *
+	 * @param game
+	 * @param cards the cards the current player can play
+	 * @return the canonical hash of the afterstate of every card
+	 */
+	public static long[] canonicalAfterstateHashes(Game game, Card[] cards) {
+		final Mode mode = game.getMode();
+		if (!mode.isTrumpfMode())
+			return afterstateHashes(game, cards);
+
+		final Position position = new Position(game);
+		final long[] hashes = new long[cards.length];
+		Arrays.fill(hashes, Long.MAX_VALUE);
+		for (int p = 0; p < PERMUTED_CARDS.length; p++) {
+			final long hash = position.hash(PERMUTED_CARDS[p], PERMUTED_TRUMPF_CODES[p][mode.getCode()]);
+			for (int i = 0; i < cards.length; i++)
+				hashes[i] = Math.min(hashes[i], position.afterstateHash(hash, PERMUTED_CARDS[p], cards[i]));
+		}
+		return hashes;
+	}
+
+	/**
+	 * The parts of the game which are hashed: the seat of the owner of every card (in the hand or played) and the cards
+	 * history, and the keys of the rest which do not change under a permutation of the colors
+	 */
+	private static class Position {
+		private final int[] owners = new int[NUM_CARDS];
+		private final int[] history;
+		private final long keys;
+		private final int currentPlayer;
+		private final int nextPlayer;
+
+		private Position(Game game) {
+			for (Player player : game.getPlayers())
+				for (long hand = CardMasks.toMask(player.getCards()); hand != 0; hand &= hand - 1)
+					owners[Long.numberOfTrailingZeros(hand)] = player.getSeatId();
+
+			final List<Move> moves = game.getAlreadyPlayedMovesInOrder();
+			history = new int[moves.size()];
+			for (int i = 0; i < history.length; i++) {
+				final Move move = moves.get(i);
+				history[i] = move.getPlayedCard().ordinal();
+				owners[history[i]] = move.getPlayer().getSeatId();
+			}
+
+			final int leader = game.getOrder().getPlayersInInitialOrder().get(0).getSeatId();
+			currentPlayer = game.getCurrentPlayer().getSeatId();
+			nextPlayer = game.getOrder().getNextPlayer().getSeatId();
+			keys = Zobrist.leader(leader) ^ CURRENT_PLAYER_KEYS[currentPlayer] ^ (game.isShifted() ? SHIFTED_KEY : 0L);
+		}
+
+		private long hash(int[] cards, int modeCode) {
+			long hash = keys ^ Zobrist.mode(modeCode);
+			for (int card = 0; card < NUM_CARDS; card++)
+				hash ^= Zobrist.card(cards[card], owners[card]);
+			for (int i = 0; i < history.length; i++)
+				hash ^= HISTORY_KEYS[i * NUM_CARDS + cards[history[i]]];
+			return hash;
+		}
+
+		/**
+		 * Updates the hash of the position to the afterstate of the card: The card is added to the history and the next
+		 * player is to move. The owner of the card stays the same.
+		 */
+		private long afterstateHash(long hash, int[] cards, Card card) {
+			return hash ^ CURRENT_PLAYER_KEYS[currentPlayer] ^ CURRENT_PLAYER_KEYS[nextPlayer] ^ HISTORY_KEYS[history.length * NUM_CARDS + cards[card.ordinal()]];
+		}
+	}
+}
@@ -0,0 +1,332 @@
+package to.joeli.jass.client.strategy.mcts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import to.joeli.jass.client.strategy.exceptions.MCTSException;
+import to.joeli.jass.client.strategy.mcts.src.Board;
+import to.joeli.jass.client.strategy.mcts.src.CallLocation;
+import to.joeli.jass.client.strategy.mcts.src.Move;
+import to.joeli.jass.client.strategy.mcts.src.PlayoutSelectionPolicy;
+import to.joeli.jass.client.strategy.mcts.src.SearchExecutor;
+import to.joeli.jass.client.strategy.mcts.src.TimeSlicedTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Single observer information set MCTS (Cowling, Powley and Whitehouse, 2012).
+ * <p>
+ * Instead of searching one tree per determinization and voting at the end (see {@link to.joeli.jass.client.strategy.mcts.src.MCTS}),
+ * there is only one tree over the information sets of the searching player. Every iteration samples a new determinization
+ * of the hidden cards and only descends into the children whose move is possible in this determinization.
+ * Like this, all the iterations contribute to the statistics of the same tree.
+ */
+public class ISMCTS {
+
+	private final double explorationConstant;
+	private final int numPlayouts;
+	private final PlayoutSelectionPolicy playoutSelectionPolicy;
+	private final int seed;
+
+	private ExecutorService threadPool;
+	private int numThreads = 1;
+	private boolean shutDown;
+
+	public static final Logger logger = LoggerFactory.getLogger(ISMCTS.class);
+
+	public ISMCTS(double explorationConstant, int numPlayouts, PlayoutSelectionPolicy playoutSelectionPolicy, int seed) {
+		this.explorationConstant = explorationConstant;
+		this.numPlayouts = numPlayouts;
+		this.playoutSelectionPolicy = playoutSelectionPolicy;
+		this.seed = seed;
+	}
+
+	/**
+	 * Runs the search until the time runs out
+	 *
+	 * @param startingBoard
+	 * @param endingTime    time when to stop running (in milliseconds)
+	 * @return
+	 * @throws MCTSException
+	 */
+	public Move runForTime(JassBoard startingBoard, long endingTime) throws MCTSException {
+		return search(startingBoard, endingTime, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Runs the search for a certain number of runs (in total over all threads)
+	 *
+	 * @param startingBoard
+	 * @param runs
+	 * @return
+	 * @throws MCTSException
+	 */
+	public Move runForRuns(JassBoard startingBoard, long runs) throws MCTSException {
+		return search(startingBoard, Long.MAX_VALUE, runs);
+	}
+
+	private Move search(JassBoard startingBoard, long endingTime, long runs) throws MCTSException {
+		final Node rootNode = new Node(null, null, -1);
+		final long startTime = System.currentTimeMillis();
+
+		if (threadPool == null)
+			new SearchTask(startingBoard, rootNode, endingTime, runs, seed).runToCompletion();
+		else {
+			final List<Future<Node>> futures = new ArrayList<>(numThreads);
+			try {
+				for (int i = 0; i < numThreads; i++)
+					futures.add(new SearchTask(startingBoard, rootNode, endingTime, runs / numThreads + (i < runs % numThreads ? 1 : 0), seed + i).start());
+				for (Future<Node> future : futures)
+					future.get();
+			} catch (InterruptedException | ExecutionException e) {
+				logger.error("{}", e);
+				throw (new MCTSException("There was a problem in the ISMCTS."));
+			} finally {
+				// The tasks which are not done yet stop before their next time slice
+				for (Future<Node> future : futures)
+					future.cancel(false);
+			}
+		}
+		logger.info("The ISMCTS ran {} iterations in {}ms", rootNode.visits, System.currentTimeMillis() - startTime);
+
+		// Select the most visited child (robust child)
+		Node bestNode = null;
+		for (Node child : rootNode.children) {
+			logger.debug("move: {}, visits: {}, average reward: {}", child.move, child.visits, child.reward / child.visits);
+			if (bestNode == null || child.visits > bestNode.visits)
+				bestNode = child;
+		}
+		if (bestNode == null)
+			throw new MCTSException("There are no moves to choose from. Maybe there was not enough time to explore the tree.");
+		return bestNode.move;
+	}
+
+	/**
+	 * Runs one iteration: Sample a determinization, select and expand in the tree, run a playout and propagate the score back.
+	 *
+	 * @param rootBoard the board of this thread which is in the state of the root node
+	 * @param rootNode
+	 * @param random
+	 */
+	private void iterate(JassBoard rootBoard, Node rootNode, Random random) {
+		final boolean undoMoves = rootBoard.canUndoMoves();
+		final Board board;
+		if (undoMoves) {
+			if (!rootBoard.isCheating()) // if cheating: all the cards are known
+				rootBoard.sampleCardDeterminizationToPlayersInCardPlay();
+			board = rootBoard;
+		} else
+			board = rootBoard.duplicate(true);
+
+		Node node = rootNode;
+		int numMoves = 0;
+		boolean expanded = false;
+		boolean scoreBackedUp = false;
+		synchronized (node) {
+			node.virtualLosses++;
+		}
+		try {
+			while (!expanded && !board.gameOver()) {
+				final List<Move> untriedMoves = new ArrayList<>(board.getMoves(CallLocation.TREE_POLICY));
+				final int player = board.getCurrentPlayer();
+				final Node child;
+				synchronized (node) {
+					// The children possible in this determinization could have been selected on this pass, even if a
+					// new child is expanded instead, so their availability is counted up in any case
+					final List<Node> compatibleChildren = new ArrayList<>(node.children.size());
+					for (Node temp : node.children)
+						if (untriedMoves.remove(temp.move)) { // the move is possible in this determinization
+							temp.availability++;
+							compatibleChildren.add(temp);
+						}
+
+					if (!untriedMoves.isEmpty()) {
+						child = new Node(untriedMoves.get(random.nextInt(untriedMoves.size())), node, player);
+						node.children.add(child);
+						expanded = true;
+					} else
+						child = selectChild(compatibleChildren, random);
+					child.virtualLosses++;
+				}
+				node = child; // from here on, the virtual loss of the child has to be removed again
+				board.makeMove(child.move);
+				numMoves++;
+			}
+
+			final double[] score = playout(board, random, undoMoves);
+			for (Node temp = node; temp != null; temp = temp.parent)
+				temp.update(score);
+			scoreBackedUp = true;
+		} finally {
+			// The board of the thread is used for the next iterations, so it has to be restored even if the search failed
+			if (undoMoves)
+				for (int i = 0; i < numMoves; i++)
+					board.undoMove();
+			// Otherwise the nodes of the path would stay penalised for the rest of the search
+			if (!scoreBackedUp)
+				for (Node temp = node; temp != null; temp = temp.parent)
+					temp.removeVirtualLoss();
+		}
+	}
+
+	/**
+	 * Selects the child with the highest upper confidence bound among the children available in this determinization.
+	 * Has to be called while holding the lock of the parent node.
+	 *
+	 * @param compatibleChildren
+	 * @param random
+	 * @return
+	 */
+	private Node selectChild(List<Node> compatibleChildren, Random random) {
+		double bestValue = Double.NEGATIVE_INFINITY;
+		List<Node> bestNodes = new ArrayList<>();
+		for (Node child : compatibleChildren) {
+			final double value = child.upperConfidenceBound(explorationConstant);
+			if (value > bestValue) {
+				bestNodes.clear();
+				bestNodes.add(child);
+				bestValue = value;
+			} else if (value == bestValue)
+				bestNodes.add(child);
+		}
+		return bestNodes.get(random.nextInt(bestNodes.size()));
+	}
+
+	private double[] playout(Board board, Random random, boolean undoMoves) {
+		// Do not simulate the playout but estimate the score directly with a neural network
+		if (board.hasScoreEstimator())
+			return board.estimateScore();
+
+		double[] scoreAggregate = new double[board.getQuantityOfPlayers()];
+		for (int i = 0; i < numPlayouts; i++) {
+			final Board playoutBoard = undoMoves ? board : board.duplicate(false);
+			int numMoves = 0;
+			try {
+				while (!playoutBoard.gameOver()) {
+					final Move move;
+					if (playoutSelectionPolicy == null) {
+						final List<Move> moves = playoutBoard.getMoves(CallLocation.PLAYOUT);
+						move = moves.get(random.nextInt(moves.size()));
+					} else
+						move = playoutSelectionPolicy.getBestMove(playoutBoard);
+					playoutBoard.makeMove(move);
+					numMoves++;
+				}
+				final double[] score = playoutBoard.getScore();
+				for (int j = 0; j < score.length; j++)
+					scoreAggregate[j] += score[j] / numPlayouts;
+			} finally {
+				if (undoMoves)
+					for (int j = 0; j < numMoves; j++)
+						playoutBoard.undoMove();
+			}
+		}
+		return scoreAggregate;
+	}
+
+	/**
+	 * Switch on multi threading. All the threads of the {@link SearchExecutor} search the same tree.
+	 */
+	public void enableParallelisation() {
+		this.numThreads = SearchExecutor.getNumThreads();
+		threadPool = SearchExecutor.get();
+	}
+
+	/**
+	 * Marks this search as not used anymore. The shared thread pool keeps running for the other searches.
+	 */
+	public void shutDown() {
+		shutDown = true;
+	}
+
+	public boolean isShutDown() {
+		return shutDown;
+	}
+
+	/**
+	 * A node of the information set tree. The statistics are guarded by the lock of the node.
+	 */
+	private static final class Node {
+		private final Move move;
+		private final Node parent;
+		private final int playerJustMoved; // The player who made the move leading to this node
+		private final List<Node> children = new ArrayList<>();
+		private double reward;
+		private int visits;
+		private int availability = 1; // How many times this node could have been selected, including the pass expanding it
+		private int virtualLosses;
+
+		private Node(Move move, Node parent, int playerJustMoved) {
+			this.move = move;
+			this.parent = parent;
+			this.playerJustMoved = playerJustMoved;
+		}
+
+		private double upperConfidenceBound(double c) {
+			final int numVisits = visits + virtualLosses;
+			return reward / numVisits + c * Math.sqrt(Math.log(availability) / numVisits);
+		}
+
+		private synchronized void update(double[] score) {
+			visits++;
+			virtualLosses--;
+			if (playerJustMoved >= 0)
+				reward += normalise(score, playerJustMoved);
+		}
+
+		private synchronized void removeVirtualLoss() {
+			virtualLosses--;
+		}
+
+		/**
+		 * Scales the score of the player to [0, 1], so that the exploration constant does not depend on the points
+		 *
+		 * @param score
+		 * @param player
+		 * @return
+		 */
+		private static double normalise(double[] score, int player) {
+			double total = 0;
+			for (double teamScore : score)
+				total += teamScore;
+			total /= 2; // Every team score is contained once for each of the two players of the team
+			return total == 0 ? 0 : score[player] / total;
+		}
+	}
+
+	/**
+	 * Searches the tree on its own board in time slices until the time or the runs are up.
+	 */
+	private class SearchTask extends TimeSlicedTask<Node> {
+		private final JassBoard board;
+		private final Node rootNode;
+		private final long endingTime;
+		private final long runs;
+		private final Random random;
+		private long runCounter;
+
+		private SearchTask(JassBoard board, Node rootNode, long endingTime, long runs, int seed) {
+			super(threadPool);
+			// Every task needs its own board. The determinizations are sampled in every iteration
+			this.board = (JassBoard) board.duplicate(false);
+			this.rootNode = rootNode;
+			this.endingTime = endingTime;
+			this.runs = runs;
+			this.random = new Random(seed);
+		}
+
+		@Override
+		protected boolean runSlice(long sliceEndingTime) {
+			for (; runCounter < runs && System.currentTimeMillis() < Math.min(endingTime, sliceEndingTime); runCounter++)
+				iterate(board, rootNode, random);
+			return runCounter >= runs || System.currentTimeMillis() >= endingTime;
+		}
+
+		@Override
+		protected Node getResult() {
+			return rootNode;
+		}
+	}
+}
@@ -9,6 +9,7 @@ import to.joeli.jass.client.game.Player;
 import to.joeli.jass.client.game.Result;
 import to.joeli.jass.client.strategy.helpers.CardKnowledgeBase;
 import to.joeli.jass.client.strategy.helpers.CardSelectionHelper;
+import to.joeli.jass.client.strategy.helpers.EndgameSolver;
 import to.joeli.jass.client.strategy.helpers.PerfectInformationGameSolver;
 import to.joeli.jass.client.strategy.helpers.TrumpfSelectionHelper;
 import to.joeli.jass.client.strategy.mcts.src.Board;
@@ -18,6 +19,8 @@ import to.joeli.jass.client.strategy.mcts.src.PlayoutSelectionPolicy;
 import to.joeli.jass.client.strategy.training.Arena;
 import to.joeli.jass.client.strategy.training.networks.CardsEstimator;
 import to.joeli.jass.client.strategy.training.networks.ScoreEstimator;
+import to.joeli.jass.game.GameState;
+import to.joeli.jass.game.TranspositionTable;
 import to.joeli.jass.game.cards.Card;
 import to.joeli.jass.game.mode.Mode;
 
@@ -46,6 +49,13 @@ public class JassBoard implements Board {
 
 	private static final int HARD_PRUNING_LIMIT = 4;
 
+	// INFO: The solvers of all the threads share one transposition table, so every determinization profits from the
+	// endgames already solved in the others (2^18 entries = 4MB)
+	private static final TranspositionTable TRANSPOSITION_TABLE = new TranspositionTable(18);
+	private static final ThreadLocal<EndgameSolver> ENDGAME_SOLVER = ThreadLocal.withInitial(() -> new EndgameSolver(TRANSPOSITION_TABLE));
+	// The state solved last by the thread. It is set to the next position to solve if the game has the same setup
+	private static final ThreadLocal<GameState> ENDGAME_STATE = new ThreadLocal<>();
+
 	public static final Logger logger = LoggerFactory.getLogger(JassBoard.class);
 
 	private JassBoard(Set<Card> availableCards, GameSession gameSession, boolean shifted, Game game, boolean cheating, boolean hardPruningEnabled, ScoreEstimator scoreEstimator, CardsEstimator cardsEstimator) {
@@ -123,6 +133,10 @@ public class JassBoard implements Board {
 			}
 	}
 
+	boolean isCheating() {
+		return cheating;
+	}
+
 	/**
 	 * Checks if the players already have cards.
 	 * If they do, we are in a Trumpf selection tree, where the cards are already distributed.
@@ -149,7 +163,8 @@ public class JassBoard implements Board {
 		if (isChoosingTrumpf())
 			return constructTrumpfSelectionJassBoard(availableCards, gameSession, shifted, cheating, hardPruningEnabled, scoreEstimator, cardsEstimator);
 
-		JassBoard jassBoard = constructCardSelectionJassBoard(availableCards, game, cheating, hardPruningEnabled, scoreEstimator, cardsEstimator);
+		// The available cards are never modified, so they can be shared. The game only copies its mutable parts.
+		JassBoard jassBoard = new JassBoard(availableCards, null, shifted, new Game(game), cheating, hardPruningEnabled, scoreEstimator, cardsEstimator);
 		if (newRandomCards)
 			jassBoard.sampleCardDeterminizationToPlayersInCardPlay();
 		return jassBoard;
@@ -266,6 +281,25 @@ public class JassBoard implements Board {
 		}
 	}
 
+	/**
+	 * Moves can only be taken back in the card selection phase.
+	 *
+	 * @return
+	 */
+	@Override
+	public boolean canUndoMoves() {
+		return !isChoosingTrumpf();
+	}
+
+	@Override
+	public void undoMove() {
+		if (isChoosingTrumpf()) throw new AssertionError();
+
+		final Card card = game.undoMove().getPlayedCard();
+		// After taking back the move, the player who made it is the current player again
+		currentPlayer().addCard(card);
+	}
+
 	@Override
 	public int getQuantityOfPlayers() {
 		return 4;
@@ -346,4 +380,30 @@ public class JassBoard implements Board {
 				scores[player.getSeatId()] = Math.max(Arena.TOTAL_POINTS - score, 0); // Matchbonus disregarded for simplicity
 		return scores;
 	}
+
+	@Override
+	public boolean canBeSolved(int maxMovesPerPlayer) {
+		if (isChoosingTrumpf() || game.gameFinished())
+			return false;
+		// The players after the current player in the trick have the same number of cards, the ones before have one less
+		final int numCards = currentPlayer().getCards().size();
+		return numCards <= maxMovesPerPlayer;
+	}
+
+	@Override
+	public double[] solve() {
+		GameState state = ENDGAME_STATE.get();
+		if (state != null && state.hasSetupOf(game))
+			state.setPosition(game);
+		else {
+			state = GameState.fromPosition(game);
+			ENDGAME_STATE.set(state);
+		}
+		final int[] teamScores = new int[2];
+		ENDGAME_SOLVER.get().solve(state, teamScores);
+		double[] scores = new double[getQuantityOfPlayers()];
+		for (int i = 0; i < GameState.NUMBER_OF_PLAYERS; i++)
+			scores[state.getSeatId(i)] = teamScores[GameState.getTeam(i)];
+		return scores;
+	}
 }
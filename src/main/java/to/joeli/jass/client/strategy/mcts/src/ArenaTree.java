@@ -0,0 +1,232 @@
+package to.joeli.jass.client.strategy.mcts.src;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A search tree which keeps the statistics of all its nodes in flat primitive arrays instead of {@link Node} objects.
+ * A node is identified by its index in the arrays. When a node is expanded, all its children are allocated next to
+ * each other, so the children of a node are the range [firstChild, firstChild + numChildren).
+ * The tried children are at the beginning of the range, the untried ones at the end.
+ * <p>
+ * The player of a node is only known once the node is expanded (the board is in the state of the node then).
+ * Like this, no board has to be duplicated to find out who plays next.
+ * <p>
+ * NOTE: Not thread safe. Every determinization searches its own tree. The score bounds are not supported.
+ */
+final class ArenaTree {
+
+	static final int ROOT = 0;
+	static final int NO_NODE = -1;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final int numPlayers;
+	private int size;
+
+	private Move[] moves;
+	private int[] parents;
+	private int[] players;
+	private int[] firstChildren;
+	private int[] numChildren;
+	private int[] numTriedChildren;
+	private double[] games;
+	private double[] scores; // numPlayers entries per node
+
+	ArenaTree(int numPlayers) {
+		this.numPlayers = numPlayers;
+		moves = new Move[INITIAL_CAPACITY];
+		parents = new int[INITIAL_CAPACITY];
+		players = new int[INITIAL_CAPACITY];
+		firstChildren = new int[INITIAL_CAPACITY];
+		numChildren = new int[INITIAL_CAPACITY];
+		numTriedChildren = new int[INITIAL_CAPACITY];
+		games = new double[INITIAL_CAPACITY];
+		scores = new double[INITIAL_CAPACITY * numPlayers];
+		allocate(NO_NODE, null);
+	}
+
+	/**
+	 * Expands the node by allocating one untried child for every move
+	 *
+	 * @param node
+	 * @param player the player to move in the node
+	 * @param legalMoves
+	 */
+	void expand(int node, int player, List<Move> legalMoves) {
+		ensureCapacity(size + legalMoves.size());
+		players[node] = player;
+		firstChildren[node] = size;
+		numChildren[node] = legalMoves.size();
+		// The children of random nodes are chosen by their weights, so all of them count as tried right away
+		numTriedChildren[node] = player < 0 ? legalMoves.size() : 0;
+		for (Move move : legalMoves)
+			allocate(node, move);
+	}
+
+	private void allocate(int parent, Move move) {
+		moves[size] = move;
+		parents[size] = parent;
+		firstChildren[size] = NO_NODE;
+		size++;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= moves.length)
+			return;
+		final int newCapacity = Math.max(capacity, moves.length * 2);
+		moves = Arrays.copyOf(moves, newCapacity);
+		parents = Arrays.copyOf(parents, newCapacity);
+		players = Arrays.copyOf(players, newCapacity);
+		firstChildren = Arrays.copyOf(firstChildren, newCapacity);
+		numChildren = Arrays.copyOf(numChildren, newCapacity);
+		numTriedChildren = Arrays.copyOf(numTriedChildren, newCapacity);
+		games = Arrays.copyOf(games, newCapacity);
+		scores = Arrays.copyOf(scores, newCapacity * numPlayers);
+	}
+
+	boolean isExpanded(int node) {
+		return firstChildren[node] != NO_NODE;
+	}
+
+	boolean hasUntriedChildren(int node) {
+		return numTriedChildren[node] < numChildren[node];
+	}
+
+	/**
+	 * Picks a random untried child of the node and marks it as tried.
+	 *
+	 * @param node
+	 * @param random
+	 * @return the tried child
+	 */
+	int tryRandomChild(int node, Random random) {
+		final int child = firstChildren[node] + numTriedChildren[node];
+		final int other = child + random.nextInt(numChildren[node] - numTriedChildren[node]);
+		// The untried children do not have any statistics yet, so only the moves need to be swapped
+		final Move move = moves[child];
+		moves[child] = moves[other];
+		moves[other] = move;
+		numTriedChildren[node]++;
+		return child;
+	}
+
+	/**
+	 * Finds the tried child of the node with the given move
+	 *
+	 * @param node
+	 * @param move
+	 * @return the child or NO_NODE if the move has not been tried yet
+	 */
+	int findTriedChild(int node, Move move) {
+		if (!isExpanded(node))
+			return NO_NODE;
+		for (int child = firstChildren[node]; child < firstChildren[node] + numTriedChildren[node]; child++)
+			if (moves[child].equals(move))
+				return child;
+		return NO_NODE;
+	}
+
+	/**
+	 * Copies the subtree of the node into a new tree in which the node is the root. The rest of the tree is dropped.
+	 * The nodes are copied breadth first, so that the children of every node stay next to each other.
+	 *
+	 * @param node
+	 * @return
+	 */
+	ArenaTree subtree(int node) {
+		final ArenaTree tree = new ArenaTree(numPlayers);
+		int[] origins = new int[INITIAL_CAPACITY];
+		origins[ROOT] = node;
+		tree.copyStatistics(ROOT, this, node);
+		for (int newNode = ROOT; newNode < tree.size; newNode++) {
+			final int oldNode = origins[newNode];
+			if (!isExpanded(oldNode))
+				continue;
+			final int firstChild = tree.size;
+			tree.ensureCapacity(firstChild + numChildren[oldNode]);
+			if (origins.length < tree.moves.length)
+				origins = Arrays.copyOf(origins, tree.moves.length);
+			tree.players[newNode] = players[oldNode];
+			tree.firstChildren[newNode] = firstChild;
+			tree.numChildren[newNode] = numChildren[oldNode];
+			tree.numTriedChildren[newNode] = numTriedChildren[oldNode];
+			for (int i = 0; i < numChildren[oldNode]; i++) {
+				final int oldChild = firstChildren[oldNode] + i;
+				origins[tree.size] = oldChild;
+				tree.allocate(newNode, moves[oldChild]);
+				tree.copyStatistics(firstChild + i, this, oldChild);
+			}
+		}
+		return tree;
+	}
+
+	private void copyStatistics(int node, ArenaTree source, int sourceNode) {
+		games[node] = source.games[sourceNode];
+		System.arraycopy(source.scores, sourceNode * numPlayers, scores, node * numPlayers, numPlayers);
+	}
+
+	/**
+	 * Adds the score to the node and all its ancestors
+	 *
+	 * @param node
+	 * @param score
+	 */
+	void backPropagateScore(int node, double[] score) {
+		for (int current = node; current != NO_NODE; current = parents[current]) {
+			games[current]++;
+			final int offset = current * numPlayers;
+			for (int i = 0; i < numPlayers; i++)
+				scores[offset + i] += score[i];
+		}
+	}
+
+	/**
+	 * Return the upper confidence bound of the child from the view of the player to move in its parent
+	 *
+	 * @param child
+	 * @param c     typically sqrt(2). Increase to emphasize exploration. Decrease to increase exploitation
+	 * @return
+	 */
+	double upperConfidenceBound(int child, double c) {
+		final int parent = parents[child];
+		return scores[child * numPlayers + players[parent]] / games[child] + c * Math.sqrt(Math.log(games[parent] + 1) / games[child]);
+	}
+
+	int getFirstChild(int node) {
+		return firstChildren[node];
+	}
+
+	int getNumTriedChildren(int node) {
+		return numTriedChildren[node];
+	}
+
+	int getNumChildren(int node) {
+		return numChildren[node];
+	}
+
+	int getParent(int node) {
+		return parents[node];
+	}
+
+	int getPlayer(int node) {
+		return players[node];
+	}
+
+	Move getMove(int node) {
+		return moves[node];
+	}
+
+	double getGames(int node) {
+		return games[node];
+	}
+
+	double getScore(int node, int player) {
+		return scores[node * numPlayers + player];
+	}
+
+	int size() {
+		return size;
+	}
+}
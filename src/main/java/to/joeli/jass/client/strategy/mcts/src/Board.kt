@@ -80,6 +80,23 @@ interface Board {
      */
     fun makeMove(move: Move)
 
+    /**
+     * Returns true if the moves applied to this board can be taken back with undoMove().
+     * Then the MCTS walks down the tree and back up again on the same board
+     * instead of duplicating the board in every iteration.
+     *
+     * @return
+     */
+    fun canUndoMoves(): Boolean = false
+
+    /**
+     * Takes back the last move applied with makeMove().
+     * This method is only invoked if canUndoMoves() returns true.
+     */
+    fun undoMove() {
+        throw UnsupportedOperationException("This board cannot undo moves.")
+    }
+
     /**
      * Returns true if the game is over.
      *
@@ -101,4 +118,26 @@ interface Board {
      * @return
      */
     fun estimateScore(): DoubleArray
-}
\ No newline at end of file
+
+    /**
+     * Returns true if the board can compute the exact score of the current state
+     * (usually with a perfect information solver), because every player has at most
+     * the given number of moves left
+     *
+     * @param maxMovesPerPlayer
+     * @return
+     */
+    fun canBeSolved(maxMovesPerPlayer: Int): Boolean = false
+
+    /**
+     * Computes the exact score of the current state at the end of the game,
+     * assuming that all the players play perfectly.
+     * This method should only be invoked if canBeSolved() returns true.
+     * Like getBestMove() it uses the information from the determinization.
+     *
+     * @return
+     */
+    fun solve(): DoubleArray {
+        throw UnsupportedOperationException("This board cannot be solved. Only invoke solve() if canBeSolved() returns true.")
+    }
+}
@@ -6,6 +6,7 @@ import to.joeli.jass.client.strategy.exceptions.MCTSException;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 // TODO evaluate which is more important: many runs or many root parallelisations
 
@@ -19,7 +20,13 @@ public class MCTS {
 
 	private Random random = new Random(42);
 	private boolean rootParallelisationEnabled;
+	private boolean treeParallelisationEnabled;
+	private int numThreads;
 	private boolean scoreBoundsUsed;
+	private boolean arenaTreeUsed;
+	private boolean treeReuseEnabled;
+	private double voteConfidence;
+	private int endgameSolverThreshold;
 	private double explorationConstant = Math.sqrt(2.0);
 	private double pessimisticBias;
 	private double optimisticBias;
@@ -29,10 +36,19 @@ public class MCTS {
 	private PlayoutSelectionPolicy playoutSelectionPolicy;
 
 	private ExecutorService threadPool;
-	private ArrayList<FutureTask<Node>> futures;
+	private boolean shutDown;
 
 	private int numRuns;
 	private int numDeterminizations;
+	private List<DeterminizationTree> reusableTrees = new ArrayList<>();
+	private double reusedRootGames; // the summed visits of the roots of the trees continued in the last search
+
+	// INFO: The determinizations still running at the deadline only need to finish their final selection
+	private static final long MAX_COLLECTION_DELAY_MILLIS = 5;
+	// INFO: If no determinization is done at the deadline, the search waits at most this long for the first one
+	private static final long MAX_FIRST_VOTE_DELAY_MILLIS = 1000;
+	// INFO: After a time slice the determinization is queued again, so that all the determinizations get their share of the cores
+	private static final long TIME_SLICE_MILLIS = TimeSlicedTask.TIME_SLICE_MILLIS;
 
 	public static final Logger logger = LoggerFactory.getLogger(MCTS.class);
 
@@ -45,20 +61,101 @@ public class MCTS {
 	 * @return
 	 */
 	public Move runForTime(Board startingBoard, int numDeterminizations, long endingTime) throws MCTSException {
+		return runForTime(startingBoard, numDeterminizations, endingTime, null);
+	}
+
+	/**
+	 * Run a UCT-MCTS simulation for a certain amount of time. The time control can stop the search earlier.
+	 * NOTE: The time control is only used with root parallelisation.
+	 *
+	 * @param startingBoard starting board
+	 * @param endingTime    time when to stop running at the latest (in milliseconds)
+	 * @param timeControl   decides if the search can stop before the ending time or null to always run until the ending time
+	 * @return
+	 */
+	public Move runForTime(Board startingBoard, int numDeterminizations, long endingTime, TimeControl timeControl) throws MCTSException {
+		if (treeParallelisationEnabled) {
+			logger.info("Running {} determinizations on one shared tree", numDeterminizations);
+			return searchSharedTree(startingBoard, numDeterminizations, endingTime, Long.MAX_VALUE);
+		}
 		if (!rootParallelisationEnabled) {
 			logger.info("Only running one determinization");
-			return executeByTime(startingBoard, endingTime).getMove();
+			return getMove(executeByTime(new DeterminizationTree(startingBoard), endingTime));
 		} else {
 			this.numDeterminizations = numDeterminizations;
 			logger.info("Running {} determinizations", numDeterminizations);
-			submitTimeTasks(startingBoard, endingTime);
-			return collectResultsAndGetFinalSelectedMove();
+			final List<DeterminizationTree> trees = createTrees(startingBoard);
+			final BlockingQueue<Future<SelectedMove>> doneFutures = new LinkedBlockingQueue<>();
+			final AtomicLong taskEndingTime = new AtomicLong(endingTime);
+			final List<Future<SelectedMove>> futures = submitTimeTasks(doneFutures, trees, taskEndingTime);
+			long deadline = endingTime + MAX_COLLECTION_DELAY_MILLIS;
+			// The solved determinizations are done right away, so there is nothing to wait for
+			if (timeControl != null && !isSolvable(startingBoard) && canStopEarly(timeControl, trees, endingTime)) {
+				// The tasks notice the new ending time at the end of their current time slice
+				taskEndingTime.set(System.currentTimeMillis());
+				deadline = System.currentTimeMillis() + TIME_SLICE_MILLIS + MAX_COLLECTION_DELAY_MILLIS;
+			}
+			return collectResultsAndGetFinalSelectedMove(doneFutures, futures, trees, deadline);
 		}
 	}
 
-	private void submitTimeTasks(Board startingBoard, long endingTime) {
-		for (int i = 0; i < numDeterminizations; i++)
-			futures.add((FutureTask<Node>) threadPool.submit(new MCTSTaskTime(startingBoard, endingTime)));
+	/**
+	 * Asks the time control after every time slice whether the search can stop, based on the visits of the root moves
+	 * summed over all the determinizations.
+	 *
+	 * @param timeControl
+	 * @param trees
+	 * @param endingTime
+	 * @return true if the search can stop before the ending time
+	 */
+	private boolean canStopEarly(TimeControl timeControl, List<DeterminizationTree> trees, long endingTime) {
+		final long startTime = System.currentTimeMillis();
+		try {
+			while (System.currentTimeMillis() + TIME_SLICE_MILLIS < endingTime) {
+				Thread.sleep(TIME_SLICE_MILLIS);
+				final double[] sortedVisits = sumRootVisits(trees).values().stream().sorted(Comparator.reverseOrder()).mapToDouble(Double::doubleValue).toArray();
+				if (timeControl.canStop(sortedVisits)) {
+					logger.info("Stopping the search after {}ms of {}ms because the decision is clear", System.currentTimeMillis() - startTime, endingTime - startTime);
+					return true;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	/**
+	 * Sums up the visits of the root moves over all the determinizations, as published at the end of their last time slice
+	 *
+	 * @param trees
+	 * @return
+	 */
+	private static Map<Move, Double> sumRootVisits(List<DeterminizationTree> trees) {
+		final Map<Move, Double> visits = new HashMap<>();
+		for (DeterminizationTree tree : trees)
+			tree.rootVisits.forEach((move, games) -> visits.merge(move, games, Double::sum));
+		return visits;
+	}
+
+	private List<Future<SelectedMove>> submitTimeTasks(BlockingQueue<Future<SelectedMove>> doneFutures, List<DeterminizationTree> trees, AtomicLong endingTime) {
+		final List<Future<SelectedMove>> futures = new ArrayList<>(trees.size());
+		for (DeterminizationTree tree : trees)
+			futures.add(submit(new MCTSTaskTime(tree, endingTime), doneFutures));
+		return futures;
+	}
+
+	/**
+	 * Starts the task and adds its result to the queue as soon as it is done
+	 *
+	 * @param task
+	 * @param doneFutures
+	 * @return the result of the task
+	 */
+	private static Future<SelectedMove> submit(TimeSlicedTask<SelectedMove> task, BlockingQueue<Future<SelectedMove>> doneFutures) {
+		final CompletableFuture<SelectedMove> future = task.start();
+		future.whenComplete((selectedMove, throwable) -> doneFutures.add(future));
+		return future;
 	}
 
 
@@ -70,84 +167,249 @@ public class MCTS {
 	 * @return
 	 */
 	public Move runForRuns(Board startingBoard, int numDeterminizations, long runs) throws MCTSException {
+		if (treeParallelisationEnabled) {
+			logger.info("Running {} determinizations on one shared tree", numDeterminizations);
+			return searchSharedTree(startingBoard, numDeterminizations, Long.MAX_VALUE, runs);
+		}
 		if (!rootParallelisationEnabled) {
 			logger.info("Only running one determinization :(");
-			return executeByRuns(startingBoard, runs).getMove();
+			return getMove(executeByRuns(new DeterminizationTree(startingBoard), runs));
 		} else {
 			this.numDeterminizations = numDeterminizations;
 			logger.info("Running {} determinizations :)", numDeterminizations);
-			submitRunsTasks(startingBoard, runs);
-			return collectResultsAndGetFinalSelectedMove();
+			final List<DeterminizationTree> trees = createTrees(startingBoard);
+			final BlockingQueue<Future<SelectedMove>> doneFutures = new LinkedBlockingQueue<>();
+			final List<Future<SelectedMove>> futures = submitRunsTasks(doneFutures, trees, runs);
+			return collectResultsAndGetFinalSelectedMove(doneFutures, futures, trees, Long.MAX_VALUE);
 		}
 	}
 
 
-	private void submitRunsTasks(Board startingBoard, long runs) {
-		for (int i = 0; i < numDeterminizations; i++)
-			futures.add((FutureTask<Node>) threadPool.submit(new MCTSTaskRuns(startingBoard, runs)));
+	private List<Future<SelectedMove>> submitRunsTasks(BlockingQueue<Future<SelectedMove>> doneFutures, List<DeterminizationTree> trees, long runs) {
+		final List<Future<SelectedMove>> futures = new ArrayList<>(trees.size());
+		for (DeterminizationTree tree : trees)
+			futures.add(submit(new MCTSTaskRuns(tree, runs), doneFutures));
+		return futures;
 	}
 
+	/**
+	 * Creates the trees for the determinizations. If tree reuse is enabled, the trees of the last search which are
+	 * still consistent with the moves observed since then are continued.
+	 *
+	 * @param startingBoard
+	 * @return
+	 */
+	private List<DeterminizationTree> createTrees(Board startingBoard) {
+		final List<DeterminizationTree> trees = new ArrayList<>(numDeterminizations);
+		synchronized (this) {
+			reusedRootGames = 0;
+			for (DeterminizationTree tree : reusableTrees)
+				if (trees.size() < numDeterminizations) {
+					trees.add(tree);
+					reusedRootGames += tree.getRootGames();
+				}
+			reusableTrees = new ArrayList<>();
+		}
+		if (!trees.isEmpty())
+			logger.info("Reusing the trees of {} determinizations with {} runs", trees.size(), reusedRootGames);
+
+		// Here we create the new determinizations by distributing new random cards for the hidden cards of the other players
+		// Starting from here we operate in a perfect information game setting!
+		while (trees.size() < numDeterminizations)
+			trees.add(new DeterminizationTree(startingBoard.duplicate(true)));
+		return trees;
+	}
+
+	/**
+	 * Continues the trees of the last search with the moves made in the real game since then (tree reuse):
+	 * The subtrees of the moves become the new roots. The determinizations in which one of the moves is not possible
+	 * are not consistent with the real game anymore and are discarded.
+	 *
+	 * @param moves the moves made since the last search in the order they were made
+	 */
+	public synchronized void observeMoves(List<Move> moves) {
+		final int numTrees = reusableTrees.size();
+		reusableTrees.removeIf(tree -> !tree.advance(moves));
+		logger.debug("{} of {} determinizations are consistent with the moves {}", reusableTrees.size(), numTrees, moves);
+	}
+
+	/**
+	 * Continues the search in the trees of the last search while the other players are choosing their moves (pondering).
+	 * The trees have to be advanced to the current state of the game with {@link #observeMoves(List)} first.
+	 * No new determinizations are sampled, because they can only be sampled from the view of the player to move.
+	 * <p>
+	 * The trees are searched alternately in time slices on the calling thread only. Like this, pondering occupies at most
+	 * one core and does not take the shared thread pool away from the searches which have to finish in time.
+	 * Returns when the time runs out or the calling thread is interrupted. The next search continues the trees.
+	 *
+	 * @param endingTime time when to stop pondering (in milliseconds)
+	 */
+	public void ponder(long endingTime) {
+		final List<DeterminizationTree> trees;
+		synchronized (this) {
+			trees = reusableTrees;
+			reusableTrees = new ArrayList<>();
+		}
+		// The trees which can be solved exactly do not need to be searched
+		if (trees.isEmpty() || trees.get(0).isSolvable()) {
+			synchronized (this) {
+				reusableTrees.addAll(trees);
+			}
+			return;
+		}
+
+		final long startTime = System.currentTimeMillis();
+		long runCounter = 0;
+		try {
+			for (int i = 0; System.currentTimeMillis() < endingTime && !Thread.currentThread().isInterrupted(); i = (i + 1) % trees.size()) {
+				final DeterminizationTree tree = trees.get(i);
+				final long sliceEndingTime = Math.min(endingTime, System.currentTimeMillis() + TIME_SLICE_MILLIS);
+				while (System.currentTimeMillis() < sliceEndingTime && !tree.isProven() && !Thread.currentThread().isInterrupted()) {
+					tree.search();
+					runCounter++;
+				}
+			}
+		} catch (RuntimeException e) {
+			// The boards of the trees might not be in the state of their roots anymore
+			logger.error("{}", e);
+			logger.error("Something went wrong while pondering. Discarding the trees.");
+			return;
+		}
+		synchronized (this) {
+			reusableTrees.addAll(trees);
+		}
+		logger.info("Pondered {} runs on {} determinizations in {}ms", runCounter, trees.size(), System.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * Counts the runs in the trees kept for the next search. While pondering, the trees are not counted.
+	 *
+	 * @return the summed visits of the roots of the trees
+	 */
+	public synchronized double getReusableRootGames() {
+		double games = 0;
+		for (DeterminizationTree tree : reusableTrees)
+			games += tree.getRootGames();
+		return games;
+	}
+
+	/**
+	 * Counts the runs the last search started with in the trees it continued.
+	 *
+	 * @return the summed visits of the roots of the continued trees, 0 if no tree was continued
+	 */
+	public synchronized double getReusedRootGames() {
+		return reusedRootGames;
+	}
+
+	/**
+	 * Discards the trees of the last search, for example when a new game starts.
+	 */
+	public synchronized void discardTrees() {
+		reusableTrees = new ArrayList<>();
+	}
+
+
+	private static Move getMove(SelectedMove selectedMove) throws MCTSException {
+		if (selectedMove == null)
+			throw new MCTSException("There are no moves to choose from. Maybe there was not enough time to explore the tree.");
+		return selectedMove.move;
+	}
 
 	/**
 	 * Runs the MCTS for one determinization for the specified number of runs
 	 *
-	 * @param startingBoard
+	 * @param tree
 	 * @param runs
 	 * @return the final move selected
 	 */
-	private Node executeByRuns(Board startingBoard, long runs) {
-		Node rootNode = new Node(startingBoard);
+	private SelectedMove executeByRuns(DeterminizationTree tree, long runs) {
+		if (tree.isSolvable())
+			return tree.solve();
 		long startTime = System.currentTimeMillis();
-		for (int i = 0; i < runs; i++)
-			select(startingBoard, rootNode);
+		for (int i = 0; i < runs && !tree.isProven() && !Thread.currentThread().isInterrupted(); i++)
+			tree.search();
 		logger.debug("Ran {} runs in {}ms.", runs, System.currentTimeMillis() - startTime);
-		return finalSelection(rootNode);
+		return tree.finalSelection();
 	}
 
 	/**
 	 * Runs the MCTS for one determinization until the time runs out
 	 *
-	 * @param startingBoard
+	 * @param tree
 	 * @param endingTime
-	 * @return the final move selected
+	 * @return the final move selected or null if there was no run completed
 	 */
-	private Node executeByTime(Board startingBoard, long endingTime) {
-		Node rootNode = new Node(startingBoard);
+	private SelectedMove executeByTime(DeterminizationTree tree, long endingTime) {
+		if (tree.isSolvable())
+			return tree.solve();
 		long startTime = System.currentTimeMillis();
+		long runCounter = searchUntil(tree, endingTime);
+		logger.debug("Ran {} runs in {}ms.", runCounter, System.currentTimeMillis() - startTime);
+		return tree.finalSelection();
+	}
+
+	/**
+	 * Continues the search in the tree of one determinization until the given time
+	 *
+	 * @param tree
+	 * @param endingTime
+	 * @return the number of runs
+	 */
+	private long searchUntil(DeterminizationTree tree, long endingTime) {
 		long runCounter = 0;
-		while ((System.currentTimeMillis() < endingTime)) {
+		while (System.currentTimeMillis() < endingTime && !tree.isProven() && !Thread.currentThread().isInterrupted()) {
 			// Start new path from root node
-			select(startingBoard, rootNode);
+			tree.search();
 			runCounter++;
 		}
-		if (runCounter == 0) {
-			rootNode.invalidate();
-		}
 		synchronized (this) {
 			numRuns += runCounter;
 		}
-		logger.debug("Ran {} runs in {}ms.", runCounter, System.currentTimeMillis() - startTime);
-		return finalSelection(rootNode);
+		return runCounter;
 	}
 
-	private Move collectResultsAndGetFinalSelectedMove() throws MCTSException {
+	/**
+	 * Merges the final selected nodes of the determinizations into the vote as soon as they are done.
+	 * The determinizations which are not done at the deadline are cancelled instead of awaited.
+	 * If none of them is done shortly after the deadline, the most visited move of the partial trees is chosen instead.
+	 *
+	 * @param doneFutures       the queue the futures are added to when they are done
+	 * @param futures
+	 * @param trees             the trees searched by the futures (in the same order)
+	 * @param deadline          time when to stop waiting (in milliseconds) or Long.MAX_VALUE to wait for all the determinizations
+	 * @return
+	 * @throws MCTSException
+	 */
+	private Move collectResultsAndGetFinalSelectedMove(BlockingQueue<Future<SelectedMove>> doneFutures, List<Future<SelectedMove>> futures, List<DeterminizationTree> trees, long deadline) throws MCTSException {
+		final Vote vote = new Vote();
 		try {
-			while (!checkDone(futures)) {
-				// logger.debug("Futures not ready yet. Simulation is still running. Waiting now...");
-				Thread.sleep(1);
-			}
-
-			for (FutureTask<Node> future : futures) {
-				if (!future.isDone()) throw new AssertionError();
-			}
-
-			ArrayList<Node> finalNodes = new ArrayList<>();
-
-			// Collect all final selected nodes
-			for (FutureTask<Node> future : futures) {
-				final Node node = future.get();
-				if (node != null)
-					finalNodes.add(node);
+			for (int i = 0; i < futures.size(); i++) {
+				Future<SelectedMove> future;
+				if (deadline == Long.MAX_VALUE)
+					future = doneFutures.take();
+				else
+					future = doneFutures.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+				if (future == null && vote.isEmpty()) {
+					// A single run can take longer than the delay (e.g. when the endgame is solved), but at least one vote is needed
+					logger.info("No determinization was done in time. Waiting for the first one.");
+					future = doneFutures.poll(deadline + MAX_FIRST_VOTE_DELAY_MILLIS - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+					if (future == null) {
+						logger.warn("No determinization was done {}ms after the deadline. Choosing the most visited move so far.", MAX_FIRST_VOTE_DELAY_MILLIS);
+						return getMostVisitedMove(trees);
+					}
+				} else if (future == null) {
+					logger.info("Cancelling {} of {} determinizations which were not done in time", futures.size() - i, futures.size());
+					break;
+				}
+				final SelectedMove selectedMove = future.get();
+				if (selectedMove != null)
+					vote.add(selectedMove);
+				final int numRemaining = futures.size() - i - 1;
+				if (voteConfidence > 0 && numRemaining > 0 && vote.isDecided(numRemaining, voteConfidence)) {
+					logger.info("Cancelling {} of {} determinizations because the vote is already decided", numRemaining, futures.size());
+					break;
+				}
 			}
 
 			logger.info("The MCTS searched {} nodes per determinization", numRuns / numDeterminizations);
@@ -155,65 +417,285 @@ public class MCTS {
 				numRuns = 0;
 			}
 
-			return vote(finalNodes);
+			final Move move = vote.getSelectedMove();
+			// The trees of the determinizations which are still running might change, so only the finished ones are kept
+			if (treeReuseEnabled)
+				synchronized (this) {
+					for (int i = 0; i < futures.size(); i++)
+						if (futures.get(i).isDone() && !futures.get(i).isCancelled())
+							reusableTrees.add(trees.get(i));
+				}
+			return move;
 
 		} catch (InterruptedException | ExecutionException e) {
 			logger.error("{}", e);
 			throw (new MCTSException("There was a problem in the MCTS."));
 		} finally {
-			futures.clear();
+			// The tasks which are not done yet stop before their next time slice
+			for (Future<SelectedMove> future : futures)
+				future.cancel(false);
 		}
 	}
 
 	/**
-	 * This implements a majority vote from the different determinizations (mcts trees parallelised at the root)
+	 * Selects the move with the most visits summed over the determinizations which are still being searched
 	 *
-	 * @param nodes
+	 * @param trees
+	 * @return
+	 * @throws MCTSException if no determinization has published any visits yet
+	 */
+	private static Move getMostVisitedMove(List<DeterminizationTree> trees) throws MCTSException {
+		return sumRootVisits(trees).entrySet().stream()
+				.max(Map.Entry.comparingByValue())
+				.orElseThrow(() -> new MCTSException("No determinization was searched in time."))
+				.getKey();
+	}
+
+	/**
+	 * Searches one tree shared by all the threads (tree parallelisation). The determinizations are distributed among the
+	 * threads and every thread alternates between its determinizations, so that all of them contribute to the same tree.
+	 *
+	 * @param startingBoard
+	 * @param numDeterminizations
+	 * @param endingTime          time when to stop running (in milliseconds)
+	 * @param runs                the number of runs per determinization
 	 * @return
 	 * @throws MCTSException
 	 */
-	private Move vote(ArrayList<Node> nodes) throws MCTSException {
-		if (nodes.isEmpty())
-			throw new MCTSException("There are no moves to vote from. Maybe there was not enough time to explore the tree.");
+	private Move searchSharedTree(Board startingBoard, int numDeterminizations, long endingTime, long runs) throws MCTSException {
+		final Node rootNode = new Node(startingBoard);
+		final int numWorkers = Math.max(1, Math.min(numDeterminizations, numThreads));
+		final List<List<Board>> boards = new ArrayList<>(numWorkers);
+		for (int i = 0; i < numWorkers; i++)
+			boards.add(new ArrayList<>());
+		// Here we create the determinizations. Starting from here we operate in a perfect information game setting!
+		for (int i = 0; i < numDeterminizations; i++)
+			boards.get(i % numWorkers).add(startingBoard.duplicate(true));
 
-		HashMap<Move, Integer> numSelections = new HashMap<>();
-		HashMap<Move, Double> summedFinalScores = new HashMap<>();
+		long startTime = System.currentTimeMillis();
+		final List<Future<Node>> futures = new ArrayList<>(numWorkers);
+		try {
+			for (List<Board> workerBoards : boards)
+				futures.add(new SharedTreeTask(rootNode, workerBoards, endingTime, runs).start());
+			for (Future<Node> future : futures)
+				future.get();
+		} catch (InterruptedException | ExecutionException e) {
+			logger.error("{}", e);
+			throw (new MCTSException("There was a problem in the MCTS."));
+		} finally {
+			// The tasks which are not done yet stop before their next time slice
+			for (Future<Node> future : futures)
+				future.cancel(false);
+		}
+		logger.info("The MCTS searched {} nodes in the shared tree in {}ms", rootNode.getGames(), System.currentTimeMillis() - startTime);
 
-		for (Node node : nodes) {
-			// Some determinizations are more reliable (more nodes searched)
-			// but we choose not to weigh by the number of nodes searched because the difference is small for high strengthlevel
-			logger.info("move: {}, number of searched nodes (= played games): {}, score: {}", node.getMove(), node.getParent().getGames(), node.getScoreForCurrentPlayer());
-			// TODO how many games do we need to be sufficiently sure of correctness of simulation
+		if (rootNode.getGames() == 0)
+			rootNode.invalidate();
+		final Node node = finalSelection(rootNode);
+		if (node == null)
+			throw new MCTSException("There are no moves to choose from. Maybe there was not enough time to explore the tree.");
+		return node.getMove();
+	}
 
-			Move move = node.getMove();
+	/**
+	 * This is the select stage for tree parallelisation. In contrast to {@link #select(Board, Node)} the nodes are
+	 * expanded one child after the other, because the possible moves differ between the determinizations:
+	 * Only the children whose move is possible on the given board are considered.
+	 * Every node on the way down gets a virtual loss until the score is propagated back.
+	 *
+	 * @param currentBoard
+	 * @param rootNode
+	 */
+	private void selectInSharedTree(Board currentBoard, Node rootNode) {
+		final boolean undoMoves = currentBoard.canUndoMoves();
+		final Board board = undoMoves ? currentBoard : currentBoard.duplicate(false);
 
-			int numSelectionsForMove = numSelections.getOrDefault(move, 0) + 1;
-			numSelections.put(move, numSelectionsForMove);
+		Node node = rootNode;
+		node.addVirtualLoss();
+		try {
+			while (!board.gameOver()) {
+				node = selectOrExpandChild(node, board);
+				if (node.getGames() == 0) // we just expanded this node
+					break;
+			}
 
-			double summedFinalScoresForMove = summedFinalScores.getOrDefault(move, 0d) + node.getScoreForCurrentPlayer();
-			summedFinalScores.put(move, summedFinalScoresForMove);
+			final double[] score = playout(board, undoMoves);
+			node.backPropagateScore(score);
+		} finally {
+			// The board is shared with the next iterations, so it has to be restored even if the search failed
+			node.removeVirtualLoss();
+			if (undoMoves)
+				for (Node temp = node; temp != rootNode; temp = temp.getParent())
+					board.undoMove();
 		}
+	}
 
-		LinkedHashMap<Move, Double> summedFinalScoresSorted = new LinkedHashMap<>();
-		summedFinalScores.entrySet().stream()
-				.sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-				.forEachOrdered(x -> summedFinalScoresSorted.put(x.getKey(), x.getValue()));
+	/**
+	 * Selects the best child of the node which is possible on the board and makes its move on the board.
+	 * If there are possible moves which have not been tried yet, one of them is added as a new child instead.
+	 * Only the choice of the move holds the lock of the node, the move and the new child are made outside of it.
+	 *
+	 * @param node
+	 * @param board
+	 * @return the selected child with a virtual loss added
+	 */
+	private Node selectOrExpandChild(Node node, Board board) {
+		final List<Move> untriedMoves = new ArrayList<>(board.getMoves(CallLocation.TREE_POLICY));
+		// The threads searching the shared tree would contend for the seeded random number generator
+		final Random random = ThreadLocalRandom.current();
+		final Move move;
+		Node selectedNode = null;
+		synchronized (node) {
+			double bestValue = Double.NEGATIVE_INFINITY;
+			ArrayList<Node> bestNodes = new ArrayList<>();
+			for (Node child : node.getChildren())
+				if (untriedMoves.remove(child.getMove())) { // the child is possible in this determinization
+					final double value;
+					synchronized (child) { // the scores are propagated back under the lock of the child
+						value = selectionValue(node, child, board);
+					}
+					bestValue = getBestValue(bestValue, value, bestNodes, child);
+				}
 
+			if (!untriedMoves.isEmpty())
+				move = untriedMoves.get(random.nextInt(untriedMoves.size()));
+			else {
+				selectedNode = bestNodes.get(random.nextInt(bestNodes.size()));
+				selectedNode.addVirtualLoss();
+				move = selectedNode.getMove();
+			}
+		}
 
-		// Print statistics so we can get insights into the decision process of the algorithm
-		summedFinalScoresSorted.forEach((move, summedFinalScore) -> {
-			final int numTimesSelected = numSelections.get(move);
-			final long averageFinalScore = Math.round(summedFinalScore / numTimesSelected);
-			logger.info("{} selected {} times with average final score {} -> summed final score: {}",
-					String.format("%1$-3s", move), String.format("%1$2d", numTimesSelected), String.format("%1$3d", averageFinalScore), summedFinalScore);
-		});
+		board.makeMove(move);
+		if (selectedNode != null)
+			return selectedNode;
+
+		final Node newNode = new Node(board, move, node);
+		synchronized (node) {
+			// Another thread may have added a child with the same move in the meantime
+			for (Node child : node.getChildren())
+				if (child.getMove().equals(move))
+					selectedNode = child;
+			if (selectedNode == null) {
+				selectedNode = newNode;
+				node.getChildren().add(selectedNode);
+			}
+			selectedNode.addVirtualLoss();
+		}
+		return selectedNode;
+	}
 
+	/**
+	 * This is the select stage on an {@link ArenaTree}. It does the same as {@link #select(Board, Node)} without the
+	 * score bounds: Traverse down the tree, try one untried child, run a playout from there and backpropagate the score.
+	 * Without the score bounds, the optimistic and pessimistic bias apply to the average score (see {@link #boundValue}).
+	 *
+	 * @param currentBoard
+	 * @param tree
+	 */
+	private void selectInArena(Board currentBoard, ArenaTree tree) {
+		final boolean undoMoves = currentBoard.canUndoMoves();
+		final Board board = undoMoves ? currentBoard : currentBoard.duplicate(false);
 
-		return summedFinalScoresSorted.entrySet().stream() // move with highest possible reward but still high confidence is chosen -> more risk taking
-				//return numSelections.entrySet().stream() // move which has been selected the most over all the determinizations is chosen -> more risk averse
-				.findFirst() // NOTE: map needs to be sorted, otherwise use .max(Map.Entry.comparingByValue())
-				.orElseThrow(() -> new IllegalStateException("There must be at least one move!"))
-				.getKey();
+		int node = ArenaTree.ROOT;
+		int numMoves = 0;
+		try {
+			while (!board.gameOver()) {
+				if (!tree.isExpanded(node))
+					tree.expand(node, board.getCurrentPlayer(), board.getMoves(CallLocation.TREE_POLICY));
+
+				final boolean expanding = tree.hasUntriedChildren(node);
+				final int child;
+				if (expanding)
+					child = tree.tryRandomChild(node, random);
+				else if (tree.getPlayer(node) < 0) // this is a random node
+					child = tree.getFirstChild(node) + getRandomChildNodeIndex(board);
+				else
+					child = bestChildInArena(tree, node, board);
+
+				board.makeMove(tree.getMove(child));
+				numMoves++;
+				node = child;
+				if (expanding)
+					break;
+			}
+
+			final double[] score = playout(board, undoMoves);
+			tree.backPropagateScore(node, score);
+		} finally {
+			if (undoMoves)
+				for (int i = 0; i < numMoves; i++)
+					board.undoMove();
+		}
+	}
+
+	/**
+	 * Selects the tried child with the highest upper confidence bound. Ties are broken randomly.
+	 *
+	 * @param tree
+	 * @param node
+	 * @param board
+	 * @return
+	 */
+	private int bestChildInArena(ArenaTree tree, int node, Board board) {
+		final double heuristicValue = heuristicFunction == null ? 0 : heuristicFunction.heuristicFunction(board);
+		final int player = tree.getPlayer(node);
+		final int firstChild = tree.getFirstChild(node);
+		double bestValue = Double.NEGATIVE_INFINITY;
+		int bestChild = ArenaTree.NO_NODE;
+		int numBestChildren = 0;
+		for (int child = firstChild; child < firstChild + tree.getNumTriedChildren(node); child++) {
+			final double value = tree.upperConfidenceBound(child, explorationConstant) + biasInArena(tree, child, player) + heuristicValue;
+			if (value > bestValue) {
+				bestValue = value;
+				bestChild = child;
+				numBestChildren = 1;
+			} else if (value == bestValue && random.nextInt(++numBestChildren) == 0)
+				bestChild = child;
+		}
+		return bestChild;
+	}
+
+	/**
+	 * Adds the optimistic and pessimistic bias to the value of a child in an {@link ArenaTree}. Without the score bounds
+	 * both bounds are unknown, so like in {@link #boundValue} the bias applies to the average score.
+	 *
+	 * @param tree
+	 * @param child
+	 * @param player the player choosing between the children
+	 * @return
+	 */
+	private double biasInArena(ArenaTree tree, int child, int player) {
+		if (tree.getGames(child) == 0)
+			return 0;
+		return (optimisticBias + pessimisticBias) * tree.getScore(child, player) / tree.getGames(child);
+	}
+
+	/**
+	 * This is the final step of the algorithm on an {@link ArenaTree}, to pick the best move to actually make.
+	 *
+	 * @param tree
+	 * @return the final move selected or null if no move of the root was tried
+	 */
+	private SelectedMove finalSelectionInArena(ArenaTree tree) {
+		final int root = ArenaTree.ROOT;
+		if (!tree.isExpanded(root) || tree.getNumTriedChildren(root) == 0)
+			return null;
+		final int player = tree.getPlayer(root);
+		final int firstChild = tree.getFirstChild(root);
+		double bestValue = Double.NEGATIVE_INFINITY;
+		int bestChild = ArenaTree.NO_NODE;
+		int numBestChildren = 0;
+		for (int child = firstChild; child < firstChild + tree.getNumTriedChildren(root); child++) {
+			final double value = finalSelectionPolicy == FinalSelectionPolicy.MAX_CHILD ? tree.getScore(child, player) + biasInArena(tree, child, player) : tree.getGames(child);
+			if (value > bestValue) {
+				bestValue = value;
+				bestChild = child;
+				numBestChildren = 1;
+			} else if (value == bestValue && random.nextInt(++numBestChildren) == 0)
+				bestChild = child;
+		}
+		return new SelectedMove(tree.getMove(bestChild), tree.getGames(root), tree.getScore(bestChild, player) / tree.getGames(bestChild));
 	}
 
 	/**
@@ -221,83 +703,127 @@ public class MCTS {
 	 * Traverse down to the bottom of the tree using the selection strategy
 	 * until you find an unexpanded child node. Expand it. Run a random playout.
 	 * Backpropagate results of the playout.
+	 * <p>
+	 * If the board supports taking back moves, all the moves are made on the given board and undone afterwards.
+	 * Otherwise the board is duplicated.
 	 *
 	 * @param currentNode  Node from which to start selection
 	 * @param currentBoard Board state to work from.
 	 */
 	private void select(Board currentBoard, Node currentNode) {
-		BoardNodePair boardNodePair = treePolicy(currentBoard, currentNode);
+		final boolean undoMoves = currentBoard.canUndoMoves();
+		BoardNodePair boardNodePair = treePolicy(currentBoard, currentNode, undoMoves);
 
-		// Run a random playout until the end of the game.
-		double[] score = playout(boardNodePair.getBoard());
-
-		// Backpropagate results of playout.
 		Node node = boardNodePair.getNode();
-		node.backPropagateScore(score);
-		if (scoreBoundsUsed) {
-			node.backPropagateBounds(score);
+		Board board = boardNodePair.getBoard();
+		try {
+			double[] score;
+			if (scoreBoundsUsed && node.isProven()) {
+				// All the children are proven or pruned, so the exact score is known already
+				score = node.getPess().clone();
+			} else {
+				// The score is exact if the game is over or the endgame solver computes it
+				final boolean exact = board.gameOver() || isSolvable(board);
+
+				// Run a random playout until the end of the game.
+				score = playout(board, undoMoves);
+				if (scoreBoundsUsed && exact)
+					node.backPropagateBounds(score);
+			}
+
+			// Backpropagate results of playout.
+			node.backPropagateScore(score);
+		} finally {
+			// Walk back up to the starting node: Every step down the tree made exactly one move
+			if (undoMoves)
+				undoMoves(currentBoard, node, currentNode);
 		}
 	}
 
+	/**
+	 * Takes back the moves of the path from the ancestor down to the node
+	 *
+	 * @param board
+	 * @param node
+	 * @param ancestor
+	 */
+	private static void undoMoves(Board board, Node node, Node ancestor) {
+		for (Node temp = node; temp != ancestor; temp = temp.getParent())
+			board.undoMove();
+	}
+
 	/**
 	 * Begin tree policy. Traverse down the tree and expand.
 	 * Return the new node or the deepest node it could reach.
 	 * Additionally, return a board matching the returned node.
 	 */
-	private BoardNodePair treePolicy(Board oldBoard, Node node) {
-		Board board = oldBoard.duplicate(false);
-
-		while (!board.gameOver()) {
-			if (!node.isRandomNode()) { // this is a regular node
-				if (node.getUnvisitedChildren() == null) {
-					node.expandNode(board);
-				}
+	private BoardNodePair treePolicy(Board oldBoard, Node node, boolean undoMoves) {
+		Board board = undoMoves ? oldBoard : oldBoard.duplicate(false);
 
-				if (!node.getUnvisitedChildren().isEmpty()) {
-					Node temp = node.getUnvisitedChildren().remove(random.nextInt(node.getUnvisitedChildren().size()));
-					node.getChildren().add(temp);
-					board.makeMove(temp.getMove());
-					return new BoardNodePair(board, temp);
-				} else {
-					List<Node> bestNodes = findChildren(node, board, optimisticBias, pessimisticBias, explorationConstant);
-
-					if (bestNodes.isEmpty()) {
-						// We have failed to find a single child to visit
-						// from a non-terminal node, so we conclude that
-						// all children must have been pruned, and that
-						// therefore there is no reason to continue.
-						return new BoardNodePair(board, node);
+		int numMoves = 0;
+		try {
+			while (!board.gameOver()) {
+				if (!node.isRandomNode()) { // this is a regular node
+					if (!node.isExpanded()) {
+						node.expandNode(board);
 					}
 
-					Node finalNode = bestNodes.get(random.nextInt(bestNodes.size()));
-					node = finalNode;
-					board.makeMove(finalNode.getMove());
-				}
-			} else { // this is a random node
+					if (!node.getUntriedMoves().isEmpty()) {
+						Move move = node.getUntriedMoves().remove(random.nextInt(node.getUntriedMoves().size()));
+						board.makeMove(move);
+						numMoves++;
+						Node temp = new Node(board, move, node);
+						node.getChildren().add(temp);
+						return new BoardNodePair(board, temp);
+					} else {
+						List<Node> bestNodes = findChildren(node, board, optimisticBias, pessimisticBias, explorationConstant);
+
+						if (bestNodes.isEmpty()) {
+							// We have failed to find a single child to visit
+							// from a non-terminal node, so we conclude that
+							// all children must have been pruned, and that
+							// therefore there is no reason to continue.
+							return new BoardNodePair(board, node);
+						}
+
+						Node finalNode = bestNodes.get(random.nextInt(bestNodes.size()));
+						node = finalNode;
+						board.makeMove(finalNode.getMove());
+						numMoves++;
+					}
+				} else { // this is a random node
 
-				// Random nodes are special. We must guarantee that
-				// every random node has a fully populated list of
-				// child nodes and that the list of unvisited children
-				// is empty. We start by checking if we have been to
-				// this node before. If we haven't, we must initialise
-				// all of this node's children properly.
+					// Random nodes are special. The list of untried moves
+					// of a random node is always empty, the children are
+					// created as soon as their move is chosen.
 
-				if (node.getUnvisitedChildren() == null) {
-					node.expandNode(board);
+					if (!node.isExpanded()) {
+						node.setUntriedMoves(new ArrayList<>());
+					}
 
-					for (Node n : node.getUnvisitedChildren()) {
-						node.getChildren().add(n);
+					// The tree policy for random nodes is different. We
+					// ignore selection heuristics and pick one move at
+					// random based on the weight vector.
+					Move move = board.getMoves(CallLocation.TREE_POLICY).get(getRandomChildNodeIndex(board));
+					Node selectedNode = null;
+					for (Node child : node.getChildren())
+						if (child.getMove().equals(move))
+							selectedNode = child;
+					board.makeMove(move);
+					numMoves++;
+					if (selectedNode == null) {
+						selectedNode = new Node(board, move, node);
+						node.getChildren().add(selectedNode);
 					}
-					node.getUnvisitedChildren().clear();
+					node = selectedNode;
 				}
-
-				// The tree policy for random nodes is different. We
-				// ignore selection heuristics and pick one node at
-				// random based on the weight vector.
-				Node selectedNode = node.getChildren().get(getRandomChildNodeIndex(board));
-				node = selectedNode;
-				board.makeMove(selectedNode.getMove());
 			}
+		} catch (RuntimeException e) {
+			// Restore the board before the caller knows where the tree policy stopped
+			if (undoMoves)
+				for (int i = 0; i < numMoves; i++)
+					board.undoMove();
+			throw e;
 		}
 
 		return new BoardNodePair(board, node);
@@ -310,7 +836,11 @@ public class MCTS {
 	 * @param board
 	 * @return
 	 */
-	private double[] playout(Board board) {
+	private double[] playout(Board board, boolean undoMoves) {
+		// Do not simulate the playout but compute the exact score when only a few cards are left
+		if (isSolvable(board))
+			return board.solve();
+
 		// Do not simulate the playout but estimate the score directly with a neural network
 		if (board.hasScoreEstimator())
 			return board.estimateScore();
@@ -318,7 +848,7 @@ public class MCTS {
 		// INFO: Run multiple playouts and take average to get a more reliable outcome. If numPlayouts = 1 take the outcome directly
 		double[] scoreAggregate = new double[board.getQuantityOfPlayers()];
 		for (int i = 0; i < numPlayouts; i++) {
-			final double[] score = runPlayout(board.duplicate(false));
+			final double[] score = runPlayout(undoMoves ? board : board.duplicate(false), undoMoves);
 			for (int j = 0; j < score.length; j++) {
 				scoreAggregate[j] += score[j];
 			}
@@ -330,24 +860,43 @@ public class MCTS {
 		return scoreAggregate;
 	}
 
+	/**
+	 * Checks if the endgame solver is enabled and the board has few enough moves left to be solved exactly
+	 *
+	 * @param board
+	 * @return
+	 */
+	private boolean isSolvable(Board board) {
+		return endgameSolverThreshold > 0 && board.canBeSolved(endgameSolverThreshold);
+	}
+
 	/**
 	 * Runs one playout of the board
 	 *
 	 * @param board
+	 * @param undoMoves if true, the moves of the playout are taken back again after the score has been computed
 	 * @return
 	 */
-	private double[] runPlayout(Board board) {
-		// Start playing random moves until the game is over
-		while (!board.gameOver()) {
-			Move move;
-			if (playoutSelectionPolicy == null) {
-				move = getRandomMove(board);
-			} else {
-				move = playoutSelectionPolicy.getBestMove(board); // NOTE: Originally it used the not duplicated oldBoard here.
+	private double[] runPlayout(Board board, boolean undoMoves) {
+		int numMoves = 0;
+		try {
+			// Start playing random moves until the game is over
+			while (!board.gameOver()) {
+				Move move;
+				if (playoutSelectionPolicy == null) {
+					move = getRandomMove(board);
+				} else {
+					move = playoutSelectionPolicy.getBestMove(board); // NOTE: Originally it used the not duplicated oldBoard here.
+				}
+				board.makeMove(move);
+				numMoves++;
 			}
-			board.makeMove(move);
+			return board.getScore();
+		} finally {
+			if (undoMoves)
+				for (int i = 0; i < numMoves; i++)
+					board.undoMove();
 		}
-		return board.getScore();
 	}
 
 	public Move getRandomMove(Board board) {
@@ -355,7 +904,7 @@ public class MCTS {
 		if (moves.isEmpty()) throw new AssertionError();
 		if (board.getCurrentPlayer() >= 0) {
 			// make random selection normally
-			return moves.get(random.nextInt(moves.size()));
+			return moves.get(getRandom().nextInt(moves.size()));
 		} else {
 			// This situation only occurs when a move
 			// is entirely random, for example a die
@@ -365,6 +914,16 @@ public class MCTS {
 		}
 	}
 
+	/**
+	 * Returns the seeded random number generator or, if several threads search the same tree,
+	 * the one of the current thread because they would contend for the seeded one
+	 *
+	 * @return
+	 */
+	private Random getRandom() {
+		return treeParallelisationEnabled ? ThreadLocalRandom.current() : random;
+	}
+
 	/**
 	 * Select a child node at random and return its index.
 	 *
@@ -399,30 +958,47 @@ public class MCTS {
 	 * @param explorationConstant
 	 * @return
 	 */
-	private List<Node> findChildren(Node node, Board board, double optimisticBias, double pessimisticBias,
-	                                double explorationConstant) {
+	List<Node> findChildren(Node node, Board board, double optimisticBias, double pessimisticBias,
+	                        double explorationConstant) {
 		double bestValue = Double.NEGATIVE_INFINITY;
 		ArrayList<Node> bestNodes = new ArrayList<>();
 		for (Node s : node.getChildren()) {
-			// Pruned is only ever true if a branch has been pruned
-			// from the tree and that can only happen if bounds
-			// propagation mode is enabled.
-			if (!s.isPruned()) {
-				double tempBest = s.upperConfidenceBound(explorationConstant)
-						+ optimisticBias * s.getOpti()[node.getPlayer()]
-						+ pessimisticBias * s.getPess()[node.getPlayer()];
-
-				if (heuristicFunction != null) {
-					tempBest += heuristicFunction.heuristicFunction(board);
-				}
-
-				bestValue = getBestValue(bestValue, tempBest, bestNodes, s);
+			// Pruned and proven children are only possible if bounds
+			// propagation mode is enabled. Their score cannot change
+			// the score of the node anymore.
+			if (!s.isPruned() && !s.isProven()) {
+				bestValue = getBestValue(bestValue, selectionValue(node, s, board), bestNodes, s);
 			}
 		}
 
 		return bestNodes;
 	}
 
+	private double selectionValue(Node node, Node child, Board board) {
+		double value = child.upperConfidenceBound(explorationConstant)
+				+ optimisticBias * boundValue(child, child.getOpti(), node.getPlayer())
+				+ pessimisticBias * boundValue(child, child.getPess(), node.getPlayer());
+
+		if (heuristicFunction != null) {
+			value += heuristicFunction.heuristicFunction(board);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the bound of the player. As long as the bound is unknown (infinite), the average score is used instead.
+	 *
+	 * @param node
+	 * @param bounds the optimistic or pessimistic bounds of the node
+	 * @param player
+	 * @return
+	 */
+	static double boundValue(Node node, double[] bounds, int player) {
+		if (!Double.isInfinite(bounds[player]))
+			return bounds[player];
+		return node.getGames() > 0 ? node.getScores()[player] / node.getGames() : 0;
+	}
+
 	/**
 	 * This is the final step of the algorithm, to pick the best move to
 	 * actually make.
@@ -434,6 +1010,13 @@ public class MCTS {
 		if (!node.isValid()) // if there was no run completed
 			return null;
 
+		if (scoreBoundsUsed) {
+			// A child proven to be the best is chosen no matter how often it was visited
+			final Node provenBestChild = node.getProvenBestChild();
+			if (provenBestChild != null)
+				return provenBestChild;
+		}
+
 		switch (finalSelectionPolicy) {
 			case MAX_CHILD:
 				return maxChild(node);
@@ -476,8 +1059,8 @@ public class MCTS {
 
 		for (Node s : node.getChildren()) {
 			tempBest = s.getScores()[node.getPlayer()];
-			tempBest += s.getOpti()[node.getPlayer()] * optimisticBias;
-			tempBest += s.getPess()[node.getPlayer()] * pessimisticBias;
+			tempBest += boundValue(s, s.getOpti(), node.getPlayer()) * optimisticBias;
+			tempBest += boundValue(s, s.getPess(), node.getPlayer()) * pessimisticBias;
 			bestValue = getBestValue(bestValue, tempBest, bestNodes, s);
 		}
 
@@ -497,7 +1080,10 @@ public class MCTS {
 	}
 
 	/**
-	 * Determines if score bounds should be used or not.
+	 * Determines if score bounds should be used or not (MCTS-Solver). The nodes whose exact score is known, because the game
+	 * is over or the endgame solver computed it, are proven and their score is propagated up the tree as bounds.
+	 * The proven subtrees and the ones which cannot be better than a proven alternative are not searched anymore.
+	 * NOTE: Not used with tree parallelisation, because the shared tree mixes the scores of different determinizations.
 	 *
 	 * @param scoreBoundsUsed
 	 */
@@ -505,6 +1091,55 @@ public class MCTS {
 		this.scoreBoundsUsed = scoreBoundsUsed;
 	}
 
+	/**
+	 * Determines when the remaining determinizations are cancelled because they cannot change the vote anymore.
+	 * NOTE: Only used with root parallelisation.
+	 *
+	 * @param voteConfidence the probability with which the selected move must not change anymore, at least 0.5 and below 1,
+	 *                       or 0 to always wait for all the determinizations
+	 */
+	public void setVoteConfidence(double voteConfidence) {
+		if (voteConfidence != 0 && !(voteConfidence >= 0.5 && voteConfidence < 1))
+			throw new IllegalArgumentException("The vote confidence has to be 0 or at least 0.5 and below 1: " + voteConfidence);
+		this.voteConfidence = voteConfidence;
+	}
+
+	/**
+	 * Determines when the determinizations are solved exactly instead of searched: The exact score of every move is
+	 * computed as soon as every player has at most this number of moves left. The playouts are replaced by the exact
+	 * score in the same way.
+	 * NOTE: With tree parallelisation only the playouts are replaced.
+	 *
+	 * @param endgameSolverThreshold the number of moves per player or 0 to disable the endgame solver
+	 */
+	public void setEndgameSolverThreshold(int endgameSolverThreshold) {
+		this.endgameSolverThreshold = endgameSolverThreshold;
+	}
+
+	/**
+	 * Determines if the trees of the determinizations are kept after the search, so that the next search can continue
+	 * on them (see {@link #observeMoves(List)}).
+	 * NOTE: Only used with root parallelisation.
+	 *
+	 * @param treeReuseEnabled
+	 */
+	public void setTreeReuseEnabled(boolean treeReuseEnabled) {
+		this.treeReuseEnabled = treeReuseEnabled;
+		if (!treeReuseEnabled)
+			discardTrees();
+	}
+
+	/**
+	 * Determines if the trees of the determinizations store their nodes in primitive arrays ({@link ArenaTree})
+	 * instead of {@link Node} objects. This reduces the allocations a lot.
+	 * NOTE: Only used without score bounds and without tree parallelisation.
+	 *
+	 * @param arenaTreeUsed
+	 */
+	public void setArenaTreeUsed(boolean arenaTreeUsed) {
+		this.arenaTreeUsed = arenaTreeUsed;
+	}
+
 	/**
 	 * Sets the exploration constant for the algorithm. You will need to find
 	 * the optimal value through testing. This can have a big impact on
@@ -574,95 +1209,399 @@ public class MCTS {
 	}
 
 	/**
-	 * Switch on multi threading.
-	 * IMPORTANT: A threadPool is started here. Make sure that you terminate it using the {@link #shutDown()} method in the end (might be outside this class)!
+	 * Switch on multi threading. The determinizations are queued as tasks on the {@link SearchExecutor} shared by all the searches.
 	 **/
-	public void enableRootParallelisation(int numThreads) {
+	public void enableRootParallelisation() {
 		rootParallelisationEnabled = true;
+		this.numThreads = SearchExecutor.getNumThreads();
 
-		threadPool = Executors.newFixedThreadPool(numThreads);
-		futures = new ArrayList<>();
+		threadPool = SearchExecutor.get();
+	}
+
+	/**
+	 * Switch on multi threading with one tree shared by all the threads of the {@link SearchExecutor}.
+	 * NOTE: The score bounds and the optimistic and pessimistic bias are not supported on the shared tree,
+	 * because it mixes the scores of different determinizations.
+	 **/
+	public void enableTreeParallelisation() {
+		treeParallelisationEnabled = true;
+		this.numThreads = SearchExecutor.getNumThreads();
+
+		threadPool = SearchExecutor.get();
 	}
 
 	public boolean isParallelisationEnabled() {
-		return rootParallelisationEnabled;
+		return rootParallelisationEnabled || treeParallelisationEnabled;
 	}
 
 	/**
-	 * Shuts down the thread pool. Has to be called as soon as it is not used anymore!
+	 * Marks this search as not used anymore. The shared thread pool keeps running for the other searches.
 	 */
 	public void shutDown() {
-		threadPool.shutdown();
+		shutDown = true;
 	}
 
 	/**
-	 * Checks if the thread pool has been shut down.
+	 * Checks if this search has been shut down.
 	 */
 	public boolean isShutDown() {
-		return threadPool.isShutdown();
+		return shutDown;
+	}
+
+	public void setRandom(int seed) {
+		this.random = new Random(seed);
 	}
 
 	/**
-	 * Check if all threads are done
-	 *
-	 * @param tasks
-	 * @return
+	 * This implements a majority vote from the different determinizations (mcts trees parallelised at the root).
+	 * The final selected nodes are added one by one as soon as their determinization is done.
 	 */
-	private boolean checkDone(ArrayList<FutureTask<Node>> tasks) {
-		for (FutureTask<Node> task : tasks)
-			if (!task.isDone())
+	static class Vote {
+		private final HashMap<Move, Integer> numSelections = new HashMap<>();
+		private final HashMap<Move, Double> summedFinalScores = new HashMap<>();
+		private final List<SelectedMove> selectedMoves = new ArrayList<>();
+
+		void add(SelectedMove selectedMove) {
+			// Some determinizations are more reliable (more nodes searched)
+			// but we choose not to weigh by the number of nodes searched because the difference is small for high strengthlevel
+			logger.info("move: {}, number of searched nodes (= played games): {}, score: {}", selectedMove.move, selectedMove.rootGames, selectedMove.score);
+			// TODO how many games do we need to be sufficiently sure of correctness of simulation
+
+			Move move = selectedMove.move;
+			numSelections.merge(move, 1, Integer::sum);
+			summedFinalScores.merge(move, selectedMove.score, Double::sum);
+			selectedMoves.add(selectedMove);
+		}
+
+		private boolean isEmpty() {
+			return selectedMoves.isEmpty();
+		}
+
+		/**
+		 * Checks if the remaining determinizations can still change the selected move. This is a sequential test on the
+		 * margin between the summed final scores of the best two moves: Every vote for one of them moves the margin by its
+		 * score. Assuming that the remaining votes do not favour any of the two, the margin changes by a sum with mean 0
+		 * and the variance estimated from the votes so far. The move is decided if this sum is smaller than the margin with
+		 * the given confidence (normal approximation).
+		 *
+		 * @param numRemaining the number of determinizations which have not voted yet
+		 * @param confidence   the probability with which the selected move must not change anymore
+		 * @return
+		 */
+		boolean isDecided(int numRemaining, double confidence) {
+			Move best = null;
+			Move secondBest = null;
+			for (Move move : summedFinalScores.keySet()) {
+				if (best == null || summedFinalScores.get(move) > summedFinalScores.get(best)) {
+					secondBest = best;
+					best = move;
+				} else if (secondBest == null || summedFinalScores.get(move) > summedFinalScores.get(secondBest))
+					secondBest = move;
+			}
+			if (best == null)
 				return false;
+			final double margin = summedFinalScores.get(best) - (secondBest == null ? 0 : summedFinalScores.get(secondBest));
+
+			double summedSquares = 0;
+			for (SelectedMove selectedMove : selectedMoves)
+				if (selectedMove.move.equals(best) || selectedMove.move.equals(secondBest))
+					summedSquares += selectedMove.score * selectedMove.score;
+			final double variance = numRemaining * summedSquares / selectedMoves.size();
+			return margin > upperQuantileOfNormal(1 - confidence) * Math.sqrt(variance);
+		}
+
+		/**
+		 * Approximates the z with P(X > z) = p for a standard normal X (Abramowitz and Stegun 26.2.23, error < 4.5e-4)
+		 *
+		 * @param p in (0, 0.5]
+		 * @return
+		 */
+		private static double upperQuantileOfNormal(double p) {
+			final double t = Math.sqrt(-2 * Math.log(p));
+			return t - (2.515517 + 0.802853 * t + 0.010328 * t * t) / (1 + 1.432788 * t + 0.189269 * t * t + 0.001308 * t * t * t);
+		}
+
+		private Move getSelectedMove() throws MCTSException {
+			if (numSelections.isEmpty())
+				throw new MCTSException("There are no moves to vote from. Maybe there was not enough time to explore the tree.");
+
+			LinkedHashMap<Move, Double> summedFinalScoresSorted = new LinkedHashMap<>();
+			summedFinalScores.entrySet().stream()
+					.sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+					.forEachOrdered(x -> summedFinalScoresSorted.put(x.getKey(), x.getValue()));
 
-		return true;
+
+			// Print statistics so we can get insights into the decision process of the algorithm
+			summedFinalScoresSorted.forEach((move, summedFinalScore) -> {
+				final int numTimesSelected = numSelections.get(move);
+				final long averageFinalScore = Math.round(summedFinalScore / numTimesSelected);
+				logger.info("{} selected {} times with average final score {} -> summed final score: {}",
+						String.format("%1$-3s", move), String.format("%1$2d", numTimesSelected), String.format("%1$3d", averageFinalScore), summedFinalScore);
+			});
+
+
+			return summedFinalScoresSorted.entrySet().stream() // move with highest possible reward but still high confidence is chosen -> more risk taking
+					//return numSelections.entrySet().stream() // move which has been selected the most over all the determinizations is chosen -> more risk averse
+					.findFirst() // NOTE: map needs to be sorted, otherwise use .max(Map.Entry.comparingByValue())
+					.orElseThrow(() -> new IllegalStateException("There must be at least one move!"))
+					.getKey();
+		}
 	}
 
-	public void setRandom(int seed) {
-		this.random = new Random(seed);
+	/**
+	 * The move selected in the tree of one determinization together with the statistics needed for the vote
+	 */
+	static class SelectedMove {
+		private final Move move;
+		private final double rootGames;
+		private final double score;
+
+		SelectedMove(Move move, double rootGames, double score) {
+			this.move = move;
+			this.rootGames = rootGames;
+			this.score = score;
+		}
+	}
+
+	/**
+	 * The search tree of one determinization. Depending on the configuration the nodes are stored in an {@link ArenaTree}
+	 * or as {@link Node} objects.
+	 */
+	private class DeterminizationTree {
+		private final Board board;
+		private Node rootNode;
+		private ArenaTree arenaTree;
+		// The visits of the root moves at the end of the last time slice, for the time control
+		private volatile Map<Move, Double> rootVisits = Collections.emptyMap();
+
+		private DeterminizationTree(Board board) {
+			this.board = board;
+			if (arenaTreeUsed && !scoreBoundsUsed)
+				arenaTree = new ArenaTree(board.getQuantityOfPlayers());
+			else
+				rootNode = new Node(board);
+		}
+
+		private void search() {
+			if (arenaTree != null)
+				selectInArena(board, arenaTree);
+			else
+				select(board, rootNode);
+		}
+
+		/**
+		 * Publishes the visits of the root moves, so that other threads can read them while the tree is searched
+		 */
+		private void publishRootVisits() {
+			final Map<Move, Double> visits = new HashMap<>();
+			if (arenaTree != null) {
+				final int firstChild = arenaTree.getFirstChild(ArenaTree.ROOT);
+				for (int child = firstChild; arenaTree.isExpanded(ArenaTree.ROOT) && child < firstChild + arenaTree.getNumTriedChildren(ArenaTree.ROOT); child++)
+					visits.put(arenaTree.getMove(child), arenaTree.getGames(child));
+			} else
+				for (Node child : rootNode.getChildren())
+					visits.put(child.getMove(), child.getGames());
+			rootVisits = visits;
+		}
+
+		private boolean isSolvable() {
+			return MCTS.this.isSolvable(board);
+		}
+
+		/**
+		 * @return true if the exact score of the root is known, so that searching further cannot change the final selection
+		 */
+		private boolean isProven() {
+			return rootNode != null && rootNode.isProven();
+		}
+
+		/**
+		 * Computes the exact score of every move with the endgame solver instead of searching the tree
+		 *
+		 * @return the move with the best exact score for the player to move
+		 */
+		private SelectedMove solve() {
+			final int player = board.getCurrentPlayer();
+			final boolean undoMoves = board.canUndoMoves();
+			final List<Move> moves = board.getMoves(CallLocation.TREE_POLICY);
+			Move bestMove = null;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			int numBestMoves = 0;
+			for (Move move : moves) {
+				final Board moveBoard = undoMoves ? board : board.duplicate(false);
+				moveBoard.makeMove(move);
+				final double score;
+				try {
+					score = (moveBoard.gameOver() ? moveBoard.getScore() : moveBoard.solve())[player];
+				} finally {
+					if (undoMoves)
+						moveBoard.undoMove();
+				}
+				if (score > bestScore) {
+					bestScore = score;
+					bestMove = move;
+					numBestMoves = 1;
+				} else if (score == bestScore && random.nextInt(++numBestMoves) == 0)
+					bestMove = move;
+			}
+			return new SelectedMove(bestMove, moves.size(), bestScore);
+		}
+
+		private boolean isSearched() {
+			return getRootGames() > 0;
+		}
+
+		private double getRootGames() {
+			if (arenaTree != null)
+				return arenaTree.getGames(ArenaTree.ROOT);
+			return rootNode.getGames();
+		}
+
+		/**
+		 * @return the final move selected or null if there was no run completed
+		 */
+		private SelectedMove finalSelection() {
+			if (!isSearched())
+				return null;
+			if (arenaTree != null)
+				return finalSelectionInArena(arenaTree);
+			final Node node = MCTS.this.finalSelection(rootNode);
+			return new SelectedMove(node.getMove(), rootNode.getGames(), node.getScoreForCurrentPlayer());
+		}
+
+		/**
+		 * Makes the moves on the board of the determinization and continues with the subtree of the moves.
+		 *
+		 * @param moves
+		 * @return false if one of the moves is not possible in this determinization
+		 */
+		private boolean advance(List<Move> moves) {
+			for (Move move : moves) {
+				if (board.gameOver() || !board.getMoves(CallLocation.PLAYOUT).contains(move))
+					return false;
+				board.makeMove(move);
+				if (arenaTree != null) {
+					final int child = arenaTree.findTriedChild(ArenaTree.ROOT, move);
+					arenaTree = child == ArenaTree.NO_NODE ? new ArenaTree(board.getQuantityOfPlayers()) : arenaTree.subtree(child);
+				} else {
+					Node child = null;
+					for (Node temp : rootNode.getChildren())
+						if (temp.getMove().equals(move))
+							child = temp;
+					if (child == null)
+						rootNode = new Node(board);
+					else {
+						child.setParent(null);
+						rootNode = child;
+					}
+				}
+			}
+			return true;
+		}
 	}
 
-	protected abstract class MCTSTask implements Callable<Node> {
-		protected Board board;
+	/**
+	 * This is a time bounded task for the threadPool. It searches the tree of one determinization in time slices until the
+	 * time runs out.
+	 */
+	protected class MCTSTaskTime extends TimeSlicedTask<SelectedMove> {
+		protected DeterminizationTree tree;
+		protected AtomicLong endingTime; // shared by all the tasks of the search, so that they can be stopped early
+		private SelectedMove solvedMove;
+
+		protected MCTSTaskTime(DeterminizationTree tree, AtomicLong endingTime) {
+			super(threadPool);
+			this.tree = tree;
+			this.endingTime = endingTime;
+		}
 
-		protected MCTSTask(Board board) {
-			// Here we create a new determinization by distributing new random cards for the hidden cards of the other players
-			// Starting from here we operate in a perfect information game setting!
-			this.board = board.duplicate(true);
+		@Override
+		protected boolean runSlice(long sliceEndingTime) {
+			if (tree.isSolvable()) {
+				solvedMove = tree.solve();
+				return true;
+			}
+			searchUntil(tree, Math.min(endingTime.get(), sliceEndingTime));
+			tree.publishRootVisits();
+			if (System.currentTimeMillis() < endingTime.get() && !tree.isProven())
+				return false;
+			// When the other searches sharing the thread pool kept the threads busy until the ending time,
+			// at least one run is needed, so that the determinization can vote
+			if (!tree.isSearched())
+				tree.search();
+			return true;
+		}
+
+		@Override
+		protected SelectedMove getResult() {
+			return solvedMove != null ? solvedMove : tree.finalSelection();
 		}
 	}
 
+
 	/**
-	 * This is a time bounded task for the threadPool.
+	 * This is a task for the threadPool searching the shared tree in time slices.
 	 */
-	protected class MCTSTaskTime extends MCTSTask {
+	protected class SharedTreeTask extends TimeSlicedTask<Node> {
+		protected Node rootNode;
+		protected List<Board> boards; // the determinizations of this task
 		protected long endingTime;
+		protected long runs; // the number of runs per determinization
+		private long runCounter;
 
-		protected MCTSTaskTime(Board board, long endingTime) {
-			super(board);
+		protected SharedTreeTask(Node rootNode, List<Board> boards, long endingTime, long runs) {
+			super(threadPool);
+			this.rootNode = rootNode;
+			this.boards = boards;
 			this.endingTime = endingTime;
+			this.runs = runs;
 		}
 
 		@Override
-		public Node call() {
-			return executeByTime(board, endingTime);
+		protected boolean runSlice(long sliceEndingTime) {
+			// Alternate between the determinizations, so that all of them contribute to the shared tree
+			for (; runCounter / boards.size() < runs && System.currentTimeMillis() < Math.min(endingTime, sliceEndingTime); runCounter++)
+				selectInSharedTree(boards.get((int) (runCounter % boards.size())), rootNode);
+			return runCounter / boards.size() >= runs || System.currentTimeMillis() >= endingTime;
 		}
-	}
 
+		@Override
+		protected Node getResult() {
+			return rootNode;
+		}
+	}
 
 	/**
-	 * This is a runs bounded task for the threadPool.
+	 * This is a runs bounded task for the threadPool. It searches the tree of one determinization in time slices until
+	 * the runs are done.
 	 */
-	protected class MCTSTaskRuns extends MCTSTask {
+	protected class MCTSTaskRuns extends TimeSlicedTask<SelectedMove> {
+		protected DeterminizationTree tree;
 		protected long runs;
+		private long runCounter;
+		private SelectedMove solvedMove;
 
-		protected MCTSTaskRuns(Board board, long runs) {
-			super(board);
+		protected MCTSTaskRuns(DeterminizationTree tree, long runs) {
+			super(threadPool);
+			this.tree = tree;
 			this.runs = runs;
 		}
 
 		@Override
-		public Node call() {
-			return executeByRuns(board, runs);
+		protected boolean runSlice(long sliceEndingTime) {
+			if (tree.isSolvable()) {
+				solvedMove = tree.solve();
+				return true;
+			}
+			for (; runCounter < runs && !tree.isProven() && System.currentTimeMillis() < sliceEndingTime; runCounter++)
+				tree.search();
+			return runCounter >= runs || tree.isProven();
+		}
+
+		@Override
+		protected SelectedMove getResult() {
+			return solvedMove != null ? solvedMove : tree.finalSelection();
 		}
 	}
 
-}
\ No newline at end of file
+}
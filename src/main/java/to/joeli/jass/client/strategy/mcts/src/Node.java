@@ -1,22 +1,22 @@
 package to.joeli.jass.client.strategy.mcts.src;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 public class Node {
 	private double[] scores;
 	private double games;
 	private Move move;
-	private List<Node> unvisitedChildren;
+	private List<Move> untriedMoves;
 	private List<Node> children;
-	private Set<Integer> rVisited;
 	private Node parent;
 	private int player;
 	private double[] pess;
 	private double[] opti;
 	private boolean pruned;
 	private boolean valid = true;
+	private int virtualLosses; // Only used when several threads search the same tree
 
 	/**
 	 * This creates the root node
@@ -27,16 +27,14 @@ public class Node {
 		children = new ArrayList<>();
 		player = board.getCurrentPlayer();
 		scores = new double[board.getQuantityOfPlayers()];
-		pess = new double[board.getQuantityOfPlayers()];
-		opti = new double[board.getQuantityOfPlayers()];
-		for (int i = 0; i < board.getQuantityOfPlayers(); i++)
-			opti[i] = 1;
+		initBounds(board.getQuantityOfPlayers());
 	}
 
 	/**
-	 * This creates non-root nodes
+	 * This creates non-root nodes. Children are only created when they are selected for the first time,
+	 * so the move has already been made on the board and it tells us who plays next.
 	 *
-	 * @param board
+	 * @param board  the board in the state after the move
 	 * @param move
 	 * @param parent
 	 */
@@ -44,14 +42,21 @@ public class Node {
 		children = new ArrayList<>();
 		this.parent = parent;
 		this.move = move;
-		Board tempBoard = board.duplicate(false);
-		tempBoard.makeMove(move);
-		player = tempBoard.getCurrentPlayer();
+		player = board.getCurrentPlayer();
 		scores = new double[board.getQuantityOfPlayers()];
-		pess = new double[board.getQuantityOfPlayers()];
-		opti = new double[board.getQuantityOfPlayers()];
-		for (int i = 0; i < board.getQuantityOfPlayers(); i++)
-			opti[i] = 1;
+		initBounds(board.getQuantityOfPlayers());
+	}
+
+	/**
+	 * As long as nothing is known about the score of this node, the bounds are infinite
+	 *
+	 * @param numPlayers
+	 */
+	private void initBounds(int numPlayers) {
+		pess = new double[numPlayers];
+		opti = new double[numPlayers];
+		Arrays.fill(pess, Double.NEGATIVE_INFINITY);
+		Arrays.fill(opti, Double.POSITIVE_INFINITY);
 	}
 
 	/**
@@ -62,7 +67,8 @@ public class Node {
 	 * @return
 	 */
 	public double upperConfidenceBound(double c) {
-		return scores[parent.player] / games + c * Math.sqrt(Math.log(parent.games + 1) / games);
+		final double visits = games + virtualLosses;
+		return scores[parent.player] / visits + c * Math.sqrt(Math.log(parent.games + parent.virtualLosses + 1) / visits);
 	}
 
 	/**
@@ -71,33 +77,53 @@ public class Node {
 	 * @param score
 	 */
 	public void backPropagateScore(double[] score) {
-		this.games++;
-		for (int i = 0; i < score.length; i++)
-			this.scores[i] += score[i];
+		synchronized (this) {
+			this.games++;
+			for (int i = 0; i < score.length; i++)
+				this.scores[i] += score[i];
+		}
 
 		if (parent != null)
 			parent.backPropagateScore(score);
 	}
 
 	/**
-	 * Expand this node by populating its list of
-	 * unvisited child nodes.
+	 * Counts a visit without a score (a loss) until the thread which selected this node propagates the real score back.
+	 * Like this, the other threads searching the same tree are steered into different branches.
+	 */
+	public synchronized void addVirtualLoss() {
+		virtualLosses++;
+	}
+
+	/**
+	 * Removes the virtual loss from this node and all its ancestors.
+	 */
+	public void removeVirtualLoss() {
+		synchronized (this) {
+			virtualLosses--;
+		}
+
+		if (parent != null)
+			parent.removeVirtualLoss();
+	}
+
+	/**
+	 * Expand this node by remembering the moves which have not been tried yet.
+	 * The child nodes are only created when their move is tried.
 	 *
 	 * @param currentBoard
 	 */
 	public void expandNode(Board currentBoard) {
-		List<Move> legalMoves = currentBoard.getMoves(CallLocation.TREE_POLICY);
-		unvisitedChildren = new ArrayList<>();
-		for (Move legalMove : legalMoves) {
-			Node tempState = new Node(currentBoard, legalMove, this);
-			unvisitedChildren.add(tempState);
-		}
+		untriedMoves = new ArrayList<>(currentBoard.getMoves(CallLocation.TREE_POLICY));
+	}
+
+	public boolean isExpanded() {
+		return untriedMoves != null;
 	}
 
 	/**
-	 * Set the bounds in the given node and propagate the values
-	 * back up the tree. When bounds are first created they are
-	 * both equivalent to a player's score.
+	 * Marks this node as proven: The given score is the exact score of this node, for example because the game is over.
+	 * The bounds of the ancestors are tightened one after the other, until the bounds of an ancestor do not change.
 	 *
 	 * @param score
 	 */
@@ -107,64 +133,88 @@ public class Node {
 			pess[i] = score[i];
 		}
 
-		if (parent != null)
-			parent.backPropagateBoundsHelper();
+		Node node = parent;
+		while (node != null && node.updateBounds())
+			node = node.parent;
 	}
 
-	private void backPropagateBoundsHelper() {
+	/**
+	 * Computes the bounds of this node from the bounds of its children. The player to move chooses the child with the
+	 * best score for this player, so the player gets at least the highest pessimistic bound and at most the highest
+	 * optimistic bound.
+	 * The children whose optimistic bound does not exceed the highest pessimistic bound are never chosen, so they are
+	 * pruned and do not count for the bounds of the other players. The moves not tried yet could have any score.
+	 *
+	 * @return true if the bounds changed
+	 */
+	private boolean updateBounds() {
+		// The probabilities of the outcomes not tried yet are unknown
+		if (isRandomNode() || children.isEmpty())
+			return false;
+
+		Node best = children.get(0);
+		for (Node child : children)
+			if (child.pess[player] > best.pess[player])
+				best = child;
+		for (Node child : children)
+			if (child != best && child.opti[player] <= best.pess[player])
+				child.pruned = true;
+
+		final boolean untried = untriedMoves == null || !untriedMoves.isEmpty();
+		boolean changed = false;
 		for (int i = 0; i < opti.length; i++) {
-			if (i == player) {
-				opti[i] = 0;
-				pess[i] = 0;
-			} else {
-				opti[i] = 1;
-				pess[i] = 1;
+			double lower = best.pess[i];
+			double upper = best.opti[i];
+			for (Node child : children) {
+				if (child.pruned)
+					continue;
+				if (i != player)
+					lower = Math.min(lower, child.pess[i]);
+				upper = Math.max(upper, child.opti[i]);
 			}
-		}
-
-		for (int i = 0; i < opti.length; i++) {
-			for (Node c : children) {
-				if (i == player) {
-					if (opti[i] < c.opti[i])
-						opti[i] = c.opti[i];
-					if (pess[i] < c.pess[i])
-						pess[i] = c.pess[i];
-				} else {
-					if (opti[i] > c.opti[i])
-						opti[i] = c.opti[i];
-					if (pess[i] > c.pess[i])
-						pess[i] = c.pess[i];
-				}
+			if (untried) {
+				if (i != player)
+					lower = Double.NEGATIVE_INFINITY;
+				upper = Double.POSITIVE_INFINITY;
 			}
-		}
 
-		// This compares against a dummy node with bounds 1 0
-		// if not all children have been explored
-		if (!unvisitedChildren.isEmpty()) {
-			for (int i = 0; i < opti.length; i++) {
-				if (i == player) {
-					opti[i] = 1;
-				} else {
-					pess[i] = 0;
-				}
+			// The bounds only ever get tighter
+			if (lower > pess[i]) {
+				pess[i] = lower;
+				changed = true;
+			}
+			if (upper < opti[i]) {
+				opti[i] = upper;
+				changed = true;
 			}
 		}
-
-		// TODO: This causes redundant pruning. Fix it
-		pruneBranches();
-		if (parent != null)
-			parent.backPropagateBoundsHelper();
+		return changed;
 	}
 
-	private void pruneBranches() {
-		for (Node s : children) {
-			if (pess[player] >= s.opti[player]) {
-				s.pruned = true;
-			}
-		}
+	/**
+	 * A node is proven when its exact score is known for all the players. Searching it any further is useless.
+	 *
+	 * @return
+	 */
+	public boolean isProven() {
+		for (int i = 0; i < opti.length; i++)
+			if (pess[i] != opti[i])
+				return false;
+		return true;
+	}
 
-		if (parent != null)
-			parent.pruneBranches();
+	/**
+	 * Returns the child which is proven to be the best for the player to move
+	 *
+	 * @return the child or null if it is not known yet which child is the best
+	 */
+	public Node getProvenBestChild() {
+		if (pess[player] != opti[player])
+			return null;
+		for (Node child : children)
+			if (child.pess[player] >= pess[player])
+				return child;
+		return null;
 	}
 
 	public boolean isRandomNode() {
@@ -195,12 +245,12 @@ public class Node {
 		this.move = move;
 	}
 
-	public List<Node> getUnvisitedChildren() {
-		return unvisitedChildren;
+	public List<Move> getUntriedMoves() {
+		return untriedMoves;
 	}
 
-	public void setUnvisitedChildren(List<Node> unvisitedChildren) {
-		this.unvisitedChildren = unvisitedChildren;
+	public void setUntriedMoves(List<Move> untriedMoves) {
+		this.untriedMoves = untriedMoves;
 	}
 
 	public List<Node> getChildren() {
@@ -211,14 +261,6 @@ public class Node {
 		this.children = children;
 	}
 
-	public Set<Integer> getRVisited() {
-		return rVisited;
-	}
-
-	public void setRVisited(Set<Integer> rVisited) {
-		this.rVisited = rVisited;
-	}
-
 	public Node getParent() {
 		return parent;
 	}
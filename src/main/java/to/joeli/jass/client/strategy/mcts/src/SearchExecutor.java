@@ -0,0 +1,45 @@
+package to.joeli.jass.client.strategy.mcts.src;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The thread pool shared by all the searches of the process. It only has as many threads as there are cores,
+ * so that many strategies searching at the same time (e.g. in the server) do not oversubscribe the cpu.
+ * The searches submit {@link TimeSlicedTask}s, so that they take turns on the threads.
+ * <p>
+ * The pool is never shut down. Its threads are daemon threads, so they do not keep the JVM alive.
+ */
+public final class SearchExecutor {
+
+	private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+	private SearchExecutor() {
+	}
+
+	public static ExecutorService get() {
+		return Holder.EXECUTOR;
+	}
+
+	public static int getNumThreads() {
+		return NUM_THREADS;
+	}
+
+	// The pool is only started when the first search needs it
+	private static final class Holder {
+		private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(NUM_THREADS, new DaemonThreadFactory());
+	}
+
+	private static final class DaemonThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread(runnable, "search-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
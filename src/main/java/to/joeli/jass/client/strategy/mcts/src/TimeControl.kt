@@ -0,0 +1,18 @@
+package to.joeli.jass.client.strategy.mcts.src
+
+/**
+ * Create a class implementing this interface and pass
+ * the instance to [MCTS.runForTime]. During the search
+ * it is asked regularly whether the search can stop
+ * before its ending time, because more runs would not
+ * change the decision anymore.
+ *
+ * @author joelniklaus
+ */
+interface TimeControl {
+    /**
+     * @param visits the visits of the moves at the root, summed over all the determinizations and sorted in descending order
+     * @return true if the search can stop now
+     */
+    fun canStop(visits: DoubleArray): Boolean
+}
@@ -0,0 +1,75 @@
+package to.joeli.jass.client.strategy.mcts.src;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A task for the {@link SearchExecutor} which only runs for a time slice and then queues itself again until it is done.
+ * Like this, the tasks of all the searches sharing the pool get their turn one after the other and no search can hold
+ * a thread until its deadline while the tasks of another search are waiting (e.g. when several strategies search at the
+ * same time in self play or in the arena). There can also be many more tasks than threads.
+ * <p>
+ * Cancelling the result stops the task before its next time slice.
+ *
+ * @param <T> the type of the result
+ */
+public abstract class TimeSlicedTask<T> implements Runnable {
+
+	public static final long TIME_SLICE_MILLIS = 20;
+
+	private final Executor executor;
+	private final CompletableFuture<T> result = new CompletableFuture<>();
+
+	protected TimeSlicedTask(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Queues the first time slice of the task
+	 *
+	 * @return the result of the task, which is completed when the task is done
+	 */
+	public CompletableFuture<T> start() {
+		executor.execute(this);
+		return result;
+	}
+
+	/**
+	 * Runs the task on the current thread in one slice until it is done
+	 *
+	 * @return the result of the task
+	 */
+	public T runToCompletion() {
+		runSlice(Long.MAX_VALUE);
+		return getResult();
+	}
+
+	@Override
+	public final void run() {
+		if (result.isDone()) // cancelled
+			return;
+		try {
+			if (runSlice(System.currentTimeMillis() + TIME_SLICE_MILLIS))
+				result.complete(getResult());
+			else
+				executor.execute(this);
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Runs the task until it is done or the time slice is over
+	 *
+	 * @param sliceEndingTime time when the time slice is over (in milliseconds)
+	 * @return true if the task is done
+	 */
+	protected abstract boolean runSlice(long sliceEndingTime);
+
+	/**
+	 * Is called once the task is done
+	 *
+	 * @return the result of the task
+	 */
+	protected abstract T getResult();
+}
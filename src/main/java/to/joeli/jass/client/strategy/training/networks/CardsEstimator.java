@@ -2,7 +2,6 @@ package to.joeli.jass.client.strategy.training.networks;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tensorflow.Tensor;
 import to.joeli.jass.client.game.Game;
 import to.joeli.jass.client.game.Player;
 import to.joeli.jass.client.strategy.helpers.CardKnowledgeBase;
@@ -31,16 +30,23 @@ public class CardsEstimator extends NeuralNetwork {
 	public Map<Card, Distribution> predictCardDistribution(Game game, Set<Card> availableCards) {
 		Map<Card, Distribution> cardKnowledge = CardKnowledgeBase.initCardKnowledge(game, availableCards);
 
-		final Tensor result = (Tensor) predict(NeuralNetworkHelper.getCardsFeatures(game, cardKnowledge));
-		final float[][] probabilities = tensorToFloats(result);
+		final float[][] probabilities = toProbabilities(predict(NeuralNetworkHelper.getCardsFeatures(game, cardKnowledge)));
 
 		return addNetworkPredictionToCardKnowledge(game, cardKnowledge, probabilities);
 	}
 
-	private float[][] tensorToFloats(Tensor result) {
-		float[][][] res = new float[1][36][4];
-		result.copyTo(res);
-		return res[0];
+	/**
+	 * Reshapes the flattened output of the network to the probabilities of the players (second index) per card (first index)
+	 *
+	 * @param output
+	 * @return
+	 */
+	private float[][] toProbabilities(float[] output) {
+		final int numPlayers = output.length / Card.values().length;
+		float[][] probabilities = new float[Card.values().length][];
+		for (int c = 0; c < probabilities.length; c++)
+			probabilities[c] = Arrays.copyOfRange(output, c * numPlayers, (c + 1) * numPlayers);
+		return probabilities;
 	}
 
 	/**
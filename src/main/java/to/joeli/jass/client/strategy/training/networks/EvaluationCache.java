@@ -0,0 +1,176 @@
+package to.joeli.jass.client.strategy.training.networks;
+
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.client.strategy.helpers.PositionHash;
+import to.joeli.jass.game.cards.Card;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size cache of the scores predicted by the {@link ScoreEstimator}, keyed by the {@link PositionHash} of the
+ * game. Many MCTS leaves of different determinizations reach the same position, and they only need one prediction.
+ * <p>
+ * Like the {@link to.joeli.jass.game.TranspositionTable}, the cache is shared by all the threads without locking:
+ * Every entry consists of two longs, the key XOR the data and the data, and a reader only accepts an entry if the two
+ * longs match the key.
+ * <p>
+ * The entries are grouped in buckets of {@link #WAYS} entries and evicted with the CLOCK algorithm per bucket: A hit sets
+ * the referenced bit of the entry. A new score replaces the first entry at or after the hand of the bucket which is empty
+ * or not referenced, clearing the referenced bits of the entries it passes.
+ */
+public class EvaluationCache {
+
+	public static final int WAYS = 4;
+
+	private static final long VALID = 1L << 63; // so that the data of a stored entry is never 0
+	private static final long VALUE_MASK = 0xFFFFFFFFL;
+
+	private final AtomicLongArray entries; // two longs per entry: the key XOR the data and the data
+	private final AtomicIntegerArray referenced; // one per entry
+	private final AtomicIntegerArray hands; // one per bucket
+	private final int bucketMask;
+	private final boolean canonical;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param bits      the cache has 2^bits entries (at least WAYS)
+	 * @param canonical if the games which only differ by a permutation of the colors share the same entry
+	 *                  (see {@link PositionHash#canonicalHash(Game)}). The network only approximately predicts the same
+	 *                  score for them.
+	 */
+	public EvaluationCache(int bits, boolean canonical) {
+		final int numEntries = Math.max(1 << bits, WAYS);
+		entries = new AtomicLongArray(2 * numEntries);
+		referenced = new AtomicIntegerArray(numEntries);
+		hands = new AtomicIntegerArray(numEntries / WAYS);
+		bucketMask = numEntries / WAYS - 1;
+		this.canonical = canonical;
+	}
+
+	/**
+	 * Computes the key of the game
+	 *
+	 * @param game
+	 * @return
+	 */
+	public long key(Game game) {
+		return canonical ? PositionHash.canonicalHash(game) : PositionHash.hash(game);
+	}
+
+	/**
+	 * Computes the keys of the states after the current player played each of the cards
+	 *
+	 * @param game
+	 * @param cards the cards the current player can play
+	 * @return
+	 */
+	public long[] afterstateKeys(Game game, Card[] cards) {
+		return canonical ? PositionHash.canonicalAfterstateHashes(game, cards) : PositionHash.afterstateHashes(game, cards);
+	}
+
+	/**
+	 * Looks up the score of the key
+	 *
+	 * @param key
+	 * @return the score or NaN if it is not in the cache
+	 */
+	public float get(long key) {
+		final int bucket = bucket(key);
+		for (int entry = bucket; entry < bucket + WAYS; entry++) {
+			final long data = entries.get(2 * entry + 1);
+			if (data != 0 && (entries.get(2 * entry) ^ data) == key) {
+				if (referenced.get(entry) == 0)
+					referenced.lazySet(entry, 1);
+				hits.increment();
+				return Float.intBitsToFloat((int) (data & VALUE_MASK));
+			}
+		}
+		misses.increment();
+		return Float.NaN;
+	}
+
+	/**
+	 * Stores the score of the key
+	 *
+	 * @param key
+	 * @param score
+	 */
+	public void put(long key, float score) {
+		final long data = VALID | Float.floatToRawIntBits(score) & VALUE_MASK;
+		final int bucket = bucket(key);
+		final int entry = findVictim(bucket, key);
+		entries.set(2 * entry, key ^ data);
+		entries.set(2 * entry + 1, data);
+		referenced.lazySet(entry, 0);
+	}
+
+	/**
+	 * Finds the entry of the bucket to store the key in: the entry of the key itself if it is there already,
+	 * otherwise an empty entry or the entry chosen by the clock.
+	 */
+	private int findVictim(int bucket, long key) {
+		for (int entry = bucket; entry < bucket + WAYS; entry++) {
+			final long data = entries.get(2 * entry + 1);
+			if (data == 0 || (entries.get(2 * entry) ^ data) == key)
+				return entry;
+		}
+		final int handIndex = bucket / WAYS;
+		int hand = hands.get(handIndex);
+		// After one round all the referenced bits are cleared (unless other threads hit the entries again in the meantime)
+		while (referenced.get(bucket + hand) != 0) {
+			referenced.lazySet(bucket + hand, 0);
+			hand = (hand + 1) % WAYS;
+		}
+		hands.lazySet(handIndex, (hand + 1) % WAYS);
+		evictions.increment();
+		return bucket + hand;
+	}
+
+	/**
+	 * Removes all the entries, e.g. when a new network is loaded. The metrics are kept.
+	 */
+	public void clear() {
+		for (int i = 0; i < entries.length(); i++)
+			entries.set(i, 0);
+	}
+
+	private int bucket(long key) {
+		// The lower bits of the key are as random as the upper ones
+		return WAYS * ((int) key & bucketMask);
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return the fraction of the lookups which found a score
+	 */
+	public double getHitRate() {
+		final long hits = getHits();
+		final long lookups = hits + getMisses();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	public boolean isCanonical() {
+		return canonical;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("EvaluationCache(hits=%d, misses=%d, hitRate=%.3f, evictions=%d)", getHits(), getMisses(), getHitRate(), getEvictions());
+	}
+}
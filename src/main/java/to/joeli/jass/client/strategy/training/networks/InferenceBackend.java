@@ -0,0 +1,56 @@
+package to.joeli.jass.client.strategy.training.networks;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Runs the forward pass of an exported network (see {@link NeuralNetwork#loadModel(int)})
+ */
+public interface InferenceBackend extends AutoCloseable {
+
+	/**
+	 * Runs the network once for all the inputs of the batch
+	 *
+	 * @param batch     the features of all the inputs one after the other, from the position to the limit of the buffer.
+	 *                  The position of the buffer is not changed.
+	 * @param batchSize the number of inputs
+	 * @return the flattened outputs of the network, one per input
+	 */
+	float[][] predictBatch(FloatBuffer batch, int batchSize);
+
+	/**
+	 * Frees the resources of the network
+	 */
+	@Override
+	void close();
+
+	/**
+	 * Computes the largest difference between the outputs of the backend and the outputs of the reference backend
+	 * relative to the largest absolute output of the reference backend (e.g. to validate a quantized network).
+	 * The inputs are predicted in batches of at most maxBatchSize.
+	 *
+	 * @param reference
+	 * @param backend
+	 * @param inputs       the features of all the inputs one after the other, from the position to the limit of the buffer
+	 * @param numInputs
+	 * @param maxBatchSize
+	 * @return
+	 */
+	static double computeRelativeError(InferenceBackend reference, InferenceBackend backend, FloatBuffer inputs, int numInputs, int maxBatchSize) {
+		final int numFeatures = inputs.remaining() / numInputs;
+		double maxError = 0;
+		double maxOutput = 0;
+		for (int start = 0; start < numInputs; start += maxBatchSize) {
+			final int batchSize = Math.min(maxBatchSize, numInputs - start);
+			final FloatBuffer batch = inputs.duplicate();
+			batch.position(inputs.position() + start * numFeatures).limit(batch.position() + batchSize * numFeatures);
+			final float[][] expected = reference.predictBatch(batch, batchSize);
+			final float[][] actual = backend.predictBatch(batch, batchSize);
+			for (int b = 0; b < batchSize; b++)
+				for (int i = 0; i < expected[b].length; i++) {
+					maxError = Math.max(maxError, Math.abs(expected[b][i] - actual[b][i]));
+					maxOutput = Math.max(maxOutput, Math.abs(expected[b][i]));
+				}
+		}
+		return maxOutput > 0 ? maxError / maxOutput : maxError;
+	}
+}
@@ -0,0 +1,178 @@
+package to.joeli.jass.client.strategy.training.networks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the predictions requested by several threads (e.g. the leaf evaluations of the MCTS threads) into batches,
+ * so that the network runs once per batch instead of once per input.
+ * <p>
+ * There is no extra thread: The thread whose request starts a new batch waits until the batch is full or the flush delay
+ * is over and then runs the batch for everybody. The threads joining the batch in the meantime just wait for their result.
+ * When a request fills the batch, its thread runs the batch right away.
+ * <p>
+ * Waiting only pays off if other threads are about to request a prediction as well. Therefore the batcher keeps track of
+ * the threads which requested a prediction within the last flush delay (the active threads). As soon as all of them are
+ * waiting, the batch is run without waiting for the flush delay. Like this, a lone thread never waits.
+ */
+public class InferenceBatcher {
+
+	public static final long DEFAULT_FLUSH_DELAY_MICROS = 1000;
+
+	private final NeuralNetwork network;
+	private final int batchSize;
+	private final long flushDelayNanos;
+
+	private List<Request> pending = new ArrayList<>(); // guarded by this
+	private final Map<Thread, Long> lastRequestNanos = new HashMap<>(); // the active threads, guarded by this
+	// The features of a batch are copied into the buffer of the thread running the batch
+	private final ThreadLocal<FloatBuffer> batchBuffers = new ThreadLocal<>();
+
+	public InferenceBatcher(NeuralNetwork network, int batchSize) {
+		this(network, batchSize, DEFAULT_FLUSH_DELAY_MICROS);
+	}
+
+	/**
+	 * @param network
+	 * @param batchSize        the maximum number of inputs per batch
+	 * @param flushDelayMicros the maximum time the first request of a batch waits for others
+	 */
+	public InferenceBatcher(NeuralNetwork network, int batchSize, long flushDelayMicros) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("The batch size has to be at least 1 but was " + batchSize);
+		this.network = network;
+		this.batchSize = batchSize;
+		this.flushDelayNanos = TimeUnit.MICROSECONDS.toNanos(flushDelayMicros);
+	}
+
+	/**
+	 * Predicts the output for the features together with the requests of the other threads
+	 *
+	 * @param features the features from the position to the limit of the buffer. The buffer must not be changed until
+	 *                 the prediction is done.
+	 * @return the flattened output of the network for the features
+	 */
+	public float[] predict(FloatBuffer features) {
+		final Request request = new Request(features);
+		List<Request> batch = null;
+		synchronized (this) {
+			pending.add(request);
+			if (pending.size() >= batchSize || pending.size() >= countActiveThreads())
+				batch = takePending();
+			else if (pending.size() == 1)
+				batch = awaitBatch(request);
+		}
+		if (batch != null)
+			run(batch);
+		try {
+			return request.result.join();
+		} catch (CompletionException e) {
+			// The same exception as without batching
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Marks the current thread as active, e.g. when a search thread starts to request predictions
+	 */
+	synchronized void markActive() {
+		lastRequestNanos.put(Thread.currentThread(), System.nanoTime());
+	}
+
+	/**
+	 * Marks the current thread as active and forgets the threads which have not requested a prediction within the flush delay
+	 *
+	 * @return the number of active threads including the current one
+	 */
+	private int countActiveThreads() {
+		markActive();
+		final long now = System.nanoTime();
+		for (Iterator<Long> iterator = lastRequestNanos.values().iterator(); iterator.hasNext(); )
+			if (now - iterator.next() > flushDelayNanos)
+				iterator.remove();
+		return lastRequestNanos.size();
+	}
+
+	/**
+	 * Waits until the batch started by the request is full or the flush delay is over.
+	 *
+	 * @param request the first request of the batch
+	 * @return the batch to run or null if another thread took the batch in the meantime
+	 */
+	private List<Request> awaitBatch(Request request) {
+		final long deadline = System.nanoTime() + flushDelayNanos;
+		try {
+			for (long remaining = flushDelayNanos; !request.taken && remaining > 0; remaining = deadline - System.nanoTime())
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		} catch (InterruptedException e) {
+			// Run the batch anyway, the other threads of the batch are waiting for it
+			Thread.currentThread().interrupt();
+		}
+		return request.taken ? null : takePending();
+	}
+
+	private List<Request> takePending() {
+		final List<Request> batch = pending;
+		for (Request request : batch)
+			request.taken = true;
+		pending = new ArrayList<>(batchSize);
+		notifyAll();
+		return batch;
+	}
+
+	private void run(List<Request> batch) {
+		try {
+			final float[][] outputs = network.predictBatch(collectFeatures(batch), batch.size());
+			for (int i = 0; i < outputs.length; i++)
+				batch.get(i).result.complete(outputs[i]);
+		} catch (RuntimeException e) {
+			for (Request request : batch)
+				request.result.completeExceptionally(e);
+		}
+	}
+
+	private FloatBuffer collectFeatures(List<Request> batch) {
+		int numFeatures = 0;
+		for (Request request : batch)
+			numFeatures += request.features.remaining();
+		FloatBuffer buffer = batchBuffers.get();
+		if (buffer == null || buffer.capacity() < numFeatures) {
+			buffer = ByteBuffer.allocateDirect(numFeatures * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+			batchBuffers.set(buffer);
+		}
+		buffer.clear();
+		for (Request request : batch)
+			buffer.put(request.features.duplicate());
+		buffer.flip();
+		return buffer;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	synchronized int getNumPending() {
+		return pending.size();
+	}
+
+	private static class Request {
+		private final FloatBuffer features;
+		private final CompletableFuture<float[]> result = new CompletableFuture<>();
+		private boolean taken; // guarded by the batcher
+
+		private Request(FloatBuffer features) {
+			this.features = features;
+		}
+	}
+}
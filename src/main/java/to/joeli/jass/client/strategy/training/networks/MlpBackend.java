@@ -0,0 +1,387 @@
+package to.joeli.jass.client.strategy.training.networks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Runs the dense layers exported by export_model_checkpoint.py (weights.bin) in pure java, without any native library.
+ * For the small networks of the estimators this avoids the start of a tensorflow session and the JNI overhead of every call.
+ * <p>
+ * The exported model is a stack of dense layers. Batch normalization is already folded into the next dense layer and
+ * dropout and reshape layers are left out, because they do nothing at inference time.
+ * <p>
+ * The kernels are stored by input (like in keras): The forward pass adds the row of every input to the outputs, so that
+ * the weights are read in the order they are stored. In a batch, every row is applied to all the inputs of the batch
+ * before the next row is read, and the inputs which are 0 (most of the one hot encoded features) are skipped.
+ * <p>
+ * The kernels can also be quantized to int8 with one scale per layer (weights_int8.bin). Then the inputs of every layer
+ * are quantized to int8 as well, with one scale per input, and the products are summed up as integers.
+ * <p>
+ * Format of the file (big endian): version, precision (0 for float32, 1 for int8), number of layers and then for every
+ * layer the input size, the output size, the activation, the softmax group size (0 for no softmax), the kernel
+ * (input size * output size floats or the scale and input size * output size bytes) and the bias (output size floats).
+ */
+public class MlpBackend implements InferenceBackend {
+
+	public static final String WEIGHTS_FILE = "weights.bin";
+	public static final String QUANTIZED_WEIGHTS_FILE = "weights_int8.bin";
+	public static final int VERSION = 2;
+	public static final int FLOAT32 = 0;
+	public static final int INT8 = 1;
+
+	private static final int INT8_MAX = 127;
+
+	// See https://arxiv.org/abs/1706.02515
+	private static final float SELU_ALPHA = 1.6732632423543772f;
+	private static final float SELU_SCALE = 1.0507009873554805f;
+
+	private final Layer[] layers;
+	private final int inputSize;
+	private final int outputSize;
+	private final int maxLayerSize;
+
+	private final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(() -> new Scratch(0));
+
+	public MlpBackend(Layer... layers) {
+		if (layers.length == 0)
+			throw new IllegalArgumentException("The network needs at least one layer");
+		int maxLayerSize = layers[0].inputSize;
+		for (int i = 0; i < layers.length; i++) {
+			if (i > 0 && layers[i].inputSize != layers[i - 1].outputSize)
+				throw new IllegalArgumentException("The input size of layer " + i + " does not match the output size of the previous layer");
+			maxLayerSize = Math.max(maxLayerSize, layers[i].outputSize);
+		}
+		this.layers = layers;
+		this.inputSize = layers[0].inputSize;
+		this.outputSize = layers[layers.length - 1].outputSize;
+		this.maxLayerSize = maxLayerSize;
+	}
+
+	/**
+	 * Loads the float weights exported in the directory of the model
+	 *
+	 * @param path the export directory of the model
+	 * @return
+	 */
+	public static MlpBackend load(String path) {
+		return load(path, false);
+	}
+
+	/**
+	 * Loads the weights exported in the directory of the model
+	 *
+	 * @param path      the export directory of the model
+	 * @param quantized if the int8 weights are loaded instead of the float weights
+	 * @return
+	 */
+	public static MlpBackend load(String path, boolean quantized) {
+		final Path file = Paths.get(path, quantized ? QUANTIZED_WEIGHTS_FILE : WEIGHTS_FILE);
+		try {
+			return read(ByteBuffer.wrap(Files.readAllBytes(file)));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read the weights in " + file, e);
+		}
+	}
+
+	/**
+	 * Reads the weights in the format of export_model_checkpoint.py
+	 *
+	 * @param buffer
+	 * @return
+	 */
+	public static MlpBackend read(ByteBuffer buffer) {
+		final int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IllegalArgumentException("Unsupported version of the weights: " + version);
+		final int precision = buffer.getInt();
+		if (precision != FLOAT32 && precision != INT8)
+			throw new IllegalArgumentException("Unsupported precision of the weights: " + precision);
+		final Layer[] layers = new Layer[buffer.getInt()];
+		for (int i = 0; i < layers.length; i++) {
+			final int inputSize = buffer.getInt();
+			final int outputSize = buffer.getInt();
+			final Activation activation = Activation.values()[buffer.getInt()];
+			final int softmaxGroupSize = buffer.getInt();
+			if (precision == INT8) {
+				final float kernelScale = buffer.getFloat();
+				final byte[] kernel = new byte[inputSize * outputSize];
+				buffer.get(kernel);
+				final float[] bias = readFloats(buffer, outputSize);
+				layers[i] = new Layer(inputSize, outputSize, kernel, kernelScale, bias, activation, softmaxGroupSize);
+			} else {
+				final float[] kernel = readFloats(buffer, inputSize * outputSize);
+				final float[] bias = readFloats(buffer, outputSize);
+				layers[i] = new Layer(inputSize, outputSize, kernel, bias, activation, softmaxGroupSize);
+			}
+		}
+		return new MlpBackend(layers);
+	}
+
+	private static float[] readFloats(ByteBuffer buffer, int length) {
+		final float[] floats = new float[length];
+		buffer.asFloatBuffer().get(floats);
+		buffer.position(buffer.position() + length * Float.BYTES);
+		return floats;
+	}
+
+	@Override
+	public float[][] predictBatch(FloatBuffer batch, int batchSize) {
+		if (batch.remaining() != batchSize * inputSize)
+			throw new IllegalArgumentException("Expected " + batchSize * inputSize + " features but got " + batch.remaining());
+
+		Scratch scratch = scratches.get();
+		if (scratch.input.length < batchSize * maxLayerSize) {
+			scratch = new Scratch(batchSize * maxLayerSize);
+			scratches.set(scratch);
+		}
+		float[] input = scratch.input;
+		float[] output = scratch.output;
+		batch.duplicate().get(input, 0, batchSize * inputSize);
+
+		for (Layer layer : layers) {
+			layer.forward(input, output, batchSize, scratch);
+			final float[] next = input;
+			input = output;
+			output = next;
+		}
+
+		final float[][] outputs = new float[batchSize][outputSize];
+		for (int b = 0; b < batchSize; b++)
+			System.arraycopy(input, b * outputSize, outputs[b], 0, outputSize);
+		return outputs;
+	}
+
+	@Override
+	public void close() {
+		scratches.remove();
+	}
+
+	/**
+	 * Returns a copy of the network with all the kernels quantized to int8
+	 *
+	 * @return
+	 */
+	public MlpBackend quantize() {
+		final Layer[] quantized = new Layer[layers.length];
+		for (int i = 0; i < layers.length; i++)
+			quantized[i] = layers[i].quantize();
+		return new MlpBackend(quantized);
+	}
+
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	public int getOutputSize() {
+		return outputSize;
+	}
+
+	/**
+	 * The buffers of a thread for all the inputs of a batch: the activations of the current and the next layer and the
+	 * int8 inputs, their scales and the integer sums of the quantized layers
+	 */
+	private static class Scratch {
+		private final float[] input;
+		private final float[] output;
+		private final byte[] quantizedInput;
+		private final float[] inputScales;
+		private final int[] sums;
+
+		private Scratch(int size) {
+			input = new float[size];
+			output = new float[size];
+			quantizedInput = new byte[size];
+			inputScales = new float[size];
+			sums = new int[size];
+		}
+	}
+
+	/**
+	 * The activation functions in the order of their codes in the exported file
+	 */
+	public enum Activation {
+		LINEAR, RELU, ELU, SELU, TANH, SIGMOID;
+
+		private void apply(float[] values, int length) {
+			switch (this) {
+				case LINEAR:
+					break;
+				case RELU:
+					for (int i = 0; i < length; i++)
+						values[i] = Math.max(values[i], 0);
+					break;
+				case ELU:
+					for (int i = 0; i < length; i++)
+						if (values[i] < 0)
+							values[i] = (float) Math.expm1(values[i]);
+					break;
+				case SELU:
+					for (int i = 0; i < length; i++)
+						values[i] = SELU_SCALE * (values[i] > 0 ? values[i] : SELU_ALPHA * (float) Math.expm1(values[i]));
+					break;
+				case TANH:
+					for (int i = 0; i < length; i++)
+						values[i] = (float) Math.tanh(values[i]);
+					break;
+				case SIGMOID:
+					for (int i = 0; i < length; i++)
+						values[i] = (float) (1 / (1 + Math.exp(-values[i])));
+					break;
+			}
+		}
+	}
+
+	/**
+	 * A dense layer followed by its activation and optionally a softmax over groups of consecutive outputs
+	 * (e.g. the players of every card in the cards estimator)
+	 */
+	public static class Layer {
+		private final int inputSize;
+		private final int outputSize;
+		// kernel[i * outputSize + j] is the weight from input i to output j, either as float or as int8 times the kernel scale
+		private final float[] kernel;
+		private final byte[] quantizedKernel;
+		private final float kernelScale;
+		private final float[] bias;
+		private final Activation activation;
+		private final int softmaxGroupSize;
+
+		public Layer(int inputSize, int outputSize, float[] kernel, float[] bias, Activation activation, int softmaxGroupSize) {
+			this(inputSize, outputSize, kernel, null, 0, bias, activation, softmaxGroupSize);
+			if (kernel.length != inputSize * outputSize)
+				throw new IllegalArgumentException("The weights do not match the size of the layer");
+		}
+
+		public Layer(int inputSize, int outputSize, byte[] kernel, float kernelScale, float[] bias, Activation activation, int softmaxGroupSize) {
+			this(inputSize, outputSize, null, kernel, kernelScale, bias, activation, softmaxGroupSize);
+			if (kernel.length != inputSize * outputSize)
+				throw new IllegalArgumentException("The weights do not match the size of the layer");
+		}
+
+		private Layer(int inputSize, int outputSize, float[] kernel, byte[] quantizedKernel, float kernelScale, float[] bias, Activation activation, int softmaxGroupSize) {
+			if (bias.length != outputSize)
+				throw new IllegalArgumentException("The bias does not match the size of the layer");
+			if (softmaxGroupSize < 0 || softmaxGroupSize > 0 && outputSize % softmaxGroupSize != 0)
+				throw new IllegalArgumentException("The softmax group size has to divide the output size");
+			this.inputSize = inputSize;
+			this.outputSize = outputSize;
+			this.kernel = kernel;
+			this.quantizedKernel = quantizedKernel;
+			this.kernelScale = kernelScale;
+			this.bias = bias;
+			this.activation = activation;
+			this.softmaxGroupSize = softmaxGroupSize;
+		}
+
+		/**
+		 * Quantizes the float kernel symmetrically to int8 with one scale for the whole layer
+		 * (like export_model_checkpoint.py)
+		 *
+		 * @return
+		 */
+		public Layer quantize() {
+			if (kernel == null)
+				return this;
+			float max = 0;
+			for (float weight : kernel)
+				max = Math.max(max, Math.abs(weight));
+			final float scale = max > 0 ? max / INT8_MAX : 1;
+			final byte[] quantized = new byte[kernel.length];
+			for (int i = 0; i < kernel.length; i++)
+				quantized[i] = (byte) Math.round(kernel[i] / scale);
+			return new Layer(inputSize, outputSize, quantized, scale, bias, activation, softmaxGroupSize);
+		}
+
+		/**
+		 * Computes the outputs of the layer for all the inputs of the batch
+		 *
+		 * @param input     batchSize * inputSize values
+		 * @param output    batchSize * outputSize values are written
+		 * @param batchSize
+		 * @param scratch   the buffers of the quantized layers
+		 */
+		private void forward(float[] input, float[] output, int batchSize, Scratch scratch) {
+			if (quantizedKernel != null)
+				multiplyQuantized(input, output, batchSize, scratch);
+			else
+				multiply(input, output, batchSize);
+			activation.apply(output, batchSize * outputSize);
+			if (softmaxGroupSize > 0)
+				for (int start = 0; start < batchSize * outputSize; start += softmaxGroupSize)
+					softmax(output, start, softmaxGroupSize);
+		}
+
+		private void multiply(float[] input, float[] output, int batchSize) {
+			for (int b = 0; b < batchSize; b++)
+				System.arraycopy(bias, 0, output, b * outputSize, outputSize);
+			for (int i = 0, row = 0; i < inputSize; i++, row += outputSize)
+				for (int b = 0; b < batchSize; b++) {
+					final float x = input[b * inputSize + i];
+					if (x != 0)
+						addRow(x, row, output, b * outputSize);
+				}
+		}
+
+		private void addRow(float x, int row, float[] output, int offset) {
+			for (int j = 0; j < outputSize; j++)
+				output[offset + j] += x * kernel[row + j];
+		}
+
+		/**
+		 * Quantizes every input of the batch to int8 with its own scale, sums up the integer products and scales the sums back.
+		 * The sums cannot overflow: 127 * 127 * inputSize is far below the maximum integer for the sizes of our networks.
+		 */
+		private void multiplyQuantized(float[] input, float[] output, int batchSize, Scratch scratch) {
+			final byte[] quantizedInput = scratch.quantizedInput;
+			final int[] sums = scratch.sums;
+			for (int b = 0; b < batchSize; b++) {
+				final int start = b * inputSize;
+				float max = 0;
+				for (int i = start; i < start + inputSize; i++)
+					max = Math.max(max, Math.abs(input[i]));
+				final float scale = max > 0 ? max / INT8_MAX : 1;
+				for (int i = start; i < start + inputSize; i++)
+					quantizedInput[i] = (byte) Math.round(input[i] / scale);
+				scratch.inputScales[b] = scale;
+			}
+
+			Arrays.fill(sums, 0, batchSize * outputSize, 0);
+			for (int i = 0, row = 0; i < inputSize; i++, row += outputSize)
+				for (int b = 0; b < batchSize; b++) {
+					final int x = quantizedInput[b * inputSize + i];
+					if (x != 0)
+						addQuantizedRow(x, row, sums, b * outputSize);
+				}
+
+			for (int b = 0; b < batchSize; b++) {
+				final float scale = scratch.inputScales[b] * kernelScale;
+				for (int j = 0; j < outputSize; j++)
+					output[b * outputSize + j] = bias[j] + sums[b * outputSize + j] * scale;
+			}
+		}
+
+		private void addQuantizedRow(int x, int row, int[] sums, int offset) {
+			for (int j = 0; j < outputSize; j++)
+				sums[offset + j] += x * quantizedKernel[row + j];
+		}
+
+		private static void softmax(float[] values, int start, int length) {
+			float max = Float.NEGATIVE_INFINITY;
+			for (int i = start; i < start + length; i++)
+				max = Math.max(max, values[i]);
+			float sum = 0;
+			for (int i = start; i < start + length; i++) {
+				values[i] = (float) Math.exp(values[i] - max);
+				sum += values[i];
+			}
+			for (int i = start; i < start + length; i++)
+				values[i] /= sum;
+		}
+	}
+}
@@ -1,11 +1,13 @@
 package to.joeli.jass.client.strategy.training.networks
 
 import org.slf4j.LoggerFactory
-import org.tensorflow.SavedModelBundle
-import org.tensorflow.Tensor
+import to.joeli.jass.client.strategy.config.InferenceBackendType
+import to.joeli.jass.client.strategy.helpers.FeatureEncoder
+import to.joeli.jass.client.strategy.helpers.IOHelper
 import to.joeli.jass.client.strategy.helpers.ShellScriptRunner
 import to.joeli.jass.client.strategy.training.NetworkType
 import to.joeli.jass.client.strategy.training.data.DataSet
+import java.nio.FloatBuffer
 
 
 /**
@@ -18,32 +20,103 @@ import to.joeli.jass.client.strategy.training.data.DataSet
  * New Decision:
  * Because ZeroMQ had problem "Too many open files"
  * Ditched ZeroMQ in favor of direct model import via tensorflow java api
+ *
+ * The exported model can be run either in tensorflow or in the pure java MLP engine (see [InferenceBackendType])
  */
 open class NeuralNetwork(private val networkType: NetworkType, var isTrainable: Boolean) {
 
-    var savedModelBundle: SavedModelBundle? = null
+    var backend: InferenceBackend? = null
+
+    var backendType = InferenceBackendType.TENSORFLOW // takes effect when the next model is loaded
 
+    var maxQuantizationError = 0.01 // see Config
 
-    fun loadModel(episode: Int) {
+
+    open fun loadModel(episode: Int) {
         val path =  "${DataSet.getEpisodePath(episode)}${networkType.path}models/export/"
-        savedModelBundle = SavedModelBundle.load(path, "tag")
+        backend?.close()
+        backend = when (backendType) {
+            InferenceBackendType.TENSORFLOW -> TensorFlowBackend.load(path, networkType.output)
+            InferenceBackendType.JAVA -> MlpBackend.load(path)
+            InferenceBackendType.JAVA_INT8 -> loadQuantizedModel(path, episode)
+        }
     }
 
-    @Synchronized
-    fun predict(features: Array<FloatArray>): Any {
-        if (savedModelBundle == null)
-            throw IllegalStateException("There is no neural network loaded! Cannot make any predictions!")
+    /**
+     * Validates the int8 network against the float network on the test set of the episode.
+     * If it deviates more than the max quantization error, the float network is used instead.
+     */
+    private fun loadQuantizedModel(path: String, episode: Int): InferenceBackend {
+        val quantized = MlpBackend.load(path, true)
+        val features = IOHelper.readFeatures("${DataSet.getEpisodePath(episode)}${networkType.path}test/features/").take(NUM_VALIDATION_INPUTS)
+        if (features.isEmpty()) {
+            logger.warn("There is no test set to validate the quantized {} network. Using it anyway", networkType)
+            return quantized
+        }
+
+        val inputs = FloatBuffer.allocate(features.sumBy { it.sumBy { row -> row.size } })
+        features.forEach { it.forEach { row -> inputs.put(row) } }
+        inputs.flip()
+        val float = MlpBackend.load(path)
+        val error = InferenceBackend.computeRelativeError(float, quantized, inputs, features.size, VALIDATION_BATCH_SIZE)
+        if (error > maxQuantizationError) {
+            logger.warn("The quantized {} network deviates by {} from the float network. Using the float network", networkType, error)
+            return float
+        }
+        logger.info("The quantized {} network deviates by {} from the float network", networkType, error)
+        return quantized
+    }
 
-        val input = Array(1) { Array(features.size) { FloatArray(features[0].size) } }
-        input[0] = features
+    // Collects the predictions of several threads into batches, null if every input is predicted on its own
+    private var batcher: InferenceBatcher? = null
 
-        return savedModelBundle!!.session().runner()
-                .feed("input", Tensor.create(input))
-                .fetch(networkType.output)
-                .run()[0]
+    /**
+     * Sets the maximum number of inputs predicted at once (see [InferenceBatcher]), 1 to predict every input on its own
+     */
+    fun setBatchSize(batchSize: Int) {
+        batcher = if (batchSize > 1) InferenceBatcher(this, batchSize) else null
+    }
+
+    /**
+     * Predicts the output for the features of one input
+     *
+     * @param features the features from the position to the limit of the buffer (see [FeatureEncoder])
+     * @return the flattened output of the network
+     */
+    fun predict(features: FloatBuffer): FloatArray {
+        return batcher?.predict(features) ?: predictBatch(features, 1)[0]
+    }
+
+    /**
+     * Predicts the output for the features of one input
+     *
+     * @return the flattened output of the network
+     */
+    fun predict(features: Array<FloatArray>): FloatArray {
+        val buffer = FloatBuffer.allocate(features.sumBy { it.size })
+        features.forEach { buffer.put(it) }
+        buffer.flip()
+        return predict(buffer)
+    }
+
+    /**
+     * Runs the network once for all the inputs of the batch
+     *
+     * @param batch     the features of all the inputs one after the other, from the position to the limit of the buffer.
+     *                  The position of the buffer is not changed.
+     * @param batchSize the number of inputs
+     * @return the flattened outputs of the network, one per input
+     */
+    open fun predictBatch(batch: FloatBuffer, batchSize: Int): Array<FloatArray> {
+        val backend = backend
+                ?: throw IllegalStateException("There is no neural network loaded! Cannot make any predictions!")
+        return backend.predictBatch(batch, batchSize)
     }
 
     companion object {
+        private const val NUM_VALIDATION_INPUTS = 1000
+        private const val VALIDATION_BATCH_SIZE = 32
+
         /**
          * Trains the network with a given train mode. The actual training is done in python with keras. This is why we invoke the shell script.
          */
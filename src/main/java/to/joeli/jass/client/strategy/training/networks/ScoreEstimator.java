@@ -2,30 +2,41 @@ package to.joeli.jass.client.strategy.training.networks;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tensorflow.Tensor;
 import to.joeli.jass.client.game.Game;
-import to.joeli.jass.client.game.Player;
 import to.joeli.jass.client.strategy.helpers.CardSelectionHelper;
-import to.joeli.jass.client.strategy.helpers.NeuralNetworkHelper;
+import to.joeli.jass.client.strategy.helpers.FeatureEncoder;
 import to.joeli.jass.client.strategy.mcts.CardMove;
 import to.joeli.jass.client.strategy.training.Arena;
 import to.joeli.jass.client.strategy.training.NetworkType;
 import to.joeli.jass.game.cards.Card;
 
-import java.util.*;
+import java.nio.FloatBuffer;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class ScoreEstimator extends NeuralNetwork {
 
 
 	public static final Logger logger = LoggerFactory.getLogger(ScoreEstimator.class);
 
+	private EvaluationCache evaluationCache; // null if every score is predicted by the network
+
 	public ScoreEstimator(boolean trainable) {
 		super(NetworkType.SCORE, trainable);
 	}
 
+	@Override
+	public void loadModel(int episode) {
+		super.loadModel(episode);
+		// The cached scores were predicted by the previous network
+		if (evaluationCache != null)
+			evaluationCache.clear();
+	}
+
 
 	/**
-	 * Predicts a move based on the neural network predictions for states after a possible card is played
+	 * Predicts a move based on the neural network predictions for states after a possible card is played.
+	 * The states after all the possible cards which are not in the cache are encoded together and predicted in one forward pass.
 	 *
 	 * @param game
 	 * @return
@@ -35,27 +46,59 @@ public class ScoreEstimator extends NeuralNetwork {
 
 		if (possibleCards.isEmpty()) throw new AssertionError();
 
-		EnumMap<Card, Double> actionValuePairs = new EnumMap<>(Card.class);
-		for (Card card : possibleCards) {
-			Game clonedGame = new Game(game);
-			final Player player = clonedGame.getCurrentPlayer();
-			final CardMove move = new CardMove(player, card);
-			clonedGame.makeMove(move);
-			player.onMoveMade(move);
+		final Card[] cards = possibleCards.toArray(new Card[0]);
+		final float[] scores = predictAfterstateScores(game, cards);
 
-			// TODO maybe it is more efficient to do all the forward passes at the same time and not one by one
+		Card bestCard = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < cards.length; i++) {
 			// NOTE: 157 - value because the value is from the perspective of a player of the opponent team
-			actionValuePairs.put(card, Arena.TOTAL_POINTS - predictScore(clonedGame));
+			final double value = Arena.TOTAL_POINTS - scores[i];
+			if (value > bestValue) {
+				bestValue = value;
+				bestCard = cards[i];
+			}
 		}
-		Card bestCard = actionValuePairs.entrySet()
-				.stream()
-				.min(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-				.map(Map.Entry::getKey)
-				.orElse(null);
 
 		return new CardMove(game.getCurrentPlayer(), bestCard);
 	}
 
+	/**
+	 * Predicts the final scores of the states after the current player played each of the cards (the afterstates).
+	 * The scores are looked up in the cache first, like in {@link #predictScore(Game)}.
+	 *
+	 * @param game
+	 * @param cards the cards the current player can play
+	 * @return the score of the afterstate of every card
+	 */
+	private float[] predictAfterstateScores(Game game, Card[] cards) {
+		final EvaluationCache cache = evaluationCache;
+		final long[] keys = cache == null ? null : cache.afterstateKeys(game, cards);
+		final float[] scores = new float[cards.length];
+		final int[] missing = new int[cards.length]; // the indices of the cards whose afterstate is not in the cache
+		int numMissing = 0;
+		for (int i = 0; i < cards.length; i++) {
+			scores[i] = keys == null ? Float.NaN : cache.get(keys[i]);
+			if (Float.isNaN(scores[i]))
+				missing[numMissing++] = i;
+		}
+		if (numMissing == 0)
+			return scores;
+
+		final Card[] missingCards = new Card[numMissing];
+		for (int i = 0; i < numMissing; i++)
+			missingCards[i] = cards[missing[i]];
+		final FloatBuffer afterstates = FeatureEncoder.getThreadLocalBuffer(numMissing);
+		FeatureEncoder.encodeAfterstateFeatures(game, missingCards, afterstates);
+		final float[][] predictions = predictBatch(afterstates, numMissing);
+		for (int i = 0; i < numMissing; i++) {
+			scores[missing[i]] = predictions[i][0];
+			if (cache != null)
+				cache.put(keys[missing[i]], predictions[i][0]);
+		}
+		return scores;
+	}
+
 	/**
 	 * Predict the final score of a determinized game (perfect information)
 	 *
@@ -63,10 +106,34 @@ public class ScoreEstimator extends NeuralNetwork {
 	 * @return
 	 */
 	public double predictScore(Game game) {
-		final Tensor result = (Tensor) predict(NeuralNetworkHelper.getScoreFeatures(game));
-		float[][] res = new float[1][1];
-		result.copyTo(res);
-		return (double) res[0][0];
+		final EvaluationCache cache = evaluationCache;
+		long key = 0;
+		if (cache != null) {
+			key = cache.key(game);
+			final float score = cache.get(key);
+			if (!Float.isNaN(score))
+				return score;
+		}
+
+		final FloatBuffer features = FeatureEncoder.getThreadLocalBuffer();
+		FeatureEncoder.encodeScoreFeatures(game, features);
+		final float score = predict(features)[0];
+		if (cache != null)
+			cache.put(key, score);
+		return score;
+	}
+
+	public EvaluationCache getEvaluationCache() {
+		return evaluationCache;
+	}
+
+	/**
+	 * Sets the cache of the predicted scores
+	 *
+	 * @param evaluationCache null to predict every score with the network
+	 */
+	public void setEvaluationCache(EvaluationCache evaluationCache) {
+		this.evaluationCache = evaluationCache;
 	}
 
 }
@@ -0,0 +1,51 @@
+package to.joeli.jass.client.strategy.training.networks;
+
+import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Tensor;
+import to.joeli.jass.client.strategy.helpers.FeatureEncoder;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Runs the saved model exported by export_model_checkpoint.py in a tensorflow session
+ */
+public class TensorFlowBackend implements InferenceBackend {
+
+	private final SavedModelBundle savedModelBundle;
+	private final String output;
+
+	/**
+	 * @param savedModelBundle
+	 * @param output           the name of the output operation (see {@link to.joeli.jass.client.strategy.training.NetworkType})
+	 */
+	public TensorFlowBackend(SavedModelBundle savedModelBundle, String output) {
+		this.savedModelBundle = savedModelBundle;
+		this.output = output;
+	}
+
+	public static TensorFlowBackend load(String path, String output) {
+		return new TensorFlowBackend(SavedModelBundle.load(path, "tag"), output);
+	}
+
+	@Override
+	public float[][] predictBatch(FloatBuffer batch, int batchSize) {
+		final long[] shape = {batchSize, FeatureEncoder.NUM_ROWS, FeatureEncoder.NUM_COLUMNS};
+		// The tensors hold native memory, so they are closed right away
+		try (Tensor<Float> input = Tensor.create(shape, batch.duplicate());
+			 Tensor<?> result = savedModelBundle.session().runner().feed("input", input).fetch(output).run().get(0)) {
+			final int outputSize = result.numElements() / batchSize;
+			final FloatBuffer buffer = FloatBuffer.allocate(result.numElements());
+			result.writeTo(buffer);
+			buffer.rewind();
+			final float[][] outputs = new float[batchSize][outputSize];
+			for (float[] output : outputs)
+				buffer.get(output);
+			return outputs;
+		}
+	}
+
+	@Override
+	public void close() {
+		savedModelBundle.close();
+	}
+}
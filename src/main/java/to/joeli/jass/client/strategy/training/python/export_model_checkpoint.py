@@ -1,11 +1,80 @@
+import os
 import shutil
 import warnings
 import numpy as np
 from keras.backend import get_session
 from keras.callbacks import Callback
+from keras.engine import InputLayer
+from keras.layers import Dense, BatchNormalization, Softmax, Reshape, Dropout, GaussianNoise
 from tensorflow.python.saved_model import saved_model
 from tensorflow.python.saved_model.signature_def_utils_impl import predict_signature_def
 
+# The version of the format of the weights for the java MLP engine (see MlpBackend.java)
+WEIGHTS_VERSION = 2
+FLOAT32 = 0
+INT8 = 1
+# The codes of the activations in MlpBackend.Activation
+ACTIVATIONS = {'linear': 0, 'relu': 1, 'elu': 2, 'selu': 3, 'tanh': 4, 'sigmoid': 5}
+
+
+def quantize(kernel):
+    """Quantizes the kernel symmetrically to int8 with one scale for the whole layer (post-training quantization).
+
+    # Returns
+        the int8 kernel and the scale, so that kernel is approximately int8 kernel * scale.
+    """
+    max_weight = np.abs(kernel).max()
+    scale = max_weight / 127 if max_weight > 0 else 1.0
+    return np.round(kernel / scale).astype(np.int8), scale
+
+
+def export_weights(model, path, quantized=False):
+    """Exports the weights of the dense layers for the pure java MLP engine (MlpBackend.java).
+
+    Batch normalization is folded into the next dense layer. Dropout, noise and reshape layers are left out
+    because they do nothing at inference time (the features are flattened in the same order anyway).
+    A softmax is applied to groups of the size of the last dimension of its input.
+
+    # Arguments
+        model: the keras model consisting of the layers above.
+        path: string, path of the weights file.
+        quantized: if the kernels are quantized to int8 (see quantize).
+    """
+    layers = []
+    scale, shift = None, None
+    for layer in model.layers:
+        if isinstance(layer, Dense):
+            kernel, bias = layer.get_weights()
+            if scale is not None:
+                # dense(x * scale + shift) = x * (scale * kernel) + (shift * kernel + bias)
+                bias = bias + shift.dot(kernel)
+                kernel = kernel * scale[:, np.newaxis]
+                scale, shift = None, None
+            layers.append([kernel, bias, ACTIVATIONS[layer.get_config()['activation']], 0])
+        elif isinstance(layer, BatchNormalization):
+            gamma, beta, mean, variance = layer.get_weights()
+            scale = gamma / np.sqrt(variance + layer.epsilon)
+            shift = beta - mean * scale
+        elif isinstance(layer, Softmax):
+            layers[-1][3] = layer.input_shape[-1]
+        elif not isinstance(layer, (InputLayer, Reshape, Dropout, GaussianNoise)):
+            raise ValueError('The layer %s cannot be exported for the java MLP engine' % layer.name)
+    if scale is not None:
+        raise ValueError('The batch normalization after the last dense layer cannot be exported for the java MLP engine')
+
+    with open(path, 'wb') as file:
+        np.array([WEIGHTS_VERSION, INT8 if quantized else FLOAT32, len(layers)], dtype='>i4').tofile(file)
+        for kernel, bias, activation, softmax_group_size in layers:
+            np.array([kernel.shape[0], kernel.shape[1], activation, softmax_group_size], dtype='>i4').tofile(file)
+            # row by row like in keras: kernel[input, output]
+            if quantized:
+                quantized_kernel, scale = quantize(kernel)
+                np.array([scale], dtype='>f4').tofile(file)
+                quantized_kernel.tofile(file)
+            else:
+                kernel.astype('>f4').tofile(file)
+            bias.astype('>f4').tofile(file)
+
 
 class ExportModelCheckpoint(Callback):
     """Save the model after every epoch.
@@ -104,3 +173,5 @@ class ExportModelCheckpoint(Callback):
         builder.add_meta_graph_and_variables(sess=get_session(), tags=["tag"], signature_def_map={'predict': signature})
         builder.save(as_text=True)
         builder.save(as_text=False)
+        export_weights(self.model, os.path.join(filepath, 'weights.bin'))
+        export_weights(self.model, os.path.join(filepath, 'weights_int8.bin'), quantized=True)
@@ -0,0 +1,454 @@
+package to.joeli.jass.game;
+
+import to.joeli.jass.client.game.*;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
+import to.joeli.jass.game.mode.LegalMoveGenerator;
+import to.joeli.jass.game.mode.Mode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact representation of a game in the card playing phase, intended for simulations (e.g. playouts).
+ * <p>
+ * The hands, the played cards and the current trick are stored as bitmasks and packed ints with one bit per
+ * {@link Card#ordinal()}. Players are identified by their position in the initial playing order of the game
+ * (0 to 3). The next player is always the next position and the positions 0 and 2 form team 0, the positions 1 and 3
+ * form team 1.
+ * <p>
+ * The state keeps its {@link Zobrist} hash up to date with every move, so that transpositions can be detected.
+ * <p>
+ * Moves can be made and unmade without allocating any objects. Use {@link #fromGame(Game)} and {@link #toGame(Game)}
+ * to convert between this representation and the object graph used by the rest of the client.
+ * {@link #fromPosition(Game)} only takes the current position of a game (e.g. for the endgame solver), which is much
+ * cheaper than replaying all the moves of the game.
+ */
+public final class GameState {
+
+	public static final int NUMBER_OF_PLAYERS = 4;
+	public static final int NUMBER_OF_TRICKS = Game.LAST_ROUND_NUMBER + 1;
+
+	private static final int CARD_BITS = 6;
+	private static final int CARD_BITS_MASK = (1 << CARD_BITS) - 1;
+
+	private final Mode mode;
+	private final int modeCode;
+	private final int[] strengths;
+	private final int[] scores;
+	private final int trumpfSuit;
+	private final int factor;
+	private final int lastTrickBonus;
+	private final boolean shifted;
+	private final int[] seatIds;
+
+	private final long[] hands = new long[NUMBER_OF_PLAYERS];
+	private long playedCards;
+	private int trick; // the ordinals of the cards in the current trick, CARD_BITS per card in playing order
+	private int trickSize;
+	private int leader;
+	private int trickNumber;
+	private final int[] teamScores = new int[2];
+	private long hash;
+
+	// Needed for unmaking moves and for the conversion back to a game
+	private final int startingPlayer;
+	private int firstMove; // the moves before are not known if the state was created from a position
+	private int numberOfMoves;
+	private final int[] history = new int[CardMasks.NUMBER_OF_CARDS];
+	private final int[] trickLeaders = new int[NUMBER_OF_TRICKS];
+	private final int[] trickScores = new int[NUMBER_OF_TRICKS];
+
+	private GameState(Mode mode, boolean shifted, int[] seatIds, int startingPlayer) {
+		if (mode.getTrumpfName() == Trumpf.SCHIEBE)
+			throw new IllegalArgumentException("The cards can only be played in a trumpf, top down or bottom up mode, but was " + mode);
+		this.mode = mode;
+		this.modeCode = mode.getCode();
+		this.strengths = mode.getCardStrengths();
+		this.scores = mode.getCardScores();
+		this.trumpfSuit = mode.isTrumpfMode() ? CardMasks.suitIndex(mode.getTrumpfColor()) : -1;
+		this.factor = mode.getFactor();
+		this.lastTrickBonus = mode.getLastRoundBonus();
+		this.shifted = shifted;
+		this.seatIds = seatIds;
+		this.startingPlayer = startingPlayer;
+		this.leader = startingPlayer;
+		this.hash = Zobrist.mode(modeCode) ^ Zobrist.leader(startingPlayer);
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param state
+	 */
+	public GameState(GameState state) {
+		this(state.mode, state.shifted, state.seatIds, state.startingPlayer);
+		System.arraycopy(state.hands, 0, hands, 0, NUMBER_OF_PLAYERS);
+		this.playedCards = state.playedCards;
+		this.trick = state.trick;
+		this.trickSize = state.trickSize;
+		this.leader = state.leader;
+		this.trickNumber = state.trickNumber;
+		System.arraycopy(state.teamScores, 0, teamScores, 0, teamScores.length);
+		this.hash = state.hash;
+		this.firstMove = state.firstMove;
+		this.numberOfMoves = state.numberOfMoves;
+		System.arraycopy(state.history, firstMove, history, firstMove, numberOfMoves - firstMove);
+		System.arraycopy(state.trickLeaders, 0, trickLeaders, 0, NUMBER_OF_TRICKS);
+		System.arraycopy(state.trickScores, 0, trickScores, 0, NUMBER_OF_TRICKS);
+	}
+
+	/**
+	 * Creates the state of the given game. The hands are taken from the players of the playing order.
+	 *
+	 * @param game
+	 * @return
+	 */
+	public static GameState fromGame(Game game) {
+		final List<Player> players = checkPlayers(game);
+		final List<Move> moves = game.getAlreadyPlayedMovesInOrder();
+		final Player startingPlayer = moves.isEmpty() ? game.getCurrentPlayer() : moves.get(0).getPlayer();
+
+		final GameState state = new GameState(game.getMode(), game.isShifted(), getSeatIds(players), players.indexOf(startingPlayer));
+		// The hands at the start of the game are needed to replay the moves
+		for (int i = 0; i < NUMBER_OF_PLAYERS; i++)
+			state.hands[i] = CardMasks.toMask(players.get(i).getCards());
+		for (Move move : moves)
+			state.hands[players.indexOf(move.getPlayer())] |= CardMasks.bit(move.getPlayedCard());
+		for (int i = 0; i < NUMBER_OF_PLAYERS; i++)
+			for (long hand = state.hands[i]; hand != 0; hand &= hand - 1)
+				state.hash ^= Zobrist.card(Long.numberOfTrailingZeros(hand), i);
+		for (Move move : moves)
+			state.makeMove(move.getPlayedCard());
+
+		if (state.getCurrentPlayer() != players.indexOf(game.getCurrentPlayer()))
+			throw new IllegalArgumentException("The moves of the game do not correspond to its playing order.");
+		return state;
+	}
+
+	/**
+	 * Creates the state of the current position of the given game from the hands, the current trick and the scores of
+	 * the game, without replaying the moves before the current trick. These moves cannot be unmade and the state
+	 * cannot be converted back with {@link #toGame(Game)}.
+	 *
+	 * @param game
+	 * @return
+	 */
+	public static GameState fromPosition(Game game) {
+		final List<Player> players = checkPlayers(game);
+		final GameState state = new GameState(game.getMode(), game.isShifted(), getSeatIds(players), players.indexOf(game.getCurrentPlayer()));
+		state.setPosition(game);
+		return state;
+	}
+
+	/**
+	 * Checks if this state can be set to the positions of the given game with {@link #setPosition(Game)}, i.e. if the
+	 * game is played in the same mode by the same players in the same order.
+	 *
+	 * @param game
+	 * @return
+	 */
+	public boolean hasSetupOf(Game game) {
+		if (!mode.equals(game.getMode()) || shifted != game.isShifted())
+			return false;
+		final List<Player> players = game.getPlayers();
+		for (int i = 0; i < NUMBER_OF_PLAYERS; i++)
+			if (players.get(i).getSeatId() != seatIds[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Sets this state to the current position of the given game like {@link #fromPosition(Game)}, without allocating
+	 * anything. The game has to be played in the same setup as this state (see {@link #hasSetupOf(Game)}).
+	 *
+	 * @param game
+	 */
+	public void setPosition(Game game) {
+		final Round round = game.getCurrentRound();
+		if (round.roundFinished())
+			throw new IllegalArgumentException("The position can only be taken while a trick is being played.");
+		final List<Player> players = game.getPlayers();
+		final List<Move> moves = round.getMoves();
+
+		playedCards = game.getAlreadyPlayedCardsMask();
+		leader = players.indexOf(moves.isEmpty() ? game.getCurrentPlayer() : moves.get(0).getPlayer());
+		trickNumber = round.getRoundNumber();
+		firstMove = trickNumber * NUMBER_OF_PLAYERS;
+		numberOfMoves = firstMove;
+		trick = 0;
+		trickSize = 0;
+		hash = Zobrist.mode(modeCode) ^ Zobrist.leader(leader);
+		for (int i = 0; i < NUMBER_OF_PLAYERS; i++) {
+			hands[i] = CardMasks.toMask(players.get(i).getCards());
+			for (long hand = hands[i]; hand != 0; hand &= hand - 1)
+				hash ^= Zobrist.card(Long.numberOfTrailingZeros(hand), i);
+		}
+		for (Move move : moves) {
+			final int ordinal = move.getPlayedCard().ordinal();
+			trick |= ordinal << (CARD_BITS * trickSize);
+			trickSize++;
+			history[numberOfMoves++] = ordinal;
+			hash ^= Zobrist.trickCard(ordinal);
+		}
+		for (int i = 0; i < teamScores.length; i++)
+			teamScores[getTeam(i)] = game.getResult().getTeamScore(players.get(i));
+	}
+
+	private static List<Player> checkPlayers(Game game) {
+		final List<Player> players = game.getPlayers();
+		if (players.size() != NUMBER_OF_PLAYERS)
+			throw new IllegalArgumentException("A game state can only be created for exactly four players.");
+		if (!players.get(0).isPartner(players.get(2)) || !players.get(1).isPartner(players.get(3)))
+			throw new IllegalArgumentException("The teams have to alternate in the playing order.");
+		return players;
+	}
+
+	private static int[] getSeatIds(List<Player> players) {
+		final int[] seatIds = new int[NUMBER_OF_PLAYERS];
+		for (int i = 0; i < NUMBER_OF_PLAYERS; i++)
+			seatIds[i] = players.get(i).getSeatId();
+		return seatIds;
+	}
+
+	/**
+	 * Creates a new game corresponding to this state. The players (with their strategies) and the teams are copied
+	 * from the given reference game which has to contain the same players as the game this state was created from.
+	 *
+	 * @param reference
+	 * @return
+	 */
+	public Game toGame(Game reference) {
+		if (firstMove > 0)
+			throw new IllegalStateException("The moves before the current position are not known.");
+		final List<Player> players = new ArrayList<>();
+		for (Player player : reference.getPlayers())
+			players.add(new Player(player));
+		final Team teamA = copyTeam(reference.getResult().getTeamAScore().getTeam(), players);
+		final Team teamB = copyTeam(reference.getResult().getTeamBScore().getTeam(), players);
+
+		// The cards still have to be in the hands when the moves are replayed
+		for (int i = 0; i < NUMBER_OF_PLAYERS; i++)
+			players.get(i).setCards(CardMasks.toSet(hands[i]));
+		for (int i = 0; i < numberOfMoves; i++)
+			players.get(getPlayerOfMove(i)).getCards().add(CardMasks.card(history[i]));
+
+		final PlayingOrder order = PlayingOrder.createOrderStartingFromPlayer(players, players.get(startingPlayer));
+		final List<Team> teams = new ArrayList<>();
+		teams.add(teamA);
+		teams.add(teamB);
+		final Game game = Game.startGame(mode, order, teams, shifted);
+		for (int i = 0; i < numberOfMoves; i++) {
+			final Player player = game.getCurrentPlayer();
+			final Card card = CardMasks.card(history[i]);
+			game.makeMove(new Move(player, card));
+			player.getCards().remove(card);
+			if (game.getCurrentRound().roundFinished())
+				game.startNextRound();
+		}
+		return game;
+	}
+
+	private static Team copyTeam(Team team, List<Player> players) {
+		final List<Player> teamPlayers = new ArrayList<>();
+		for (Player player : team.getPlayers())
+			teamPlayers.add(players.get(players.indexOf(player)));
+		return new Team(team.getTeamName(), teamPlayers);
+	}
+
+	public void makeMove(Card card) {
+		makeMove(card.ordinal());
+	}
+
+	/**
+	 * Plays the card with the given ordinal for the current player. When the trick is complete it is scored
+	 * and the winner leads the next trick.
+	 *
+	 * @param ordinal
+	 */
+	public void makeMove(int ordinal) {
+		final int player = getCurrentPlayer();
+		final long bit = 1L << ordinal;
+		if ((hands[player] & bit) == 0)
+			throw new IllegalArgumentException("The player at position " + player + " does not have the card " + CardMasks.card(ordinal));
+
+		hands[player] &= ~bit;
+		playedCards |= bit;
+		hash ^= Zobrist.card(ordinal, player) ^ Zobrist.trickCard(ordinal);
+		trick |= ordinal << (CARD_BITS * trickSize);
+		trickSize++;
+		history[numberOfMoves++] = ordinal;
+
+		if (trickSize == NUMBER_OF_PLAYERS)
+			finishTrick();
+	}
+
+	private void finishTrick() {
+		final int winningIndex = determineWinningIndex();
+		int score = 0;
+		for (int i = 0; i < NUMBER_OF_PLAYERS; i++)
+			score += scores[getTrickCard(i)];
+		score *= factor;
+		if (trickNumber == Game.LAST_ROUND_NUMBER)
+			score += lastTrickBonus;
+
+		for (int i = 0; i < NUMBER_OF_PLAYERS; i++)
+			hash ^= Zobrist.trickCard(getTrickCard(i));
+		trickLeaders[trickNumber] = leader;
+		trickScores[trickNumber] = score;
+		hash ^= Zobrist.leader(leader);
+		leader = (leader + winningIndex) % NUMBER_OF_PLAYERS;
+		hash ^= Zobrist.leader(leader);
+		teamScores[getTeam(leader)] += score;
+		trickNumber++;
+		trick = 0;
+		trickSize = 0;
+	}
+
+	private int determineWinningIndex() {
+		final int leadSuit = CardMasks.suitOf(getTrickCard(0));
+		int winningIndex = 0;
+		int winningStrength = strengths[getTrickCard(0)];
+		for (int i = 1; i < trickSize; i++) {
+			final int card = getTrickCard(i);
+			final int suit = CardMasks.suitOf(card);
+			if ((suit == leadSuit || suit == trumpfSuit) && strengths[card] > winningStrength) {
+				winningIndex = i;
+				winningStrength = strengths[card];
+			}
+		}
+		return winningIndex;
+	}
+
+	/**
+	 * Returns the cards the current player is allowed to play.
+	 *
+	 * @return
+	 */
+	public long getLegalCards() {
+		if (trickSize == 0)
+			return hands[getCurrentPlayer()];
+		final int leadSuit = CardMasks.suitOf(getTrickCard(0));
+		final int highestTrumpf = LegalMoveGenerator.getHighestTrumpf(getTrickCards(), modeCode);
+		return LegalMoveGenerator.getLegalCards(hands[getCurrentPlayer()], leadSuit, highestTrumpf, modeCode);
+	}
+
+	/**
+	 * Takes back the last move made. If this move completed a trick, the score of the trick is taken back as well.
+	 */
+	public void unmakeMove() {
+		if (numberOfMoves == firstMove)
+			throw new IllegalStateException("There is no move to unmake.");
+
+		if (trickSize == 0) {
+			trickNumber--;
+			teamScores[getTeam(leader)] -= trickScores[trickNumber];
+			hash ^= Zobrist.leader(leader) ^ Zobrist.leader(trickLeaders[trickNumber]);
+			leader = trickLeaders[trickNumber];
+			final int start = trickNumber * NUMBER_OF_PLAYERS;
+			for (int i = 0; i < NUMBER_OF_PLAYERS; i++) {
+				trick |= history[start + i] << (CARD_BITS * i);
+				hash ^= Zobrist.trickCard(history[start + i]);
+			}
+			trickSize = NUMBER_OF_PLAYERS;
+		}
+
+		final int ordinal = history[--numberOfMoves];
+		final long bit = 1L << ordinal;
+		trickSize--;
+		trick &= ~(CARD_BITS_MASK << (CARD_BITS * trickSize));
+		playedCards &= ~bit;
+		hands[getCurrentPlayer()] |= bit;
+		hash ^= Zobrist.card(ordinal, getCurrentPlayer()) ^ Zobrist.trickCard(ordinal);
+	}
+
+	private int getPlayerOfMove(int moveIndex) {
+		final int trickLeader = moveIndex / NUMBER_OF_PLAYERS < trickNumber ? trickLeaders[moveIndex / NUMBER_OF_PLAYERS] : leader;
+		return (trickLeader + moveIndex % NUMBER_OF_PLAYERS) % NUMBER_OF_PLAYERS;
+	}
+
+	public static int getTeam(int player) {
+		return player % 2;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public boolean isShifted() {
+		return shifted;
+	}
+
+	public int getCurrentPlayer() {
+		return (leader + trickSize) % NUMBER_OF_PLAYERS;
+	}
+
+	public int getLeader() {
+		return leader;
+	}
+
+	public int getSeatId(int player) {
+		return seatIds[player];
+	}
+
+	public long getHand(int player) {
+		return hands[player];
+	}
+
+	public long getPlayedCards() {
+		return playedCards;
+	}
+
+	public int getTrickSize() {
+		return trickSize;
+	}
+
+	public int getTrickCard(int index) {
+		return (trick >>> (CARD_BITS * index)) & CARD_BITS_MASK;
+	}
+
+	public long getTrickCards() {
+		long mask = 0L;
+		for (int i = 0; i < trickSize; i++)
+			mask |= 1L << getTrickCard(i);
+		return mask;
+	}
+
+	public int getTrickNumber() {
+		return trickNumber;
+	}
+
+	public int getNumberOfMoves() {
+		return numberOfMoves;
+	}
+
+	public int getTeamScore(int team) {
+		return teamScores[team];
+	}
+
+	/**
+	 * Returns the Zobrist hash of the hands, the current trick, the leader and the mode (see {@link Zobrist}).
+	 * The scores are not part of the hash.
+	 *
+	 * @return
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	public boolean isGameOver() {
+		return trickNumber == NUMBER_OF_TRICKS;
+	}
+
+	@Override
+	public String toString() {
+		return "GameState{" +
+				"mode=" + mode +
+				", hands=[" + CardMasks.toSet(hands[0]) + ", " + CardMasks.toSet(hands[1]) + ", " + CardMasks.toSet(hands[2]) + ", " + CardMasks.toSet(hands[3]) + "]" +
+				", leader=" + leader +
+				", trickNumber=" + trickNumber +
+				", trick=" + CardMasks.toSet(getTrickCards()) +
+				", teamScores=[" + teamScores[0] + ", " + teamScores[1] + "]" +
+				'}';
+	}
+}
@@ -0,0 +1,82 @@
+package to.joeli.jass.game;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size hash table from {@link Zobrist} hashes to the bounds of the value of a state and the best move found there.
+ * <p>
+ * The table can be shared by many threads without locking: Every entry consists of two longs, the data and the hash
+ * XOR the data. A reader only accepts an entry if the two longs match the hash. When two threads write the same entry at
+ * the same time, the mixed up entry does not match any hash and is treated like an empty one.
+ * When two states fall into the same entry, the newer one replaces the older one.
+ */
+public final class TranspositionTable {
+
+	public static final long NOT_FOUND = 0L;
+	public static final int NO_MOVE = -1;
+
+	private static final int BOUND_BITS = 16;
+	private static final long BOUND_MASK = (1L << BOUND_BITS) - 1;
+	private static final int MOVE_SHIFT = 2 * BOUND_BITS;
+	private static final long MOVE_MASK = 0xFF;
+	private static final long VALID = 1L << 63; // so that the data of a stored entry is never NOT_FOUND
+
+	private final AtomicLongArray entries; // two longs per entry: the hash XOR the data and the data
+	private final int mask;
+
+	/**
+	 * @param bits the table has 2^bits entries
+	 */
+	public TranspositionTable(int bits) {
+		entries = new AtomicLongArray(2 << bits);
+		mask = (1 << bits) - 1;
+	}
+
+	/**
+	 * Looks up the entry of the hash
+	 *
+	 * @param hash
+	 * @return the data of the entry (see {@link #getLowerBound(long)}, {@link #getUpperBound(long)} and
+	 * {@link #getBestMove(long)}) or NOT_FOUND if there is no entry for the hash
+	 */
+	public long probe(long hash) {
+		final int index = index(hash);
+		final long data = entries.get(index + 1);
+		if (data == NOT_FOUND || (entries.get(index) ^ data) != hash)
+			return NOT_FOUND;
+		return data;
+	}
+
+	/**
+	 * Stores the bounds of the value and the best move of the state with the given hash
+	 *
+	 * @param hash
+	 * @param lowerBound between Short.MIN_VALUE and Short.MAX_VALUE
+	 * @param upperBound between Short.MIN_VALUE and Short.MAX_VALUE
+	 * @param bestMove   between 0 and 254 or NO_MOVE
+	 */
+	public void store(long hash, int lowerBound, int upperBound, int bestMove) {
+		final long data = VALID | (lowerBound & BOUND_MASK) | (upperBound & BOUND_MASK) << BOUND_BITS | (bestMove & MOVE_MASK) << MOVE_SHIFT;
+		final int index = index(hash);
+		entries.set(index, hash ^ data);
+		entries.set(index + 1, data);
+	}
+
+	public static int getLowerBound(long data) {
+		return (short) data;
+	}
+
+	public static int getUpperBound(long data) {
+		return (short) (data >>> BOUND_BITS);
+	}
+
+	public static int getBestMove(long data) {
+		final int move = (int) (data >>> MOVE_SHIFT & MOVE_MASK);
+		return move == MOVE_MASK ? NO_MOVE : move;
+	}
+
+	private int index(long hash) {
+		// The lower bits of the hash are as random as the upper ones
+		return 2 * ((int) hash & mask);
+	}
+}
@@ -0,0 +1,59 @@
+package to.joeli.jass.game;
+
+import to.joeli.jass.game.cards.CardMasks;
+
+import java.util.Random;
+
+/**
+ * Random keys for Zobrist hashing of a {@link GameState}: The hash of a state is the XOR of the keys of
+ * <ul>
+ * <li>every card in a hand together with the position of the player holding it</li>
+ * <li>every card in the current trick</li>
+ * <li>the leader of the current trick</li>
+ * <li>the mode</li>
+ * </ul>
+ * The played cards of the finished tricks do not contribute. Like this, the states reached by playing the same tricks in
+ * a different order (transpositions) have the same hash, and every move only changes the hash by a few XORs.
+ */
+public final class Zobrist {
+
+	// INFO: Fixed seed so that the hashes are the same in every run (e.g. for debugging)
+	private static final Random RANDOM = new Random(0x5EED_1A55L);
+
+	private static final long[] CARD_KEYS = randomKeys(CardMasks.NUMBER_OF_CARDS * GameState.NUMBER_OF_PLAYERS);
+	private static final long[] TRICK_KEYS = randomKeys(CardMasks.NUMBER_OF_CARDS);
+	private static final long[] LEADER_KEYS = randomKeys(GameState.NUMBER_OF_PLAYERS);
+	private static final long[] MODE_KEYS = randomKeys(8); // the codes of the modes playing cards are between 0 and 7
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Creates new random keys, e.g. for additional parts of the state a user of the hashes needs to distinguish
+	 *
+	 * @param numKeys
+	 * @return
+	 */
+	public static synchronized long[] randomKeys(int numKeys) {
+		final long[] keys = new long[numKeys];
+		for (int i = 0; i < numKeys; i++)
+			keys[i] = RANDOM.nextLong();
+		return keys;
+	}
+
+	public static long card(int ordinal, int player) {
+		return CARD_KEYS[ordinal * GameState.NUMBER_OF_PLAYERS + player];
+	}
+
+	public static long trickCard(int ordinal) {
+		return TRICK_KEYS[ordinal];
+	}
+
+	public static long leader(int player) {
+		return LEADER_KEYS[player];
+	}
+
+	public static long mode(int modeCode) {
+		return MODE_KEYS[modeCode];
+	}
+}
@@ -0,0 +1,131 @@
+package to.joeli.jass.game.cards;
+
+import java.util.*;
+
+/**
+ * Helpers to represent sets of cards as bitmasks. Every card occupies the bit at its ordinal,
+ * so a full deck fits into the lower 36 bits of a long.
+ * <p>
+ * The cards are declared suit by suit with nine values each, so the suit index of a card (ordinal / 9)
+ * follows the declaration order in {@link Card} and not the value of the {@link Color}.
+ */
+public final class CardMasks {
+
+	public static final int NUMBER_OF_CARDS = 36;
+	public static final int CARDS_PER_SUIT = 9;
+	public static final long ALL_CARDS = (1L << NUMBER_OF_CARDS) - 1;
+
+	private static final Card[] CARDS = Card.values();
+	private static final long[] SUIT_MASKS = new long[4];
+	private static final int[] SUIT_INDICES = new int[Color.values().length];
+
+	static {
+		for (Card card : CARDS) {
+			SUIT_MASKS[suitOf(card.ordinal())] |= bit(card);
+			SUIT_INDICES[card.getColor().ordinal()] = suitOf(card.ordinal());
+		}
+	}
+
+	private CardMasks() {
+	}
+
+	public static long bit(Card card) {
+		return 1L << card.ordinal();
+	}
+
+	public static long toMask(Collection<Card> cards) {
+		long mask = 0L;
+		for (Card card : cards)
+			mask |= bit(card);
+		return mask;
+	}
+
+	public static Set<Card> toSet(long mask) {
+		Set<Card> cards = EnumSet.noneOf(Card.class);
+		while (mask != 0) {
+			cards.add(CARDS[Long.numberOfTrailingZeros(mask)]);
+			mask &= mask - 1;
+		}
+		return cards;
+	}
+
+	/**
+	 * Returns an unmodifiable view of the cards in the mask. Contrary to {@link #toSet(long)} nothing is copied,
+	 * so contains() and size() run in constant time.
+	 *
+	 * @param mask
+	 * @return
+	 */
+	public static Set<Card> asSet(long mask) {
+		return new CardSetView(mask);
+	}
+
+	public static Card card(int ordinal) {
+		return CARDS[ordinal];
+	}
+
+	public static int suitOf(int ordinal) {
+		return ordinal / CARDS_PER_SUIT;
+	}
+
+	public static int suitIndex(Color color) {
+		return SUIT_INDICES[color.ordinal()];
+	}
+
+	public static long suitMask(int suitIndex) {
+		return SUIT_MASKS[suitIndex];
+	}
+
+	public static long colorMask(Color color) {
+		return SUIT_MASKS[suitIndex(color)];
+	}
+
+	public static int size(long mask) {
+		return Long.bitCount(mask);
+	}
+
+	private static final class CardSetView extends AbstractSet<Card> {
+
+		private final long mask;
+
+		private CardSetView(long mask) {
+			this.mask = mask;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof Card && (mask & bit((Card) o)) != 0;
+		}
+
+		@Override
+		public int size() {
+			return Long.bitCount(mask);
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return mask == 0;
+		}
+
+		@Override
+		public Iterator<Card> iterator() {
+			return new Iterator<Card>() {
+				private long remaining = mask;
+
+				@Override
+				public boolean hasNext() {
+					return remaining != 0;
+				}
+
+				@Override
+				public Card next() {
+					if (remaining == 0)
+						throw new NoSuchElementException();
+					final Card card = CARDS[Long.numberOfTrailingZeros(remaining)];
+					remaining &= remaining - 1;
+					return card;
+				}
+			};
+		}
+	}
+}
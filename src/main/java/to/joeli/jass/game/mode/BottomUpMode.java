@@ -3,6 +3,7 @@ package to.joeli.jass.game.mode;
 import to.joeli.jass.client.game.Game;
 import to.joeli.jass.game.Trumpf;
 import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardValue;
 import to.joeli.jass.game.cards.Color;
 
 import java.util.Comparator;
@@ -14,6 +15,16 @@ import static java.lang.String.valueOf;
 class BottomUpMode extends Mode {
     private static final int FACTOR = 1;
 
+    private static final int[] CARD_STRENGTHS = new int[Card.values().length];
+    private static final int[] CARD_SCORES = new int[Card.values().length];
+
+    static {
+        for (Card card : Card.values()) {
+            CARD_STRENGTHS[card.ordinal()] = CardValue.ACE.getRank() + 1 - card.getRank();
+            CARD_SCORES[card.ordinal()] = card.getValue().getBottomUpScore();
+        }
+    }
+
     @Override
     public Trumpf getTrumpfName() {
         return Trumpf.UNDEUFE;
@@ -39,9 +50,20 @@ class BottomUpMode extends Mode {
 
     @Override
     public int calculateScore(Set<Card> playedCards) {
-        return FACTOR * playedCards.stream()
-                .mapToInt(card -> card.getValue().getBottomUpScore())
-                .sum();
+        int score = 0;
+        for (Card card : playedCards)
+            score += CARD_SCORES[card.ordinal()];
+        return FACTOR * score;
+    }
+
+    @Override
+    public int[] getCardStrengths() {
+        return CARD_STRENGTHS;
+    }
+
+    @Override
+    public int[] getCardScores() {
+        return CARD_SCORES;
     }
 
 
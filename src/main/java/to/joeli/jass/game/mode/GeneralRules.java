@@ -29,7 +29,8 @@ class GeneralRules {
 			return Optional.empty();
 		}
 		final Color firstCardColor = cards.get(0).getColor();
-		// TODO to optimize performance replace this stream with for loop
+		// NOTE: Mode.determineWinningCard does the same with a loop over the precomputed card strengths.
+		// This is kept as reference for the tests and benchmarks
 		return cards.stream()
 				.filter(allCardsWithColorOrTrumpfColor(firstCardColor, trumpfColor))
 				.max(cardRankComparator);
@@ -0,0 +1,117 @@
+package to.joeli.jass.game.mode;
+
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
+import to.joeli.jass.game.cards.CardValue;
+import to.joeli.jass.game.cards.Color;
+
+/**
+ * Computes the cards which can be played according to the rules on bitmasks (see {@link CardMasks}).
+ * The result is the same as calling {@link Mode#canPlayCard(Card, java.util.Set, Color, java.util.Set)} for every card
+ * of the hand, including the fallback to the whole hand when no card would be valid.
+ */
+public final class LegalMoveGenerator {
+
+	public static final int NO_SUIT = -1;
+	public static final int NO_CARD = -1;
+
+	// Indexed by card ordinal: The cards of the same suit with a higher trumpf rank
+	private static final long[] HIGHER_TRUMPFS = new long[CardMasks.NUMBER_OF_CARDS];
+	// Indexed by card ordinal
+	private static final int[] TRUMPF_RANKS = new int[CardMasks.NUMBER_OF_CARDS];
+	// Indexed by suit index
+	private static final long[] JACKS = new long[4];
+	// Indexed by mode code, NO_SUIT for the modes without trumpf
+	private static final int[] TRUMPF_SUITS = new int[]{NO_SUIT, NO_SUIT, NO_SUIT, NO_SUIT, NO_SUIT, NO_SUIT};
+
+	static {
+		for (Card card : Card.values()) {
+			TRUMPF_RANKS[card.ordinal()] = card.getTrumpfRank();
+			for (Card other : Card.values())
+				if (card.hasSameColor(other) && other.isHigherTrumpfThan(card))
+					HIGHER_TRUMPFS[card.ordinal()] |= CardMasks.bit(other);
+			if (card.getValue() == CardValue.JACK)
+				JACKS[CardMasks.suitOf(card.ordinal())] = CardMasks.bit(card);
+		}
+		for (Color color : Color.values())
+			TRUMPF_SUITS[color.getValue()] = CardMasks.suitIndex(color);
+	}
+
+	private LegalMoveGenerator() {
+	}
+
+	/**
+	 * Returns the legal cards of the hand in the given mode
+	 *
+	 * @param hand          the cards of the player
+	 * @param leadSuit      the suit index of the first card of the trick or NO_SUIT if the trick is empty
+	 * @param highestTrumpf the ordinal of the highest trumpf in the trick or NO_CARD if no trumpf was played
+	 * @param mode
+	 * @return
+	 */
+	public static long getLegalCards(long hand, int leadSuit, int highestTrumpf, Mode mode) {
+		return getLegalCards(hand, leadSuit, highestTrumpf, mode.getCode());
+	}
+
+	public static long getLegalCards(long hand, int leadSuit, int highestTrumpf, int modeCode) {
+		if (leadSuit == NO_SUIT)
+			return hand;
+		if (modeCode < 0 || modeCode >= TRUMPF_SUITS.length)
+			return hand; // No card can be played when shifting, so we fall back to all the cards
+
+		final long leadCards = hand & CardMasks.suitMask(leadSuit);
+		final int trumpfSuit = TRUMPF_SUITS[modeCode];
+		if (trumpfSuit == NO_SUIT)
+			return leadCards != 0 ? leadCards : hand;
+
+		final long trumpfCards = hand & CardMasks.suitMask(trumpfSuit);
+		if (trumpfCards == hand)
+			return hand;
+
+		if (leadSuit == trumpfSuit) {
+			// The jack of trumpf does not have to be played
+			if ((trumpfCards & ~JACKS[trumpfSuit]) == 0)
+				return hand;
+			return trumpfCards;
+		}
+
+		final long higherTrumpfCards = highestTrumpf == NO_CARD ? trumpfCards : trumpfCards & HIGHER_TRUMPFS[highestTrumpf];
+		// Undertrumping is not allowed
+		final long legalCards = (leadCards != 0 ? leadCards : hand & ~trumpfCards) | higherTrumpfCards;
+		return legalCards != 0 ? legalCards : hand;
+	}
+
+	/**
+	 * Returns the legal cards of the hand given the cards already played in the current trick
+	 *
+	 * @param hand
+	 * @param trick    the cards of the current trick
+	 * @param leadSuit the suit index of the first card of the trick or NO_SUIT if the trick is empty
+	 * @param mode
+	 * @return
+	 */
+	public static long getLegalCards(long hand, long trick, int leadSuit, Mode mode) {
+		return getLegalCards(hand, leadSuit, getHighestTrumpf(trick, mode.getCode()), mode.getCode());
+	}
+
+	/**
+	 * Returns the ordinal of the highest trumpf among the given cards or NO_CARD if there is none
+	 *
+	 * @param cards
+	 * @param modeCode
+	 * @return
+	 */
+	public static int getHighestTrumpf(long cards, int modeCode) {
+		if (modeCode < 0 || modeCode >= TRUMPF_SUITS.length || TRUMPF_SUITS[modeCode] == NO_SUIT)
+			return NO_CARD;
+		long trumpfCards = cards & CardMasks.suitMask(TRUMPF_SUITS[modeCode]);
+		int highestTrumpf = NO_CARD;
+		while (trumpfCards != 0) {
+			final int card = Long.numberOfTrailingZeros(trumpfCards);
+			if (highestTrumpf == NO_CARD || TRUMPF_RANKS[card] > TRUMPF_RANKS[highestTrumpf])
+				highestTrumpf = card;
+			trumpfCards &= trumpfCards - 1;
+		}
+		return highestTrumpf;
+	}
+}
@@ -94,22 +94,53 @@ public abstract class Mode {
 
 
 	public Card determineWinningCard(List<Card> cards) {
-		return GeneralRules.determineWinnerCard(cards, createRankComparator(), Optional.ofNullable(getTrumpfColor())).orElse(null);
+		if (cards == null || cards.isEmpty())
+			return null;
+		final int[] cardStrengths = getCardStrengths();
+		final Color trumpfColor = getTrumpfColor();
+		final Color roundColor = cards.get(0).getColor();
+		Card winningCard = cards.get(0);
+		for (int i = 1; i < cards.size(); i++) {
+			final Card card = cards.get(i);
+			if ((card.getColor() == roundColor || card.getColor() == trumpfColor) && cardStrengths[card.ordinal()] > cardStrengths[winningCard.ordinal()])
+				winningCard = card;
+		}
+		return winningCard;
 	}
 
 	public Move determineWinningMove(List<Move> moves) {
-		List<Card> cards = new ArrayList<>();
-		for (Move move : moves) {
-			Card playedCard = move.getPlayedCard();
-			cards.add(playedCard);
-		}
-		Card winningCard = determineWinningCard(cards);
-		for (Move move : moves) {
-			if (winningCard == move.getPlayedCard()) {
-				return move;
-			}
+		if (moves.isEmpty())
+			return null;
+		final int[] cardStrengths = getCardStrengths();
+		final Color trumpfColor = getTrumpfColor();
+		final Color roundColor = moves.get(0).getPlayedCard().getColor();
+		Move winningMove = moves.get(0);
+		for (int i = 1; i < moves.size(); i++) {
+			final Move move = moves.get(i);
+			final Card card = move.getPlayedCard();
+			if ((card.getColor() == roundColor || card.getColor() == trumpfColor) && cardStrengths[card.ordinal()] > cardStrengths[winningMove.getPlayedCard().ordinal()])
+				winningMove = move;
 		}
-		return null;
+		return winningMove;
+	}
+
+	/**
+	 * Returns the strength of every card (indexed by the ordinal) when it competes for a trick.
+	 * Only cards of the round color or the trumpf color can win a trick. The array must not be modified.
+	 *
+	 * @return
+	 */
+	public abstract int[] getCardStrengths();
+
+	/**
+	 * Returns the score of every card (indexed by the ordinal) without the factor. The array must not be modified.
+	 *
+	 * @return
+	 */
+	public abstract int[] getCardScores();
+
+	public int getLastRoundBonus() {
+		return GeneralRules.calculateLastRoundBonus(getFactor());
 	}
 
 	public abstract boolean canPlayCard(Card card, Set<Card> alreadyPlayedCards, Color currentRoundColor, Set<Card> playerCards);
@@ -13,6 +13,9 @@ import static java.lang.String.valueOf;
 
 public class ShiftMode extends Mode {
 
+	// No cards are played when shifting
+	private static final int[] CARD_VALUES = new int[Card.values().length];
+
 	@Override
 	public int getCode() {
 		// This should not be called from the neural network data generation part!
@@ -39,11 +42,26 @@ public class ShiftMode extends Mode {
 		return 0;
 	}
 
+	@Override
+	public Card determineWinningCard(List<Card> cards) {
+		return null;
+	}
+
 	@Override
 	public Move determineWinningMove(List<Move> moves) {
 		return null;
 	}
 
+	@Override
+	public int[] getCardStrengths() {
+		return CARD_VALUES;
+	}
+
+	@Override
+	public int[] getCardScores() {
+		return CARD_VALUES;
+	}
+
 	@Override
 	public boolean canPlayCard(Card card, Set<Card> alreadyPlayedCards, Color currentRoundColor, Set<Card> playerCards) {
 		return false;
@@ -13,6 +13,16 @@ import static java.lang.String.valueOf;
 class TopDownMode extends Mode {
 	private static final int FACTOR = 1;
 
+	private static final int[] CARD_STRENGTHS = new int[Card.values().length];
+	private static final int[] CARD_SCORES = new int[Card.values().length];
+
+	static {
+		for (Card card : Card.values()) {
+			CARD_STRENGTHS[card.ordinal()] = card.getRank();
+			CARD_SCORES[card.ordinal()] = card.getValue().getScore();
+		}
+	}
+
 	@Override
 	public Trumpf getTrumpfName() {
 		return Trumpf.OBEABE;
@@ -38,9 +48,20 @@ class TopDownMode extends Mode {
 
 	@Override
 	public int calculateScore(Set<Card> playedCards) {
-		return FACTOR * playedCards.stream()
-				.mapToInt(card -> card.getValue().getScore())
-				.sum();
+		int score = 0;
+		for (Card card : playedCards)
+			score += CARD_SCORES[card.ordinal()];
+		return FACTOR * score;
+	}
+
+	@Override
+	public int[] getCardStrengths() {
+		return CARD_STRENGTHS;
+	}
+
+	@Override
+	public int[] getCardScores() {
+		return CARD_SCORES;
 	}
 
 	@Override
@@ -12,6 +12,25 @@ import java.util.Set;
 
 class TrumpfColorMode extends Mode {
 
+	// The strength of every trumpf is higher than the strength of any other card
+	private static final int TRUMPF_STRENGTH_OFFSET = 20;
+
+	// Indexed by the value of the trumpf color and the ordinal of the card
+	private static final int[][] CARD_STRENGTHS = new int[4][Card.values().length];
+	private static final int[][] CARD_SCORES = new int[4][Card.values().length];
+
+	static {
+		for (Color trumpfColor : Color.values()) {
+			for (Card card : Card.values()) {
+				final boolean trumpf = card.getColor() == trumpfColor;
+				final CardValue value = card.getValue();
+				CARD_STRENGTHS[trumpfColor.getValue()][card.ordinal()] = trumpf ? TRUMPF_STRENGTH_OFFSET + value.getTrumpfRank() : value.getRank();
+				if (value != CardValue.EIGHT)
+					CARD_SCORES[trumpfColor.getValue()][card.ordinal()] = trumpf ? value.getTrumpfScore() : value.getScore();
+			}
+		}
+	}
+
 	private final Color trumpfColor;
 
 	public TrumpfColorMode(Color trumpfColor) {
@@ -43,20 +62,22 @@ class TrumpfColorMode extends Mode {
 
 	@Override
 	public int calculateScore(Set<Card> playedCards) {
+		final int[] cardScores = getCardScores();
 		int score = 0;
 		for (Card card : playedCards)
-			score += getCardScore(card);
+			score += cardScores[card.ordinal()];
 
 		return getFactor() * score;
 	}
 
-	private int getCardScore(Card card) {
-		if (card.getValue() == CardValue.EIGHT) return 0;
-		if (isTrumpf(card)) {
-			return card.getValue().getTrumpfScore();
-		} else {
-			return card.getValue().getScore();
-		}
+	@Override
+	public int[] getCardStrengths() {
+		return CARD_STRENGTHS[trumpfColor.getValue()];
+	}
+
+	@Override
+	public int[] getCardScores() {
+		return CARD_SCORES[trumpfColor.getValue()];
 	}
 
 
@@ -0,0 +1,70 @@
+package to.joeli.jass.client.game;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AppendOnlyListTest {
+
+	private final AppendOnlyList<String> list = AppendOnlyList.<String>empty(2).append("a").append("b");
+
+	@Test
+	public void testAppendDoesNotChangeTheList() {
+		final AppendOnlyList<String> appended = list.append("c");
+
+		assertEquals(asList("a", "b"), list);
+		assertEquals(asList("a", "b", "c"), appended);
+	}
+
+	@Test
+	public void testListsAppendedFromTheSameListAreIndependent() {
+		final AppendOnlyList<String> first = list.append("c");
+		final AppendOnlyList<String> second = list.append("d").append("e");
+
+		assertEquals(asList("a", "b", "c"), first);
+		assertEquals(asList("a", "b", "d", "e"), second);
+	}
+
+	@Test
+	public void testTruncatedListCanBeAppendedAgain() {
+		final AppendOnlyList<String> truncated = list.truncate(1);
+
+		assertEquals(asList("a"), truncated);
+		assertEquals(asList("a", "c"), truncated.append("c"));
+		assertEquals(asList("a", "b"), list);
+		assertEquals(asList("a", "b", "d"), truncated.appendAll(asList("b", "d")));
+	}
+
+	@Test
+	public void testOnlyTheElementsAppendedBeforeSharingAreShared() {
+		assertFalse(list.isShared(1));
+
+		final AppendOnlyList<String> appended = list.share().append("c");
+
+		assertTrue(appended.isShared(1));
+		assertFalse(appended.isShared(2));
+	}
+
+	@Test
+	public void testElementsCopiedToANewArrayAreShared() {
+		list.append("c");
+		final AppendOnlyList<String> copied = list.append("d"); // the position is taken by "c"
+
+		assertTrue(copied.isShared(1));
+		assertFalse(copied.isShared(2));
+	}
+
+	@Test
+	public void testEmptyList() {
+		assertTrue(AppendOnlyList.empty(0).isEmpty());
+		assertEquals(asList("a"), AppendOnlyList.empty(0).append("a"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testListCannotBeModified() {
+		list.add("c");
+	}
+}
@@ -0,0 +1,96 @@
+package to.joeli.jass.client.game;
+
+import org.junit.Test;
+import to.joeli.jass.client.strategy.helpers.GameSessionBuilder;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.Color;
+import to.joeli.jass.game.mode.Mode;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static to.joeli.jass.game.cards.Card.*;
+
+public class GameTest {
+
+	private final Game game = GameSessionBuilder.newSession()
+			.withStartedGame(Mode.topDown())
+			.withCardsPlayed(CLUB_QUEEN, CLUB_NINE, CLUB_KING, CLUB_SIX, CLUB_EIGHT)
+			.createGameSession().getCurrentGame();
+
+	@Test
+	public void testAlreadyPlayedCardsIncludePreviousRounds() {
+		final Set<Card> expected = EnumSet.of(CLUB_QUEEN, CLUB_NINE, CLUB_KING, CLUB_SIX, CLUB_EIGHT);
+
+		assertEquals(expected, game.getAlreadyPlayedCards());
+		assertTrue(game.getAlreadyPlayedCards().contains(CLUB_EIGHT));
+		assertFalse(game.getAlreadyPlayedCards().contains(CLUB_JACK));
+		assertEquals(asList(CLUB_QUEEN, CLUB_NINE, CLUB_KING, CLUB_SIX, CLUB_EIGHT), game.getAlreadyPlayedCardsInOrder());
+		assertEquals(5, game.getAlreadyPlayedMovesInOrder().size());
+	}
+
+	@Test
+	public void testRemainingCardsOfColor() {
+		assertEquals(EnumSet.of(CLUB_SEVEN, CLUB_TEN, CLUB_JACK, CLUB_ACE), game.getRemainingCards(Color.CLUBS));
+		assertEquals(EnumSet.allOf(Card.class).stream().filter(card -> card.getColor() == Color.HEARTS).count(), game.getRemainingCards(Color.HEARTS).size());
+	}
+
+	@Test
+	public void testAlreadyPlayedCardsIsSnapshot() {
+		final Set<Card> alreadyPlayedCards = game.getAlreadyPlayedCards();
+		final Game copy = new Game(game);
+
+		copy.makeMove(new Move(copy.getCurrentPlayer(), HEART_TEN));
+
+		assertEquals(5, alreadyPlayedCards.size());
+		assertEquals(5, game.getAlreadyPlayedCards().size());
+		assertEquals(6, copy.getAlreadyPlayedCards().size());
+		assertEquals(6, copy.getAlreadyPlayedMovesInOrder().size());
+	}
+
+	@Test
+	public void testCopySharesPreviousRounds() {
+		final Game copy = new Game(game);
+
+		assertSame(game.getPreviousRounds(), copy.getPreviousRounds());
+
+		copy.makeMove(new Move(copy.getCurrentPlayer(), CLUB_SEVEN));
+		copy.makeMove(new Move(copy.getCurrentPlayer(), CLUB_TEN));
+		copy.makeMove(new Move(copy.getCurrentPlayer(), CLUB_JACK));
+		copy.startNextRound();
+
+		assertEquals(1, game.getPreviousRounds().size());
+		assertEquals(2, copy.getPreviousRounds().size());
+		assertEquals(5, game.getAlreadyPlayedMovesInOrder().size());
+		assertEquals(8, copy.getAlreadyPlayedMovesInOrder().size());
+	}
+
+	@Test
+	public void testUndoResumesOwnRoundsInPlaceAndReplaysSharedRounds() {
+		final Game copy = new Game(game);
+		copy.makeMove(new Move(copy.getCurrentPlayer(), CLUB_SEVEN));
+		copy.makeMove(new Move(copy.getCurrentPlayer(), CLUB_TEN));
+		copy.makeMove(new Move(copy.getCurrentPlayer(), CLUB_JACK));
+		copy.startNextRound();
+		final Round ownRound = copy.getPreviousRounds().get(1);
+
+		assertEquals(CLUB_JACK, copy.undoMove().getPlayedCard());
+		assertSame(ownRound, copy.getCurrentRound());
+		assertEquals(1, copy.getCurrentRound().getRoundNumber());
+
+		copy.undoMove();
+		copy.undoMove();
+		copy.undoMove();
+		assertEquals(CLUB_SIX, copy.undoMove().getPlayedCard());
+
+		// The first round is shared with the original game, which must not see the moves taken back
+		assertEquals(0, copy.getCurrentRound().getRoundNumber());
+		assertEquals(3, copy.getCurrentRound().getMoves().size());
+		assertEquals(4, game.getPreviousRounds().get(0).getMoves().size());
+		assertEquals(asList(CLUB_QUEEN, CLUB_NINE, CLUB_KING), copy.getAlreadyPlayedCardsInOrder());
+		assertEquals(5, game.getAlreadyPlayedMovesInOrder().size());
+		assertEquals(0, copy.getResult().getTeamAScore().getScore() + copy.getResult().getTeamBScore().getScore());
+	}
+}
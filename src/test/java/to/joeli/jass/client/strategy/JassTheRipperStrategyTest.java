@@ -1,7 +1,13 @@
 package to.joeli.jass.client.strategy;
 
 import to.joeli.jass.client.game.*;
+import to.joeli.jass.client.strategy.config.Config;
+import to.joeli.jass.client.strategy.config.MCTSConfig;
+import to.joeli.jass.client.strategy.config.RunMode;
+import to.joeli.jass.client.strategy.config.StrengthLevel;
+import to.joeli.jass.client.strategy.helpers.CardSelectionHelper;
 import to.joeli.jass.client.strategy.helpers.GameSessionBuilder;
+import to.joeli.jass.client.strategy.helpers.MCTSHelperTest;
 import to.joeli.jass.game.cards.Card;
 import to.joeli.jass.game.mode.Mode;
 import org.junit.Before;
@@ -90,4 +96,40 @@ public class JassTheRipperStrategyTest {
 
 
 	}
-}
\ No newline at end of file
+
+	@Test(timeout = 60000)
+	public void testPonderingRunsWhileTheOtherPlayersChooseTheirCards() {
+		final MCTSConfig mctsConfig = new MCTSConfig(StrengthLevel.FAST, StrengthLevel.STRONG);
+		mctsConfig.setRunMode(RunMode.RUNS);
+		mctsConfig.setPonderingEnabled(true);
+		mctsConfig.setEndgameSolverThreshold(0); // otherwise there is nothing left to ponder
+		final JassTheRipperJassStrategy strategy = new JassTheRipperJassStrategy(new Config(mctsConfig));
+		final GameSession gameSession = GameSessionBuilder.newSession()
+				.withStartedClubsGameWithRoundsPlayed(5)
+				.createGameSession();
+		strategy.onSessionStarted(gameSession);
+		final Game game = gameSession.getCurrentGame();
+		final Player player = game.getCurrentPlayer();
+
+		final Card card = strategy.chooseCard(player.getCards(), gameSession);
+		assertFalse(strategy.isPondering());
+
+		playMove(gameSession, strategy, new Move(player, card));
+		assertTrue(strategy.isPondering());
+
+		final Player opponent = game.getCurrentPlayer();
+		playMove(gameSession, strategy, new Move(opponent, CardSelectionHelper.getCardsPossibleToPlay(opponent.getCards(), game).iterator().next()));
+		assertTrue(strategy.isPondering());
+
+		strategy.onSessionFinished();
+		assertFalse(strategy.isPondering());
+		assertFalse(MCTSHelperTest.isPonderingThreadAlive());
+		strategy.shutDown();
+	}
+
+	private static void playMove(GameSession gameSession, JassTheRipperJassStrategy strategy, Move move) {
+		gameSession.makeMove(move);
+		move.getPlayer().onMoveMade(move);
+		strategy.onMoveMade(move);
+	}
+}
@@ -0,0 +1,47 @@
+package to.joeli.jass.client.strategy;
+
+import org.junit.Test;
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.client.strategy.helpers.GameSessionBuilder;
+
+import static org.junit.Assert.*;
+
+public class TimeManagerTest {
+
+	@Test
+	public void testShareOfTheRemainingBudget() {
+		final TimeManager timeManager = new TimeManager(1000);
+		timeManager.startDecision(GameSessionBuilder.startedClubsGame(), System.currentTimeMillis() + 1000);
+
+		assertEquals(4000, timeManager.getRemainingBudget());
+		assertEquals(888, timeManager.computeShare(0));
+		assertEquals(1600, timeManager.computeShare(4));
+		assertEquals(4000, timeManager.computeShare(7));
+	}
+
+	@Test
+	public void testUnusedTimeStaysInTheBudgetOfTheGame() {
+		final TimeManager timeManager = new TimeManager(1000);
+		final Game game = GameSessionBuilder.startedClubsGame();
+		timeManager.startDecision(game, System.currentTimeMillis() + 1000);
+		timeManager.finishDecision();
+
+		timeManager.startDecision(game, System.currentTimeMillis() + 1000);
+		assertTrue(timeManager.getRemainingBudget() > 3900);
+		assertTrue(timeManager.getSoftEndingTime() <= System.currentTimeMillis() + 888);
+
+		timeManager.startDecision(GameSessionBuilder.startedClubsGame(), System.currentTimeMillis() + 1000);
+		assertEquals(4000, timeManager.getRemainingBudget());
+	}
+
+	@Test
+	public void testCanStop() {
+		final TimeManager timeManager = new TimeManager(0); // no budget: the soft limit is reached immediately
+		timeManager.startDecision(GameSessionBuilder.startedClubsGame(), System.currentTimeMillis() + 10000);
+
+		assertFalse(timeManager.canStop(new double[]{}));
+		assertTrue(timeManager.canStop(new double[]{10}));
+		assertTrue(timeManager.canStop(new double[]{100, 10, 5}));
+		assertFalse(timeManager.canStop(new double[]{100, 95, 5}));
+	}
+}
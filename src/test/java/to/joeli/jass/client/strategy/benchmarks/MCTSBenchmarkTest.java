@@ -7,6 +7,8 @@ import to.joeli.jass.client.game.Result;
 import to.joeli.jass.client.strategy.RandomJassStrategy;
 import to.joeli.jass.client.strategy.config.Config;
 import to.joeli.jass.client.strategy.config.MCTSConfig;
+import to.joeli.jass.client.strategy.config.ParallelisationMode;
+import to.joeli.jass.client.strategy.config.SearchAlgorithm;
 import to.joeli.jass.client.strategy.config.StrengthLevel;
 import to.joeli.jass.client.strategy.config.TrumpfSelectionMethod;
 import to.joeli.jass.client.strategy.helpers.GameSessionBuilder;
@@ -76,6 +78,42 @@ public class MCTSBenchmarkTest {
 	}
 
 
+	/**
+	 * Tests if it is worthwhile to search one tree shared by all the threads instead of one tree per determinization
+	 */
+	@Test
+	public void testTreeParallelisationIsWorthwhile() {
+		Config[] configs = {
+				new Config(true, false, false),
+				new Config(true, false, false)
+		};
+		configs[0].setMctsConfig(new MCTSConfig(ParallelisationMode.TREE));
+		configs[1].setMctsConfig(new MCTSConfig(ParallelisationMode.ROOT));
+
+		final double performance = arena.runMatchWithConfigs(configs);
+
+		System.out.println(performance);
+		assertTrue(performance > 100);
+	}
+
+	/**
+	 * Tests if it is worthwhile to search one tree over the information sets instead of voting over many determinized trees
+	 */
+	@Test
+	public void testInformationSetMCTSIsWorthwhile() {
+		Config[] configs = {
+				new Config(true, false, false),
+				new Config(true, false, false)
+		};
+		configs[0].setMctsConfig(new MCTSConfig(SearchAlgorithm.INFORMATION_SET));
+		configs[1].setMctsConfig(new MCTSConfig(SearchAlgorithm.DETERMINIZED));
+
+		final double performance = arena.runMatchWithConfigs(configs);
+
+		System.out.println(performance);
+		assertTrue(performance > 100);
+	}
+
 	/**
 	 * Tests if it is worthwhile to use more determinizations
 	 */
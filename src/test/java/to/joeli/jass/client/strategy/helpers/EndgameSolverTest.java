@@ -0,0 +1,75 @@
+package to.joeli.jass.client.strategy.helpers;
+
+import org.junit.Test;
+import to.joeli.jass.game.GameState;
+import to.joeli.jass.game.cards.Color;
+import to.joeli.jass.game.mode.Mode;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EndgameSolverTest {
+
+	private final EndgameSolver solver = new EndgameSolver();
+
+	@Test
+	public void testSolverFindsTheSameScoresAsMinimax() {
+		final Random random = new Random(42);
+		for (Mode mode : Mode.standardModes())
+			for (int numRemainingMoves : new int[]{1, 5, 11, 14}) {
+				final GameState state = playRandomly(GameState.fromGame(GameSessionBuilder.startedGame(mode)), random, 36 - numRemainingMoves);
+				final String before = state.toString();
+				final int team = GameState.getTeam(state.getCurrentPlayer());
+
+				final int[] teamScores = new int[2];
+				solver.solve(state, teamScores);
+
+				assertEquals(before, state.toString());
+				assertEquals(minimax(state, team), teamScores[team]);
+				assertEquals(157, teamScores[0] + teamScores[1]);
+			}
+	}
+
+	@Test
+	public void testTranspositionTableIsKeptBetweenDeterminizations() {
+		final GameState state = playRandomly(GameState.fromGame(GameSessionBuilder.startedGame(Mode.trump(Color.SPADES))), new Random(1), 16);
+		final int[] teamScores = new int[2];
+		solver.solve(state, teamScores);
+		final long numNodes = solver.getNumNodes();
+
+		final int[] secondTeamScores = new int[2];
+		solver.solve(state, secondTeamScores);
+
+		assertEquals(teamScores[0], secondTeamScores[0]);
+		assertEquals(teamScores[1], secondTeamScores[1]);
+		assertEquals(true, solver.getNumNodes() < numNodes);
+	}
+
+	private static GameState playRandomly(GameState state, Random random, int numMoves) {
+		for (int i = 0; i < numMoves; i++) {
+			long legalCards = state.getLegalCards();
+			for (int skip = random.nextInt(Long.bitCount(legalCards)); skip > 0; skip--)
+				legalCards &= legalCards - 1;
+			state.makeMove(Long.numberOfTrailingZeros(legalCards));
+		}
+		return state;
+	}
+
+	/**
+	 * Plain minimax without any pruning as reference
+	 */
+	private static int minimax(GameState state, int team) {
+		if (state.isGameOver())
+			return state.getTeamScore(team);
+		final boolean maximizing = GameState.getTeam(state.getCurrentPlayer()) == team;
+		int best = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		for (long legalCards = state.getLegalCards(); legalCards != 0; legalCards &= legalCards - 1) {
+			state.makeMove(Long.numberOfTrailingZeros(legalCards));
+			final int value = minimax(state, team);
+			state.unmakeMove();
+			best = maximizing ? Math.max(best, value) : Math.min(best, value);
+		}
+		return best;
+	}
+}
@@ -0,0 +1,98 @@
+package to.joeli.jass.client.strategy.helpers;
+
+import org.junit.Test;
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.client.game.GameSession;
+import to.joeli.jass.client.game.Move;
+import to.joeli.jass.client.game.Player;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.mode.Mode;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FeatureEncoderTest {
+
+	@Test
+	public void testEncoderWritesTheSameFeaturesAsNeuralNetworkHelper() {
+		final Random random = new Random(42);
+		for (Mode mode : Mode.standardModes())
+			for (boolean shifted : new boolean[]{false, true})
+				for (int numMoves : new int[]{0, 1, 6, 17, 35}) {
+					final Game game = playRandomly(mode, shifted, random.nextInt(4), numMoves, random);
+
+					final FloatBuffer buffer = FeatureEncoder.getThreadLocalBuffer();
+					FeatureEncoder.encodeScoreFeatures(game, buffer);
+
+					assertSameFeatures(NeuralNetworkHelper.getScoreFeatures(game), buffer, 0);
+				}
+	}
+
+	@Test
+	public void testEncoderWritesIntoTheSliceOfTheBuffer() {
+		final Random random = new Random(1);
+		final Game first = playRandomly(Mode.topDown(), false, 0, 10, random);
+		final Game second = playRandomly(Mode.bottomUp(), true, 2, 23, random);
+
+		final FloatBuffer buffer = FeatureEncoder.allocateBuffer(2);
+		FeatureEncoder.encodeScoreFeatures(first, buffer);
+		buffer.position(FeatureEncoder.NUM_FEATURES);
+		FeatureEncoder.encodeScoreFeatures(second, buffer);
+
+		assertEquals(FeatureEncoder.NUM_FEATURES, buffer.position());
+		assertSameFeatures(NeuralNetworkHelper.getScoreFeatures(first), buffer, 0);
+		assertSameFeatures(NeuralNetworkHelper.getScoreFeatures(second), buffer, FeatureEncoder.NUM_FEATURES);
+	}
+
+	@Test
+	public void testAfterstatesAreTheSameAsAfterPlayingTheCards() {
+		final Random random = new Random(7);
+		for (Mode mode : Mode.standardModes())
+			for (int numMoves : new int[]{0, 2, 3, 13, 27, 35}) {
+				final Game game = playRandomly(mode, random.nextBoolean(), random.nextInt(4), numMoves, random);
+				final Card[] cards = CardSelectionHelper.getCardsPossibleToPlay(game.getCurrentPlayer().getCards(), game).toArray(new Card[0]);
+
+				final FloatBuffer buffer = FeatureEncoder.getThreadLocalBuffer(cards.length);
+				FeatureEncoder.encodeAfterstateFeatures(game, cards, buffer);
+
+				for (int i = 0; i < cards.length; i++) {
+					final Game afterstate = new Game(game);
+					final Player player = afterstate.getCurrentPlayer();
+					final Move move = new Move(player, cards[i]);
+					afterstate.makeMove(move);
+					player.onMoveMade(move);
+					assertSameFeatures(NeuralNetworkHelper.getScoreFeatures(afterstate), buffer, i * FeatureEncoder.NUM_FEATURES);
+				}
+			}
+	}
+
+	private static Game playRandomly(Mode mode, boolean shifted, int dealer, int numMoves, Random random) {
+		final GameSession session = GameSessionBuilder.newSession().withDealer(dealer).withStartedGame(mode, shifted).createGameSession();
+		for (int i = 0; i < numMoves; i++) {
+			final Game game = session.getCurrentGame();
+			final Player player = game.getCurrentPlayer();
+			final List<Card> cards = new ArrayList<>(CardSelectionHelper.getCardsPossibleToPlay(player.getCards(), game));
+			final Move move = new Move(player, cards.get(random.nextInt(cards.size())));
+			session.makeMove(move);
+			player.onMoveMade(move);
+			if (session.getCurrentRound().roundFinished())
+				session.startNextRound();
+		}
+		return session.getCurrentGame();
+	}
+
+	/**
+	 * Compares the bits of the floats, so that the features are exactly the same
+	 */
+	private static void assertSameFeatures(float[][] expected, FloatBuffer buffer, int offset) {
+		for (int row = 0; row < FeatureEncoder.NUM_ROWS; row++)
+			for (int column = 0; column < FeatureEncoder.NUM_COLUMNS; column++)
+				assertEquals("row " + row + ", column " + column,
+						Float.floatToRawIntBits(expected[row][column]),
+						Float.floatToRawIntBits(buffer.get(offset + row * FeatureEncoder.NUM_COLUMNS + column)));
+	}
+}
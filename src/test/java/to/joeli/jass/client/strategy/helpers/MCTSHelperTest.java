@@ -2,9 +2,12 @@ package to.joeli.jass.client.strategy.helpers;
 
 import to.joeli.jass.client.game.*;
 import to.joeli.jass.client.strategy.config.MCTSConfig;
+import to.joeli.jass.client.strategy.config.ParallelisationMode;
 import to.joeli.jass.client.strategy.config.RunMode;
+import to.joeli.jass.client.strategy.config.SearchAlgorithm;
 import to.joeli.jass.client.strategy.config.StrengthLevel;
 import to.joeli.jass.client.strategy.exceptions.MCTSException;
+import to.joeli.jass.client.strategy.mcts.CardMove;
 import to.joeli.jass.game.cards.Card;
 import to.joeli.jass.game.mode.Mode;
 import org.junit.Test;
@@ -116,4 +119,147 @@ public class MCTSHelperTest {
 		mctsHelper.predictMove(cards, gameSession, false, false);
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testMCTSWithTreeParallelisation() throws MCTSException {
+		final GameSession gameSession = GameSessionBuilder.newSession()
+				.withStartedGame(Mode.bottomUp())
+				.createGameSession();
+
+		final MCTSConfig mctsConfig = new MCTSConfig(StrengthLevel.FAST, StrengthLevel.FAST_TEST);
+		mctsConfig.setRunMode(RunMode.RUNS);
+		mctsConfig.setParallelisationMode(ParallelisationMode.TREE);
+		MCTSHelper mctsHelper = new MCTSHelper(mctsConfig);
+		final Set<Card> cards = gameSession.getCurrentGame().getCurrentPlayer().getCards();
+
+		final CardMove move = (CardMove) mctsHelper.predictMove(cards, gameSession, false, false);
+
+		assertTrue(cards.contains(move.getPlayedCard()));
+		mctsHelper.shutDown();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTreeParallelisationRejectsScoreBounds() {
+		final MCTSConfig mctsConfig = new MCTSConfig(true, 0.0, 0.0);
+		mctsConfig.setParallelisationMode(ParallelisationMode.TREE);
+
+		new MCTSHelper(mctsConfig);
+	}
+
+	@Test
+	public void testMCTSWithNodeTree() throws MCTSException {
+		final GameSession gameSession = GameSessionBuilder.newSession()
+				.withStartedGame(Mode.bottomUp())
+				.createGameSession();
+
+		final MCTSConfig mctsConfig = new MCTSConfig(StrengthLevel.FAST, StrengthLevel.FAST_TEST);
+		mctsConfig.setRunMode(RunMode.RUNS);
+		mctsConfig.setArenaTreeUsed(false);
+		MCTSHelper mctsHelper = new MCTSHelper(mctsConfig);
+		final Set<Card> cards = gameSession.getCurrentGame().getCurrentPlayer().getCards();
+
+		final CardMove move = (CardMove) mctsHelper.predictMove(cards, gameSession, false, false);
+
+		assertTrue(cards.contains(move.getPlayedCard()));
+		mctsHelper.shutDown();
+	}
+
+	@Test
+	public void testMCTSWithTreeReuse() throws MCTSException {
+		// Late in the game the tree covers every possible trick, so the subtree of the trick played exists
+		final GameSession gameSession = GameSessionBuilder.newSession()
+				.withStartedClubsGameWithRoundsPlayed(7)
+				.createGameSession();
+
+		final MCTSConfig mctsConfig = new MCTSConfig(StrengthLevel.FAST, StrengthLevel.STRONG);
+		mctsConfig.setRunMode(RunMode.RUNS);
+		mctsConfig.setTreeReuseEnabled(true);
+		mctsConfig.setCheating(true); // every determinization stays consistent with the moves of the other players
+		mctsConfig.setEndgameSolverThreshold(0); // otherwise the determinizations are solved instead of searched
+		MCTSHelper mctsHelper = new MCTSHelper(mctsConfig);
+		final Player player = gameSession.getCurrentPlayer();
+
+		CardMove move = (CardMove) mctsHelper.predictMove(player.getCards(), gameSession, false, false);
+
+		// The other players finish the trick, then the player who won it starts the next one
+		final Game game = gameSession.getCurrentGame();
+		do {
+			final Player currentPlayer = game.getCurrentPlayer();
+			final Card card = currentPlayer.equals(player) ? move.getPlayedCard() : CardSelectionHelper.getCardsPossibleToPlay(currentPlayer.getCards(), game).iterator().next();
+			final Move playedMove = new Move(currentPlayer, card);
+			gameSession.makeMove(playedMove);
+			currentPlayer.onMoveMade(playedMove);
+		} while (!game.getCurrentRound().roundFinished());
+		gameSession.startNextRound();
+
+		final Set<Card> cards = game.getCurrentPlayer().getCards();
+		move = (CardMove) mctsHelper.predictMove(cards, gameSession, false, false);
+
+		assertTrue(cards.contains(move.getPlayedCard()));
+		// The search continued the subtrees of the trick played instead of starting from scratch
+		assertTrue(mctsHelper.getReusedRootGames() > 0);
+		mctsHelper.shutDown();
+	}
+
+	@Test
+	public void testInformationSetMCTS() throws MCTSException {
+		final GameSession gameSession = GameSessionBuilder.newSession()
+				.withStartedGame(Mode.bottomUp())
+				.withCardsPlayed(Card.CLUB_QUEEN, Card.CLUB_NINE)
+				.createGameSession();
+
+		final MCTSConfig mctsConfig = new MCTSConfig(StrengthLevel.FAST, StrengthLevel.FAST_TEST);
+		mctsConfig.setRunMode(RunMode.RUNS);
+		mctsConfig.setSearchAlgorithm(SearchAlgorithm.INFORMATION_SET);
+		MCTSHelper mctsHelper = new MCTSHelper(mctsConfig);
+		final Set<Card> cards = gameSession.getCurrentGame().getCurrentPlayer().getCards();
+
+		final CardMove move = (CardMove) mctsHelper.predictMove(cards, gameSession, false, false);
+
+		assertTrue(cards.contains(move.getPlayedCard()));
+		mctsHelper.shutDown();
+		assertTrue(mctsHelper.isShutDown());
+	}
+
+	@Test(timeout = 60000)
+	public void testPonderingIsStoppedBeforeTheNextSearch() throws Exception {
+		final GameSession gameSession = GameSessionBuilder.newSession()
+				.withStartedClubsGameWithRoundsPlayed(5)
+				.createGameSession();
+
+		final MCTSConfig mctsConfig = new MCTSConfig(StrengthLevel.FAST, StrengthLevel.STRONG);
+		mctsConfig.setRunMode(RunMode.RUNS);
+		mctsConfig.setPonderingEnabled(true);
+		mctsConfig.setEndgameSolverThreshold(0); // otherwise there is nothing left to ponder
+		MCTSHelper mctsHelper = new MCTSHelper(mctsConfig);
+		final Game game = gameSession.getCurrentGame();
+		final Player player = game.getCurrentPlayer();
+
+		final CardMove move = (CardMove) mctsHelper.predictMove(player.getCards(), gameSession, false, false);
+		final Move playedMove = new Move(player, move.getPlayedCard());
+		gameSession.makeMove(playedMove);
+		player.onMoveMade(playedMove);
+
+		mctsHelper.startPondering(game);
+		assertTrue(mctsHelper.isPondering());
+		Thread.sleep(100);
+		mctsHelper.stopPondering();
+
+		assertFalse(mctsHelper.isPondering());
+		assertFalse(isPonderingThreadAlive());
+		// The pondered trees are handed back to the next search
+		assertTrue(mctsHelper.getReusableRootGames() > 0);
+
+		mctsHelper.startPondering(game);
+		assertTrue(mctsHelper.isPondering());
+		final Set<Card> cards = game.getCurrentPlayer().getCards();
+		mctsHelper.predictMove(cards, gameSession, false, false);
+
+		assertFalse(mctsHelper.isPondering());
+		assertFalse(isPonderingThreadAlive());
+		mctsHelper.shutDown();
+	}
+
+	public static boolean isPonderingThreadAlive() {
+		return Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().equals("pondering") && thread.isAlive());
+	}
+}
@@ -0,0 +1,110 @@
+package to.joeli.jass.client.strategy.helpers;
+
+import org.junit.Test;
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.client.game.GameSession;
+import to.joeli.jass.client.game.Move;
+import to.joeli.jass.client.game.Player;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.Color;
+import to.joeli.jass.game.mode.Mode;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class PositionHashTest {
+
+	private static final List<Color> COLORS = asList(Color.SPADES, Color.HEARTS, Color.CLUBS, Color.DIAMONDS);
+
+	@Test
+	public void testCopiedGameHasTheSameHash() {
+		final Game game = playRandomly(Mode.trump(Color.HEARTS), 13, new Random(1)).getCurrentGame();
+
+		assertEquals(PositionHash.hash(game), PositionHash.hash(new Game(game)));
+		assertEquals(PositionHash.canonicalHash(game), PositionHash.canonicalHash(new Game(game)));
+	}
+
+	@Test
+	public void testEveryMoveChangesTheHash() {
+		final Random random = new Random(2);
+		final GameSession session = GameSessionBuilder.newSession().withStartedGame(Mode.topDown()).createGameSession();
+		final Set<Long> hashes = new HashSet<>();
+		for (int i = 0; i < 35; i++) {
+			assertTrue(hashes.add(PositionHash.hash(session.getCurrentGame())));
+			playRandomMove(session, random);
+		}
+		assertTrue(hashes.add(PositionHash.hash(session.getCurrentGame())));
+	}
+
+	@Test
+	public void testCanonicalHashIsTheSameForPermutedColors() {
+		final Mode mode = Mode.trump(Color.CLUBS);
+		final GameSession session = playRandomly(mode, 10, new Random(3));
+		final Game game = session.getCurrentGame();
+
+		final List<Set<Card>> permutedCards = GameSessionBuilder.shiftCards.stream()
+				.map(cards -> cards.stream().map(card -> DataAugmentationHelper.getRespectiveCard(card, COLORS)).collect(Collectors.toSet()))
+				.collect(Collectors.toList());
+		final List<Card> permutedMoves = game.getAlreadyPlayedMovesInOrder().stream()
+				.map(move -> DataAugmentationHelper.getRespectiveCard(move.getPlayedCard(), COLORS))
+				.collect(Collectors.toList());
+		final Game permutedGame = GameSessionBuilder.newSession(permutedCards)
+				.withStartedGame(DataAugmentationHelper.getRespectiveMode(mode, COLORS))
+				.withCardsPlayed(permutedMoves)
+				.createGameSession().getCurrentGame();
+
+		assertNotEquals(PositionHash.hash(game), PositionHash.hash(permutedGame));
+		assertEquals(PositionHash.canonicalHash(game), PositionHash.canonicalHash(permutedGame));
+	}
+
+	@Test
+	public void testCanonicalHashIsTheHashWithoutTrumpf() {
+		final Game game = playRandomly(Mode.bottomUp(), 7, new Random(4)).getCurrentGame();
+
+		assertEquals(PositionHash.hash(game), PositionHash.canonicalHash(game));
+	}
+
+	@Test
+	public void testAfterstateHashesAreTheHashesAfterPlayingTheCards() {
+		final Random random = new Random(5);
+		for (Mode mode : asList(Mode.trump(Color.SPADES), Mode.topDown()))
+			for (int numMoves : new int[]{0, 6, 11, 35}) {
+				final Game game = playRandomly(mode, numMoves, random).getCurrentGame();
+				final Card[] cards = CardSelectionHelper.getCardsPossibleToPlay(game.getCurrentPlayer().getCards(), game).toArray(new Card[0]);
+
+				final long[] hashes = PositionHash.afterstateHashes(game, cards);
+				final long[] canonicalHashes = PositionHash.canonicalAfterstateHashes(game, cards);
+
+				for (int i = 0; i < cards.length; i++) {
+					final Game afterstate = new Game(game);
+					final Player player = afterstate.getCurrentPlayer();
+					final Move move = new Move(player, cards[i]);
+					afterstate.makeMove(move);
+					player.onMoveMade(move);
+					assertEquals(PositionHash.hash(afterstate), hashes[i]);
+					assertEquals(PositionHash.canonicalHash(afterstate), canonicalHashes[i]);
+				}
+			}
+	}
+
+	private static GameSession playRandomly(Mode mode, int numMoves, Random random) {
+		final GameSession session = GameSessionBuilder.newSession().withStartedGame(mode).createGameSession();
+		for (int i = 0; i < numMoves; i++)
+			playRandomMove(session, random);
+		return session;
+	}
+
+	private static void playRandomMove(GameSession session, Random random) {
+		final Game game = session.getCurrentGame();
+		final Player player = game.getCurrentPlayer();
+		final List<Card> cards = new ArrayList<>(CardSelectionHelper.getCardsPossibleToPlay(player.getCards(), game));
+		final Move move = new Move(player, cards.get(random.nextInt(cards.size())));
+		session.makeMove(move);
+		player.onMoveMade(move);
+		if (session.getCurrentRound().roundFinished())
+			session.startNextRound();
+	}
+}
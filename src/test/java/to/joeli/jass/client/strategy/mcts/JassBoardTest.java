@@ -11,8 +11,10 @@ import to.joeli.jass.game.cards.Card;
 import to.joeli.jass.game.cards.Color;
 import to.joeli.jass.game.mode.Mode;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 
 import static java.util.Arrays.asList;
@@ -61,6 +63,33 @@ public class JassBoardTest {
 		}
 	}
 
+	@Test
+	public void testUndoMoveRestoresBoard() {
+		JassBoard jassBoard = JassBoard.constructCardSelectionJassBoard(cards1, diamondsGame, false, false, null, null);
+		jassBoard.sampleCardDeterminizationToPlayersInCardPlay();
+		assertTrue(jassBoard.canUndoMoves());
+
+		List<List<to.joeli.jass.client.strategy.mcts.src.Move>> movesBefore = new ArrayList<>();
+		List<double[]> scoresBefore = new ArrayList<>();
+		List<Integer> playersBefore = new ArrayList<>();
+		while (!jassBoard.gameOver()) {
+			List<to.joeli.jass.client.strategy.mcts.src.Move> moves = jassBoard.getMoves(CallLocation.PLAYOUT);
+			movesBefore.add(moves);
+			scoresBefore.add(jassBoard.getScore());
+			playersBefore.add(jassBoard.getCurrentPlayer());
+			jassBoard.makeMove(moves.get(0));
+		}
+		assertEquals(157, (int) (jassBoard.getScore()[0] + jassBoard.getScore()[1]));
+
+		for (int i = movesBefore.size() - 1; i >= 0; i--) {
+			jassBoard.undoMove();
+			assertFalse(jassBoard.gameOver());
+			assertEquals((int) playersBefore.get(i), jassBoard.getCurrentPlayer());
+			assertArrayEquals(scoresBefore.get(i), jassBoard.getScore(), 0);
+			assertEquals(movesBefore.get(i), jassBoard.getMoves(CallLocation.PLAYOUT));
+		}
+	}
+
 	@Test
 	public void testGetMovesObeAbe() {
 		for (int i = 0; i < 100; i++) {
@@ -0,0 +1,156 @@
+package to.joeli.jass.client.strategy.mcts.src;
+
+import org.junit.Test;
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.client.strategy.exceptions.MCTSException;
+import to.joeli.jass.client.strategy.helpers.GameSessionBuilder;
+import to.joeli.jass.client.strategy.mcts.CardMove;
+import to.joeli.jass.client.strategy.mcts.JassBoard;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.mode.Mode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MCTSTest {
+
+	private final Game game = GameSessionBuilder.newSession().withStartedGame(Mode.bottomUp()).createGameSession().getCurrentGame();
+	private final Set<Card> cards = game.getCurrentPlayer().getCards();
+	private final Move move1 = new CardMove(game.getCurrentPlayer(), Card.CLUB_SIX);
+	private final Move move2 = new CardMove(game.getCurrentPlayer(), Card.CLUB_SEVEN);
+
+	@Test(timeout = 60000)
+	public void testConcurrentSearchesBothReturnAMove() throws Exception {
+		final MCTS sharedTreeSearch = new MCTS();
+		sharedTreeSearch.enableTreeParallelisation();
+		final MCTS rootSearch = new MCTS();
+		rootSearch.enableRootParallelisation();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// The shared tree search keeps all the threads of the pool busy for much longer than the other search runs
+			final Future<Move> sharedTreeMove = executor.submit(() -> sharedTreeSearch.runForTime(newBoard(), 2 * SearchExecutor.getNumThreads(), System.currentTimeMillis() + 1000));
+			final Future<Move> rootMove = executor.submit(() -> rootSearch.runForTime(newBoard(), 4 * SearchExecutor.getNumThreads(), System.currentTimeMillis() + 300));
+
+			assertTrue(cards.contains(((CardMove) rootMove.get()).getPlayedCard()));
+			assertTrue(cards.contains(((CardMove) sharedTreeMove.get()).getPlayedCard()));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private JassBoard newBoard() {
+		return JassBoard.constructCardSelectionJassBoard(cards, game, false, false, null, null);
+	}
+
+	@Test
+	public void testSearchStopsOnceTheRootIsProven() throws Exception {
+		final Map<String, double[]> leafScores = new HashMap<>();
+		leafScores.put("00", new double[]{1, 0});
+		leafScores.put("01", new double[]{1, 0});
+		leafScores.put("10", new double[]{0, 1});
+		leafScores.put("11", new double[]{1, 0});
+		final TreeBoard board = new TreeBoard(2, leafScores);
+		final MCTS mcts = new MCTS();
+		mcts.setScoreBoundsUsed(true);
+
+		final Move move = mcts.runForRuns(board, 1, 10000);
+
+		assertSame(TreeBoard.ZERO, move);
+		// Every leaf is proven after it was reached once, a few playouts from the inner nodes come on top
+		assertTrue("scores computed: " + board.getNumScores(), board.getNumScores() < 20);
+	}
+
+	@Test(timeout = 60000)
+	public void testPonderingContinuesTheTreesOfTheLastSearch() throws Exception {
+		final MCTS mcts = new MCTS();
+		mcts.enableRootParallelisation();
+		mcts.setTreeReuseEnabled(true);
+
+		mcts.runForRuns(newBoard(), 2, 50);
+		final double searchedGames = mcts.getReusableRootGames();
+		assertTrue(searchedGames > 0);
+
+		mcts.ponder(System.currentTimeMillis() + 100);
+		final double ponderedGames = mcts.getReusableRootGames();
+		assertTrue(ponderedGames > searchedGames);
+
+		mcts.runForRuns(newBoard(), 2, 50);
+		assertTrue(mcts.getReusableRootGames() > ponderedGames);
+	}
+
+	@Test(timeout = 60000)
+	public void testInterruptedPonderingKeepsTheTrees() throws Exception {
+		final MCTS mcts = new MCTS();
+		mcts.enableRootParallelisation();
+		mcts.setTreeReuseEnabled(true);
+		mcts.runForRuns(newBoard(), 2, 50);
+		final double searchedGames = mcts.getReusableRootGames();
+
+		final Thread thread = new Thread(() -> mcts.ponder(Long.MAX_VALUE));
+		thread.start();
+		Thread.sleep(50);
+		thread.interrupt();
+		thread.join();
+
+		assertTrue(mcts.getReusableRootGames() >= searchedGames);
+	}
+
+	@Test(expected = MCTSException.class)
+	public void testArenaTreeWithoutATriedMoveSelectsNoMove() throws Exception {
+		final Map<String, double[]> leafScores = new HashMap<>();
+		leafScores.put("", new double[]{0.5, 0.5});
+		final MCTS mcts = new MCTS();
+		mcts.setArenaTreeUsed(true);
+
+		mcts.runForRuns(new TreeBoard(0, leafScores), 1, 10); // the game is over already
+	}
+
+	@Test
+	public void testClearVoteIsDecided() {
+		final MCTS.Vote vote = vote(10, 1);
+
+		assertTrue(vote.isDecided(2, 0.95));
+	}
+
+	@Test
+	public void testCloseVoteIsNotDecided() {
+		final MCTS.Vote vote = vote(2, 1);
+
+		assertFalse(vote.isDecided(5, 0.95));
+		assertTrue(vote.isDecided(5, 0.5)); // the leading move keeps the lead on average
+	}
+
+	@Test
+	public void testVoteForASingleMoveIsDecidedOnceTheRemainingVotesCannotOutweighIt() {
+		assertFalse(vote(1, 0).isDecided(10, 0.95));
+		assertTrue(vote(10, 0).isDecided(2, 0.95));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testVoteConfidenceOfOneIsRejected() {
+		new MCTS().setVoteConfidence(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testVoteConfidenceBelowOneHalfIsRejected() {
+		new MCTS().setVoteConfidence(0.4);
+	}
+
+	private MCTS.Vote vote(int numVotes1, int numVotes2) {
+		final MCTS.Vote vote = new MCTS.Vote();
+		for (int i = 0; i < numVotes1; i++)
+			vote.add(new MCTS.SelectedMove(move1, 1000, 100));
+		for (int i = 0; i < numVotes2; i++)
+			vote.add(new MCTS.SelectedMove(move2, 1000, 100));
+		return vote;
+	}
+}
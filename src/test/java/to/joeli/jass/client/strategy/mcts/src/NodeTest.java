@@ -0,0 +1,146 @@
+package to.joeli.jass.client.strategy.mcts.src;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class NodeTest {
+
+	private static final double[] WIN = {1, 0}; // for player 0, who moves first
+	private static final double[] LOSS = {0, 1};
+
+	private final Map<String, double[]> leafScores = new HashMap<>();
+	private final Node root = new Node(new TreeBoard(2, leafScores));
+
+	@Test
+	public void testProvenWinPropagatesToTheRoot() {
+		leafScores.put("00", WIN);
+		leafScores.put("01", WIN);
+		leafScores.put("10", LOSS);
+		leafScores.put("11", WIN);
+		final Node a = child(root, "0");
+		final Node b = child(root, "1");
+
+		prove(child(a, "00"));
+		prove(child(a, "01"));
+
+		assertTrue(a.isProven());
+		assertFalse(root.isProven()); // move 1 could be just as good
+		assertNull(root.getProvenBestChild());
+
+		prove(child(b, "10"));
+		prove(child(b, "11"));
+
+		assertTrue(b.isProven());
+		assertArrayEquals(LOSS, b.getPess(), 0);
+		assertTrue(b.isPruned());
+		assertTrue(root.isProven());
+		assertArrayEquals(WIN, root.getPess(), 0);
+		assertSame(a, root.getProvenBestChild());
+	}
+
+	@Test
+	public void testProvenLossPropagatesToTheRoot() {
+		for (String leaf : asList("00", "01", "10", "11"))
+			leafScores.put(leaf, LOSS);
+		final Node a = child(root, "0");
+		final Node b = child(root, "1");
+
+		prove(child(a, "00"));
+		prove(child(a, "01"));
+		prove(child(b, "10"));
+		prove(child(b, "11"));
+
+		assertTrue(root.isProven());
+		assertArrayEquals(LOSS, root.getPess(), 0);
+		assertArrayEquals(LOSS, root.getOpti(), 0);
+		assertNotNull(root.getProvenBestChild());
+	}
+
+	@Test
+	public void testRootIsNotProvenWhileAMoveIsUntried() {
+		leafScores.put("00", WIN);
+		leafScores.put("01", WIN);
+		final Node a = child(root, "0");
+		root.setUntriedMoves(new ArrayList<>(Collections.singletonList(TreeBoard.ONE)));
+
+		prove(child(a, "00"));
+		prove(child(a, "01"));
+
+		assertTrue(a.isProven());
+		assertFalse(root.isProven());
+		assertEquals(1, root.getPess()[0], 0);
+		assertEquals(Double.POSITIVE_INFINITY, root.getOpti()[0], 0);
+		assertNull(root.getProvenBestChild());
+	}
+
+	@Test
+	public void testProvenChildrenAreSkippedInSelection() {
+		leafScores.put("00", WIN);
+		leafScores.put("01", WIN);
+		final Node a = child(root, "0");
+		final Node b = child(root, "1");
+		a.backPropagateScore(WIN);
+		b.backPropagateScore(LOSS);
+
+		assertEquals(asList(a), new MCTS().findChildren(root, new TreeBoard(2, leafScores), 0, 0, Math.sqrt(2)));
+
+		prove(child(a, "00"));
+		prove(child(a, "01"));
+
+		assertEquals(asList(b), new MCTS().findChildren(root, new TreeBoard(2, leafScores), 0, 0, Math.sqrt(2)));
+	}
+
+	@Test
+	public void testBoundValueIsTheAverageScoreAsLongAsTheBoundIsUnknown() {
+		final Node a = child(root, "0");
+
+		assertEquals(0, MCTS.boundValue(a, a.getPess(), 0), 0);
+
+		a.backPropagateScore(WIN);
+		a.backPropagateScore(LOSS);
+		a.backPropagateScore(WIN);
+
+		assertEquals(2.0 / 3, MCTS.boundValue(a, a.getPess(), 0), 1e-9);
+		assertEquals(1.0 / 3, MCTS.boundValue(a, a.getOpti(), 1), 1e-9);
+
+		a.setPess(new double[]{0.5, 0.25});
+
+		assertEquals(0.5, MCTS.boundValue(a, a.getPess(), 0), 0);
+		assertEquals(0.25, MCTS.boundValue(a, a.getPess(), 1), 0);
+	}
+
+	/**
+	 * Adds the node reached with the moves of the path as a child of the parent. The parent has no untried moves left.
+	 */
+	private Node child(Node parent, String path) {
+		final TreeBoard board = new TreeBoard(2, leafScores);
+		Move move = null;
+		for (char c : path.toCharArray()) {
+			move = c == '0' ? TreeBoard.ZERO : TreeBoard.ONE;
+			board.makeMove(move);
+		}
+		final Node child = new Node(board, move, parent);
+		parent.getChildren().add(child);
+		if (!parent.isExpanded())
+			parent.setUntriedMoves(new ArrayList<>());
+		return child;
+	}
+
+	private void prove(Node leaf) {
+		leaf.backPropagateBounds(leafScores.get(path(leaf)));
+	}
+
+	private static String path(Node node) {
+		final StringBuilder path = new StringBuilder();
+		for (Node temp = node; temp.getParent() != null; temp = temp.getParent())
+			path.insert(0, temp.getMove());
+		return path.toString();
+	}
+}
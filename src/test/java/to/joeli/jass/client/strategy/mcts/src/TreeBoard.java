@@ -0,0 +1,132 @@
+package to.joeli.jass.client.strategy.mcts.src;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A game of two players who choose between the moves 0 and 1 in turns until the given number of moves is made.
+ * The scores of the leaves are given by the moves made (e.g. "01"), so that the exact score of every state is known.
+ */
+class TreeBoard implements Board {
+
+	static final Choice ZERO = new Choice(0);
+	static final Choice ONE = new Choice(1);
+
+	private final int depth;
+	private final Map<String, double[]> leafScores;
+	private final StringBuilder path;
+	private int numScores;
+
+	TreeBoard(int depth, Map<String, double[]> leafScores) {
+		this(depth, leafScores, "");
+	}
+
+	private TreeBoard(int depth, Map<String, double[]> leafScores, String path) {
+		this.depth = depth;
+		this.leafScores = leafScores;
+		this.path = new StringBuilder(path);
+	}
+
+	/**
+	 * @return the number of scores computed at the leaves, e.g. in the playouts
+	 */
+	int getNumScores() {
+		return numScores;
+	}
+
+	@Override
+	public int getCurrentPlayer() {
+		return path.length() % 2;
+	}
+
+	@Override
+	public int getQuantityOfPlayers() {
+		return 2;
+	}
+
+	@Override
+	public double[] getScore() {
+		numScores++;
+		return leafScores.get(path.toString()).clone();
+	}
+
+	@Override
+	public double[] getMoveWeights() {
+		return new double[0];
+	}
+
+	@Override
+	public Move getBestMove(PlayoutSelectionPolicy playoutSelectionPolicy) {
+		return ZERO;
+	}
+
+	@Override
+	public Board duplicate(boolean newRandomCards) {
+		return new TreeBoard(depth, leafScores, path.toString());
+	}
+
+	@Override
+	public List<Move> getMoves(CallLocation location) {
+		return gameOver() ? Collections.emptyList() : Arrays.asList(ZERO, ONE);
+	}
+
+	@Override
+	public void makeMove(Move move) {
+		path.append(((Choice) move).value);
+	}
+
+	@Override
+	public boolean canUndoMoves() {
+		return true;
+	}
+
+	@Override
+	public void undoMove() {
+		path.setLength(path.length() - 1);
+	}
+
+	@Override
+	public boolean gameOver() {
+		return path.length() == depth;
+	}
+
+	@Override
+	public boolean hasScoreEstimator() {
+		return false;
+	}
+
+	@Override
+	public double[] estimateScore() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean canBeSolved(int maxMovesPerPlayer) {
+		return false;
+	}
+
+	@Override
+	public double[] solve() {
+		throw new UnsupportedOperationException();
+	}
+
+	static final class Choice implements Move {
+		private final int value;
+
+		private Choice(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public int compareTo(Move other) {
+			return Integer.compare(value, ((Choice) other).value);
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(value);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package to.joeli.jass.client.strategy.training.networks;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EvaluationCacheTest {
+
+	@Test
+	public void testStoredScoresAreFound() {
+		final EvaluationCache cache = new EvaluationCache(8, false);
+
+		cache.put(42, 95.5f);
+		cache.put(-7, 0f);
+
+		assertEquals(95.5f, cache.get(42), 0);
+		assertEquals(0f, cache.get(-7), 0);
+		assertTrue(Float.isNaN(cache.get(43)));
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+	}
+
+	@Test
+	public void testStoringTheSameKeyAgainReplacesTheScore() {
+		final EvaluationCache cache = new EvaluationCache(2, false);
+
+		cache.put(5, 1f);
+		cache.put(5, 2f);
+
+		assertEquals(2f, cache.get(5), 0);
+		assertEquals(0, cache.getEvictions());
+	}
+
+	@Test
+	public void testFullBucketEvictsAnEntryNotReferenced() {
+		// One bucket only, so all the keys compete for the same entries
+		final EvaluationCache cache = new EvaluationCache(2, false);
+		for (int key = 0; key < EvaluationCache.WAYS; key++)
+			cache.put(key, key);
+		// Every entry except the one of key 2 is referenced again
+		for (int key = 0; key < EvaluationCache.WAYS; key++)
+			if (key != 2)
+				cache.get(key);
+
+		cache.put(100, 100f);
+
+		assertEquals(1, cache.getEvictions());
+		assertTrue(Float.isNaN(cache.get(2)));
+		assertEquals(100f, cache.get(100), 0);
+		for (int key = 0; key < EvaluationCache.WAYS; key++)
+			if (key != 2)
+				assertEquals(key, cache.get(key), 0);
+	}
+
+	@Test
+	public void testClearRemovesAllTheScores() {
+		final EvaluationCache cache = new EvaluationCache(4, false);
+		cache.put(1, 1f);
+
+		cache.clear();
+
+		assertTrue(Float.isNaN(cache.get(1)));
+	}
+}
@@ -0,0 +1,130 @@
+package to.joeli.jass.client.strategy.training.networks;
+
+import org.junit.Test;
+import to.joeli.jass.client.strategy.training.NetworkType;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class InferenceBatcherTest {
+
+	/**
+	 * Sums up the features of every input and counts the batches
+	 */
+	private static class SumNetwork extends NeuralNetwork {
+		private final AtomicInteger numBatches = new AtomicInteger();
+
+		private SumNetwork() {
+			super(NetworkType.SCORE, false);
+		}
+
+		@Override
+		public float[][] predictBatch(FloatBuffer batch, int batchSize) {
+			numBatches.incrementAndGet();
+			final int numFeatures = batch.remaining() / batchSize;
+			final float[][] outputs = new float[batchSize][1];
+			for (int i = 0; i < batchSize; i++)
+				for (int j = 0; j < numFeatures; j++)
+					outputs[i][0] += batch.get(batch.position() + i * numFeatures + j);
+			return outputs;
+		}
+	}
+
+	@Test
+	public void testFullBatchIsRunOnceForAllThreads() throws Exception {
+		final SumNetwork network = new SumNetwork();
+		final int batchSize = 4;
+		// The flush delay is so long that the batch is only run because it is full
+		final InferenceBatcher batcher = new InferenceBatcher(network, batchSize, TimeUnit.SECONDS.toMicros(100));
+
+		final ExecutorService executor = Executors.newFixedThreadPool(batchSize);
+		try {
+			// All the threads are active already, so nobody runs the batch before it is full
+			final CyclicBarrier barrier = new CyclicBarrier(batchSize);
+			final List<Future<float[]>> results = new ArrayList<>();
+			for (int i = 0; i < batchSize; i++) {
+				final float value = i;
+				results.add(executor.submit(() -> {
+					batcher.markActive();
+					barrier.await();
+					return batcher.predict(FloatBuffer.wrap(new float[]{value, 1, 2, 3}));
+				}));
+			}
+			for (int i = 0; i < batchSize; i++)
+				assertArrayEquals(new float[]{i + 6}, results.get(i).get(10, TimeUnit.SECONDS), 0);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, network.numBatches.get());
+	}
+
+	@Test(timeout = 10000)
+	public void testLoneThreadDoesNotWaitForTheFlushDelay() {
+		final SumNetwork network = new SumNetwork();
+		final InferenceBatcher batcher = new InferenceBatcher(network, 8, TimeUnit.SECONDS.toMicros(100));
+
+		assertArrayEquals(new float[]{3}, batcher.predict(FloatBuffer.wrap(new float[]{1, 2})), 0);
+		assertArrayEquals(new float[]{7}, batcher.predict(FloatBuffer.wrap(new float[]{3, 4})), 0);
+		assertEquals(2, network.numBatches.get());
+	}
+
+	@Test(timeout = 10000)
+	public void testBatchIsRunAsSoonAsAllActiveThreadsAreWaiting() throws Exception {
+		final SumNetwork network = new SumNetwork();
+		final InferenceBatcher batcher = new InferenceBatcher(network, 8, TimeUnit.SECONDS.toMicros(100));
+
+		final ExecutorService waiting = Executors.newSingleThreadExecutor();
+		final ExecutorService other = Executors.newSingleThreadExecutor();
+		try {
+			// The other thread is alone, so it does not wait
+			assertArrayEquals(new float[]{1}, other.submit(() -> batcher.predict(FloatBuffer.wrap(new float[]{1}))).get(), 0);
+
+			// This thread waits because the other thread is still active
+			final Future<float[]> result = waiting.submit(() -> batcher.predict(FloatBuffer.wrap(new float[]{2})));
+			while (batcher.getNumPending() == 0)
+				Thread.sleep(1);
+			assertEquals(1, network.numBatches.get());
+
+			// The request of the other thread completes the batch of all the active threads
+			assertArrayEquals(new float[]{3}, other.submit(() -> batcher.predict(FloatBuffer.wrap(new float[]{3}))).get(), 0);
+			assertArrayEquals(new float[]{2}, result.get(), 0);
+		} finally {
+			waiting.shutdownNow();
+			other.shutdownNow();
+		}
+		assertEquals(2, network.numBatches.get());
+	}
+
+	@Test
+	public void testIncompleteBatchIsRunAfterFlushDelay() {
+		final SumNetwork network = new SumNetwork();
+		final InferenceBatcher batcher = new InferenceBatcher(network, 8, 1000);
+
+		assertArrayEquals(new float[]{3}, batcher.predict(FloatBuffer.wrap(new float[]{1, 2})), 0);
+		assertArrayEquals(new float[]{7}, batcher.predict(FloatBuffer.wrap(new float[]{3, 4})), 0);
+		assertEquals(2, network.numBatches.get());
+	}
+
+	@Test
+	public void testBatchSizeOneDisablesBatching() {
+		final SumNetwork network = new SumNetwork();
+		network.setBatchSize(1);
+
+		assertArrayEquals(new float[]{3}, network.predict(new float[][]{{1, 2}}), 0);
+		assertEquals(1, network.numBatches.get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testErrorsOfTheNetworkArePassedOn() {
+		final NeuralNetwork network = new NeuralNetwork(NetworkType.SCORE, false);
+		network.setBatchSize(2);
+
+		network.predict(new float[][]{{1, 2}});
+	}
+}
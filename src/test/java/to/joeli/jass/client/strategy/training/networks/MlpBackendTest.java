@@ -0,0 +1,131 @@
+package to.joeli.jass.client.strategy.training.networks;
+
+import org.junit.Test;
+import to.joeli.jass.client.strategy.training.networks.MlpBackend.Activation;
+import to.joeli.jass.client.strategy.training.networks.MlpBackend.Layer;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MlpBackendTest {
+
+	@Test
+	public void testDenseLayers() {
+		final MlpBackend backend = new MlpBackend(
+				new Layer(3, 2, new float[]{1, -1, 2, 0, 0, 3}, new float[]{0.5f, -4}, Activation.RELU, 0),
+				new Layer(2, 1, new float[]{2, -1}, new float[]{1}, Activation.LINEAR, 0));
+
+		// hidden = relu([1 + 4 + 0.5, -1 + 0 + 6 - 4]) = [5.5, 1], output = 2 * 5.5 - 1 + 1
+		final float[][] outputs = backend.predictBatch(FloatBuffer.wrap(new float[]{1, 2, 2}), 1);
+
+		assertEquals(1, outputs.length);
+		assertArrayEquals(new float[]{11}, outputs[0], 1e-6f);
+	}
+
+	@Test
+	public void testSeluAndSoftmaxGroups() {
+		final MlpBackend backend = new MlpBackend(
+				new Layer(1, 4, new float[]{1, 2, -1, 0}, new float[4], Activation.SELU, 2));
+
+		final float[] output = backend.predictBatch(FloatBuffer.wrap(new float[]{1}), 1)[0];
+
+		final double[] selu = {1.0507009873554805, 2 * 1.0507009873554805, 1.0507009873554805 * 1.6732632423543772 * Math.expm1(-1), 0};
+		assertEquals(Math.exp(selu[0]) / (Math.exp(selu[0]) + Math.exp(selu[1])), output[0], 1e-6);
+		assertEquals(1, output[0] + output[1], 1e-6);
+		assertEquals(Math.exp(selu[2]) / (Math.exp(selu[2]) + Math.exp(selu[3])), output[2], 1e-6);
+		assertEquals(1, output[2] + output[3], 1e-6);
+	}
+
+	@Test
+	public void testBatchHasTheSameOutputsAsSingleInputs() {
+		final Random random = new Random(3);
+		final MlpBackend backend = new MlpBackend(randomLayer(50, 20, Activation.SELU, random), randomLayer(20, 8, Activation.TANH, random));
+
+		final int batchSize = 5;
+		final FloatBuffer batch = FloatBuffer.allocate(batchSize * 50);
+		for (int i = 0; i < batch.capacity(); i++)
+			batch.put(random.nextInt(4) == 0 ? 1 : 0); // sparse like the one hot encoded features
+		batch.flip();
+
+		final float[][] outputs = backend.predictBatch(batch, batchSize);
+
+		assertEquals(0, batch.position());
+		for (int b = 0; b < batchSize; b++) {
+			final FloatBuffer input = batch.duplicate();
+			input.position(b * 50).limit((b + 1) * 50);
+			assertArrayEquals(backend.predictBatch(input, 1)[0], outputs[b], 0);
+		}
+	}
+
+	@Test
+	public void testReadsTheExportedWeights() {
+		final ByteBuffer buffer = ByteBuffer.allocate(100);
+		buffer.putInt(MlpBackend.VERSION).putInt(MlpBackend.FLOAT32).putInt(1);
+		buffer.putInt(2).putInt(2).putInt(Activation.LINEAR.ordinal()).putInt(0);
+		buffer.putFloat(1).putFloat(2).putFloat(3).putFloat(4); // kernel[input, output]
+		buffer.putFloat(10).putFloat(20);
+		buffer.flip();
+
+		final MlpBackend backend = MlpBackend.read(buffer);
+
+		assertEquals(2, backend.getInputSize());
+		assertEquals(2, backend.getOutputSize());
+		assertArrayEquals(new float[]{1 + 3 * 2 + 10, 2 + 4 * 2 + 20}, backend.predictBatch(FloatBuffer.wrap(new float[]{1, 2}), 1)[0], 0);
+	}
+
+	@Test
+	public void testReadsTheQuantizedWeights() {
+		final ByteBuffer buffer = ByteBuffer.allocate(100);
+		buffer.putInt(MlpBackend.VERSION).putInt(MlpBackend.INT8).putInt(1);
+		buffer.putInt(2).putInt(2).putInt(Activation.LINEAR.ordinal()).putInt(0);
+		buffer.putFloat(0.5f).put(new byte[]{2, 4, 6, -127}); // kernel[input, output] = [[1, 2], [3, -63.5]]
+		buffer.putFloat(10).putFloat(20);
+		buffer.flip();
+
+		final MlpBackend backend = MlpBackend.read(buffer);
+
+		// The input [1, 2] is quantized to [64, 127] with the scale 2 / 127
+		final float inputScale = 2f / 127;
+		final float[] expected = {10 + (64 * 2 + 127 * 6) * inputScale * 0.5f, 20 + (64 * 4 - 127 * 127) * inputScale * 0.5f};
+		assertArrayEquals(expected, backend.predictBatch(FloatBuffer.wrap(new float[]{1, 2}), 1)[0], 1e-4f);
+	}
+
+	@Test
+	public void testQuantizedNetworkIsCloseToTheFloatNetwork() {
+		final Random random = new Random(5);
+		final MlpBackend backend = new MlpBackend(randomLayer(300, 64, Activation.SELU, random), randomLayer(64, 1, Activation.LINEAR, random));
+		final MlpBackend quantized = backend.quantize();
+
+		final int numInputs = 100;
+		final FloatBuffer inputs = FloatBuffer.allocate(numInputs * 300);
+		for (int i = 0; i < inputs.capacity(); i++)
+			inputs.put(random.nextInt(8) == 0 ? 1 : 0);
+		inputs.flip();
+
+		assertEquals(0, InferenceBackend.computeRelativeError(backend, backend, inputs, numInputs, 16), 0);
+		final double error = InferenceBackend.computeRelativeError(backend, quantized, inputs, numInputs, 16);
+		assertTrue("The relative error was " + error, error > 0 && error < 0.02);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongNumberOfFeaturesIsRejected() {
+		final MlpBackend backend = new MlpBackend(new Layer(2, 1, new float[2], new float[1], Activation.LINEAR, 0));
+
+		backend.predictBatch(FloatBuffer.wrap(new float[3]), 1);
+	}
+
+	private static Layer randomLayer(int inputSize, int outputSize, Activation activation, Random random) {
+		final float[] kernel = new float[inputSize * outputSize];
+		for (int i = 0; i < kernel.length; i++)
+			kernel[i] = (float) random.nextGaussian() * 0.3f;
+		final float[] bias = new float[outputSize];
+		for (int i = 0; i < bias.length; i++)
+			bias[i] = (float) random.nextGaussian() * 0.1f;
+		return new Layer(inputSize, outputSize, kernel, bias, activation, 0);
+	}
+}
@@ -5,19 +5,46 @@ import org.junit.Test;
 import to.joeli.jass.client.game.Game;
 import to.joeli.jass.client.game.Move;
 import to.joeli.jass.client.game.Player;
+import to.joeli.jass.client.strategy.helpers.CardSelectionHelper;
 import to.joeli.jass.client.strategy.helpers.GameSessionBuilder;
+import to.joeli.jass.client.strategy.mcts.CardMove;
 import to.joeli.jass.game.cards.Card;
 import to.joeli.jass.game.cards.Color;
 import to.joeli.jass.game.mode.Mode;
 
+import java.nio.FloatBuffer;
+
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
 
-@Ignore("On Travis CI this test will not work because of the missing model")
 public class ScoreEstimatorTest {
 
+	/**
+	 * Predicts the sum of the features of every input and counts the inputs, instead of loading a model
+	 */
+	private static class CountingScoreEstimator extends ScoreEstimator {
+		private int numInputs;
+
+		private CountingScoreEstimator() {
+			super(false);
+		}
+
+		@Override
+		public float[][] predictBatch(FloatBuffer batch, int batchSize) {
+			numInputs += batchSize;
+			final int numFeatures = batch.remaining() / batchSize;
+			final float[][] outputs = new float[batchSize][1];
+			for (int i = 0; i < batchSize; i++)
+				for (int j = 0; j < numFeatures; j++)
+					outputs[i][0] += (j % 7) * batch.get(batch.position() + i * numFeatures + j);
+			return outputs;
+		}
+	}
+
 	private Game diamondsGame = GameSessionBuilder.newSession().withStartedGame(Mode.trump(Color.DIAMONDS)).createGameSession().getCurrentGame();
 
 
+	@Ignore("On Travis CI this test will not work because of the missing model")
 	@Test
 	public void testPreTrainedScoreEstimatorPredictionsIsMediocreForShiftCards() {
 		Game diamondsGame = GameSessionBuilder.newSession().withStartedGame(Mode.trump(Color.DIAMONDS)).createGameSession().getCurrentGame();
@@ -29,6 +56,7 @@ public class ScoreEstimatorTest {
 		assertTrue(network.predictScore(diamondsGame) < 120);
 	}
 
+	@Ignore("On Travis CI this test will not work because of the missing model")
 	@Test
 	public void testPreTrainedScoreEstimatorPredictionsIsHighForTopDiamondsCards() {
 		Game diamondsGame = GameSessionBuilder.newSession(GameSessionBuilder.topDiamondsCards).withStartedGame(Mode.trump(Color.DIAMONDS)).createGameSession().getCurrentGame();
@@ -40,6 +68,7 @@ public class ScoreEstimatorTest {
 		//assertTrue(network.predictScore(diamondsGame) > 120); // Fails because the score estimator is not good enough
 	}
 
+	@Ignore("On Travis CI this test will not work because of the missing model")
 	@Test
 	public void testPreTrainedScoreEstimatorPredictionsIsLowForOpponentTopDiamondsCards() {
 		Game diamondsGame = GameSessionBuilder.newSession(GameSessionBuilder.topDiamondsCards).withStartedGame(Mode.trump(Color.DIAMONDS)).createGameSession().getCurrentGame();
@@ -56,6 +85,7 @@ public class ScoreEstimatorTest {
 		//assertTrue(network.predictScore(diamondsGame) < 100); // Fails because the score estimator is not good enough
 	}
 
+	@Ignore("On Travis CI this test will not work because of the missing model")
 	@Test
 	public void testFirstForwardPassSpeed() {
 		ScoreEstimator network = new ScoreEstimator(true);
@@ -66,6 +96,7 @@ public class ScoreEstimatorTest {
 		System.out.println("The execution of one forward pass took " + (System.currentTimeMillis() - startTime) + "ms");
 	}
 
+	@Ignore("On Travis CI this test will not work because of the missing model")
 	@Test
 	public void testFirstTenForwardPassSpeeds() {
 		ScoreEstimator network = new ScoreEstimator(true);
@@ -78,6 +109,7 @@ public class ScoreEstimatorTest {
 		}
 	}
 
+	@Ignore("On Travis CI this test will not work because of the missing model")
 	@Test
 	public void testFirstHundredForwardPassSpeeds() {
 		ScoreEstimator network = new ScoreEstimator(true);
@@ -90,6 +122,7 @@ public class ScoreEstimatorTest {
 		}
 	}
 
+	@Ignore("On Travis CI this test will not work because of the missing model")
 	@Test
 	public void testAverageForwardPassSpeed() {
 		ScoreEstimator network = new ScoreEstimator(true);
@@ -102,5 +135,49 @@ public class ScoreEstimatorTest {
 		System.out.println("The execution of " + n + " forward passes took " + (System.nanoTime() / 1000 - startTime) / (1000.0 * n) + "ms on average");
 	}
 
+	@Test
+	public void testSecondIdenticalScoreLookupSkipsTheNetwork() {
+		final CountingScoreEstimator network = new CountingScoreEstimator();
+		network.setEvaluationCache(new EvaluationCache(10, false));
+
+		final double score = network.predictScore(diamondsGame);
+		assertEquals(1, network.numInputs);
+
+		assertEquals(score, network.predictScore(new Game(diamondsGame)), 0);
+		assertEquals(1, network.numInputs);
+		assertEquals(1, network.getEvaluationCache().getHits());
+	}
+
+	@Test
+	public void testSecondIdenticalMoveLookupSkipsTheNetwork() {
+		final CountingScoreEstimator network = new CountingScoreEstimator();
+		network.setEvaluationCache(new EvaluationCache(10, false));
+		final int numCards = CardSelectionHelper.getCardsPossibleToPlay(diamondsGame.getCurrentPlayer().getCards(), diamondsGame).size();
+
+		final CardMove move = network.predictMove(diamondsGame);
+		assertEquals(numCards, network.numInputs);
+
+		assertEquals(move.getPlayedCard(), network.predictMove(new Game(diamondsGame)).getPlayedCard());
+		assertEquals(numCards, network.numInputs);
+		assertEquals(numCards, network.getEvaluationCache().getHits());
+	}
+
+	@Test
+	public void testMovesAreTheSameWithAndWithoutCache() {
+		final CountingScoreEstimator cached = new CountingScoreEstimator();
+		cached.setEvaluationCache(new EvaluationCache(10, false));
+		final CountingScoreEstimator uncached = new CountingScoreEstimator();
 
-}
\ No newline at end of file
+		final Player player = diamondsGame.getCurrentPlayer();
+		final Card card = CardSelectionHelper.getCardsPossibleToPlay(player.getCards(), diamondsGame).iterator().next();
+		final Game afterstate = new Game(diamondsGame);
+		final Move move = new Move(afterstate.getCurrentPlayer(), card);
+		afterstate.getCurrentPlayer().onMoveMade(move);
+		afterstate.makeMove(move);
+		// The afterstate of the card is in the cache now
+		cached.predictScore(afterstate);
+
+		assertEquals(uncached.predictMove(diamondsGame).getPlayedCard(), cached.predictMove(diamondsGame).getPlayedCard());
+		assertEquals(1, cached.getEvaluationCache().getHits());
+	}
+}
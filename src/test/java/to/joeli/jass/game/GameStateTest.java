@@ -0,0 +1,220 @@
+package to.joeli.jass.game;
+
+import org.junit.Test;
+import to.joeli.jass.client.game.*;
+import to.joeli.jass.client.strategy.helpers.CardSelectionHelper;
+import to.joeli.jass.client.strategy.helpers.GameSessionBuilder;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
+import to.joeli.jass.game.cards.Color;
+import to.joeli.jass.game.mode.Mode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GameStateTest {
+
+	@Test
+	public void testFromGameTakesHandsAndCurrentPlayer() {
+		final Game game = GameSessionBuilder.newSession()
+				.withStartedGame(Mode.topDown())
+				.withCardsPlayed(Card.CLUB_QUEEN, Card.CLUB_NINE)
+				.createGameSession().getCurrentGame();
+
+		final GameState state = GameState.fromGame(game);
+
+		final List<Player> players = game.getPlayers();
+		for (int i = 0; i < GameState.NUMBER_OF_PLAYERS; i++) {
+			assertEquals(players.get(i).getCards(), CardMasks.toSet(state.getHand(i)));
+			assertEquals(players.get(i).getSeatId(), state.getSeatId(i));
+		}
+		assertEquals(players.indexOf(game.getCurrentPlayer()), state.getCurrentPlayer());
+		assertEquals(2, state.getTrickSize());
+		assertEquals(Card.CLUB_QUEEN.ordinal(), state.getTrickCard(0));
+		assertEquals(Card.CLUB_NINE.ordinal(), state.getTrickCard(1));
+		assertEquals(CardMasks.bit(Card.CLUB_QUEEN) | CardMasks.bit(Card.CLUB_NINE), state.getPlayedCards());
+	}
+
+	@Test
+	public void testScoresAreTheSameAsInGame() {
+		for (Mode mode : Mode.standardModes()) {
+			final Game game = GameSessionBuilder.startedGame(mode);
+			final GameState state = GameState.fromGame(game);
+			final Random random = new Random(42);
+
+			while (!game.gameFinished()) {
+				final Player player = game.getCurrentPlayer();
+				assertEquals(CardSelectionHelper.getCardsPossibleToPlay(player.getCards(), game), CardMasks.toSet(state.getLegalCards()));
+				final Card card = chooseCard(game, random);
+				final Move move = new Move(player, card);
+				game.makeMove(move);
+				player.onMoveMade(move);
+				state.makeMove(card);
+				if (game.getCurrentRound().roundFinished())
+					game.startNextRound();
+
+				final List<Player> players = game.getPlayers();
+				assertEquals(game.getResult().getTeamScore(players.get(0)), state.getTeamScore(0));
+				assertEquals(game.getResult().getTeamScore(players.get(1)), state.getTeamScore(1));
+				if (!game.gameFinished())
+					assertEquals(players.indexOf(game.getCurrentPlayer()), state.getCurrentPlayer());
+			}
+			assertTrue(state.isGameOver());
+			assertEquals(157, state.getTeamScore(0) + state.getTeamScore(1));
+		}
+	}
+
+	@Test
+	public void testUnmakeMoveRestoresState() {
+		final GameState state = GameState.fromGame(GameSessionBuilder.startedGame(Mode.trump(Color.HEARTS)));
+		final GameState initial = new GameState(state);
+		final List<Integer> cards = new ArrayList<>();
+
+		while (!state.isGameOver()) {
+			final long hand = state.getHand(state.getCurrentPlayer());
+			final int card = Long.numberOfTrailingZeros(hand);
+			cards.add(card);
+			state.makeMove(card);
+		}
+		for (int i = 0; i < cards.size(); i++)
+			state.unmakeMove();
+
+		assertEquals(initial.toString(), state.toString());
+		assertEquals(0, state.getNumberOfMoves());
+		assertEquals(0L, state.getPlayedCards());
+		for (int i = 0; i < GameState.NUMBER_OF_PLAYERS; i++)
+			assertEquals(initial.getHand(i), state.getHand(i));
+	}
+
+	@Test
+	public void testToGameReplaysMoves() {
+		final Game game = GameSessionBuilder.newSession()
+				.withStartedGame(Mode.bottomUp())
+				.withCardsPlayed(Card.CLUB_QUEEN, Card.CLUB_NINE, Card.CLUB_KING, Card.CLUB_SIX, Card.HEART_TEN)
+				.createGameSession().getCurrentGame();
+
+		final Game converted = GameState.fromGame(game).toGame(game);
+
+		assertEquals(game.getAlreadyPlayedMovesInOrder(), converted.getAlreadyPlayedMovesInOrder());
+		assertEquals(game.getResult(), converted.getResult());
+		assertEquals(game.getCurrentPlayer(), converted.getCurrentPlayer());
+		assertEquals(game.getCurrentPlayer().getCards(), converted.getCurrentPlayer().getCards());
+		assertNotSame(game.getCurrentPlayer(), converted.getCurrentPlayer());
+	}
+
+	@Test
+	public void testHashOnlyDependsOnHandsTrickLeaderAndMode() {
+		final GameState state = GameState.fromGame(GameSessionBuilder.startedGame(Mode.trump(Color.SPADES)));
+		final long initialHash = state.getHash();
+		final Random random = new Random(42);
+
+		while (!state.isGameOver()) {
+			long legalCards = state.getLegalCards();
+			for (int skip = random.nextInt(Long.bitCount(legalCards)); skip > 0; skip--)
+				legalCards &= legalCards - 1;
+			state.makeMove(Long.numberOfTrailingZeros(legalCards));
+			assertEquals(computeHash(state), state.getHash());
+		}
+		while (state.getNumberOfMoves() > 0) {
+			state.unmakeMove();
+			assertEquals(computeHash(state), state.getHash());
+		}
+		assertEquals(initialHash, state.getHash());
+		assertNotEquals(GameState.fromGame(GameSessionBuilder.startedGame(Mode.bottomUp())).getHash(), GameState.fromGame(GameSessionBuilder.startedGame(Mode.topDown())).getHash());
+	}
+
+	/**
+	 * Computes the hash from scratch, so it cannot depend on the order of the moves
+	 */
+	private static long computeHash(GameState state) {
+		long hash = Zobrist.mode(state.getMode().getCode()) ^ Zobrist.leader(state.getLeader());
+		for (int player = 0; player < GameState.NUMBER_OF_PLAYERS; player++)
+			for (long hand = state.getHand(player); hand != 0; hand &= hand - 1)
+				hash ^= Zobrist.card(Long.numberOfTrailingZeros(hand), player);
+		for (int i = 0; i < state.getTrickSize(); i++)
+			hash ^= Zobrist.trickCard(state.getTrickCard(i));
+		return hash;
+	}
+
+	@Test
+	public void testFromPositionIsTheSameAsFromGame() {
+		for (Mode mode : Mode.standardModes()) {
+			final Game game = GameSessionBuilder.startedGame(mode);
+			final GameState reused = GameState.fromPosition(game);
+			final Random random = new Random(42);
+
+			while (!game.gameFinished()) {
+				final GameState expected = GameState.fromGame(game);
+				assertTrue(reused.hasSetupOf(game));
+				reused.setPosition(game);
+				for (GameState state : new GameState[]{GameState.fromPosition(game), reused}) {
+					assertEquals(expected.getHash(), state.getHash());
+					assertEquals(expected.getLeader(), state.getLeader());
+					assertEquals(expected.getTrickNumber(), state.getTrickNumber());
+					assertEquals(expected.getTrickCards(), state.getTrickCards());
+					assertEquals(expected.getPlayedCards(), state.getPlayedCards());
+					assertEquals(expected.getLegalCards(), state.getLegalCards());
+					assertEquals(expected.getTeamScore(0), state.getTeamScore(0));
+					assertEquals(expected.getTeamScore(1), state.getTeamScore(1));
+				}
+
+				final Player player = game.getCurrentPlayer();
+				final Move move = new Move(player, chooseCard(game, random));
+				game.makeMove(move);
+				player.onMoveMade(move);
+				if (game.getCurrentRound().roundFinished())
+					game.startNextRound();
+			}
+		}
+	}
+
+	@Test
+	public void testFromPositionOnlyUnmakesTheMovesOfTheCurrentTrick() {
+		final Game game = GameSessionBuilder.newSession()
+				.withStartedClubsGameWithRoundsPlayed(2)
+				.createGameSession().getCurrentGame();
+		final Random random = new Random(42);
+		for (int i = 0; i < 2; i++) {
+			final Player player = game.getCurrentPlayer();
+			final Move move = new Move(player, chooseCard(game, random));
+			game.makeMove(move);
+			player.onMoveMade(move);
+		}
+		final GameState state = GameState.fromPosition(game);
+		final long hash = state.getHash();
+
+		// Finishing and unmaking a trick from the position works like in a state of the whole game
+		state.makeMove(Long.numberOfTrailingZeros(state.getLegalCards()));
+		state.makeMove(Long.numberOfTrailingZeros(state.getLegalCards()));
+		state.unmakeMove();
+		state.unmakeMove();
+		assertEquals(hash, state.getHash());
+
+		state.unmakeMove();
+		state.unmakeMove();
+		try {
+			state.unmakeMove();
+			fail();
+		} catch (IllegalStateException expected) {
+			assertEquals(2, state.getTrickNumber());
+			assertEquals(0, state.getTrickSize());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMakeMoveWithCardNotInHand() {
+		final GameState state = GameState.fromGame(GameSessionBuilder.startedClubsGame());
+		final int player = state.getCurrentPlayer();
+		final long otherHand = state.getHand((player + 1) % GameState.NUMBER_OF_PLAYERS);
+
+		state.makeMove(Long.numberOfTrailingZeros(otherHand));
+	}
+
+	private static Card chooseCard(Game game, Random random) {
+		final List<Card> cards = new ArrayList<>(CardSelectionHelper.getCardsPossibleToPlay(game.getCurrentPlayer().getCards(), game));
+		return cards.get(random.nextInt(cards.size()));
+	}
+}
@@ -0,0 +1,35 @@
+package to.joeli.jass.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TranspositionTableTest {
+
+	private final TranspositionTable table = new TranspositionTable(4);
+
+	@Test
+	public void testStoredEntryIsFound() {
+		table.store(42L, -12, 157, 35);
+
+		final long entry = table.probe(42L);
+
+		assertEquals(-12, TranspositionTable.getLowerBound(entry));
+		assertEquals(157, TranspositionTable.getUpperBound(entry));
+		assertEquals(35, TranspositionTable.getBestMove(entry));
+		assertEquals(TranspositionTable.NOT_FOUND, table.probe(43L));
+	}
+
+	@Test
+	public void testNewerEntryReplacesOlderOneWithSameIndex() {
+		table.store(1L, 0, 10, TranspositionTable.NO_MOVE);
+		table.store(1L + (1L << 4), 5, 5, 3);
+
+		assertEquals(TranspositionTable.NOT_FOUND, table.probe(1L));
+		final long entry = table.probe(1L + (1L << 4));
+		assertEquals(5, TranspositionTable.getLowerBound(entry));
+		assertEquals(3, TranspositionTable.getBestMove(entry));
+		table.store(2L, 0, 0, TranspositionTable.NO_MOVE);
+		assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.getBestMove(table.probe(2L)));
+	}
+}
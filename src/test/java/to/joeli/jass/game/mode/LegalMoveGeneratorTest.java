@@ -0,0 +1,79 @@
+package to.joeli.jass.game.mode;
+
+import org.junit.Test;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.CardMasks;
+import to.joeli.jass.game.cards.Color;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static to.joeli.jass.game.cards.Card.*;
+
+public class LegalMoveGeneratorTest {
+
+	private final Mode clubsTrumpf = Mode.trump(Color.CLUBS);
+
+	@Test
+	public void testJackOfTrumpfDoesNotHaveToBePlayed() {
+		final Set<Card> hand = EnumSet.of(CLUB_JACK, HEART_SIX, SPADE_ACE);
+		final Set<Card> trick = EnumSet.of(CLUB_SEVEN);
+
+		assertEquals(hand, legalCards(hand, trick, Color.CLUBS, clubsTrumpf));
+	}
+
+	@Test
+	public void testTrumpfHasToBeFollowed() {
+		final Set<Card> hand = EnumSet.of(CLUB_JACK, CLUB_SIX, SPADE_ACE);
+		final Set<Card> trick = EnumSet.of(CLUB_SEVEN);
+
+		assertEquals(EnumSet.of(CLUB_JACK, CLUB_SIX), legalCards(hand, trick, Color.CLUBS, clubsTrumpf));
+	}
+
+	@Test
+	public void testUndertrumpingIsNotAllowed() {
+		final Set<Card> hand = EnumSet.of(CLUB_SIX, CLUB_JACK, HEART_SIX, SPADE_ACE);
+		final Set<Card> trick = EnumSet.of(DIAMOND_ACE, CLUB_NINE);
+
+		assertEquals(EnumSet.of(CLUB_JACK, HEART_SIX, SPADE_ACE), legalCards(hand, trick, Color.DIAMONDS, clubsTrumpf));
+	}
+
+	@Test
+	public void testUndertrumpingIsAllowedWithOnlyTrumpfLeft() {
+		final Set<Card> hand = EnumSet.of(CLUB_SIX, CLUB_SEVEN);
+		final Set<Card> trick = EnumSet.of(DIAMOND_ACE, CLUB_NINE);
+
+		assertEquals(hand, legalCards(hand, trick, Color.DIAMONDS, clubsTrumpf));
+	}
+
+	@Test
+	public void testSameAsCanPlayCardForRandomSituations() {
+		final Random random = new Random(42);
+		final List<Mode> modes = Mode.allModes();
+		final List<Card> deck = Arrays.asList(Card.values());
+		for (int i = 0; i < 10000; i++) {
+			final List<Card> shuffled = new ArrayList<>(deck);
+			Collections.shuffle(shuffled, random);
+			final Set<Card> hand = EnumSet.copyOf(shuffled.subList(0, 1 + random.nextInt(9)));
+			final Set<Card> trick = EnumSet.noneOf(Card.class);
+			trick.addAll(shuffled.subList(9, 9 + random.nextInt(4)));
+			final Color roundColor = trick.isEmpty() ? null : shuffled.get(9).getColor();
+
+			for (Mode mode : modes)
+				assertEquals(mode + " " + hand + " " + trick, expectedCards(hand, trick, roundColor, mode), legalCards(hand, trick, roundColor, mode));
+		}
+	}
+
+	private static Set<Card> legalCards(Set<Card> hand, Set<Card> trick, Color roundColor, Mode mode) {
+		final int leadSuit = roundColor == null ? LegalMoveGenerator.NO_SUIT : CardMasks.suitIndex(roundColor);
+		return CardMasks.toSet(LegalMoveGenerator.getLegalCards(CardMasks.toMask(hand), CardMasks.toMask(trick), leadSuit, mode));
+	}
+
+	private static Set<Card> expectedCards(Set<Card> hand, Set<Card> trick, Color roundColor, Mode mode) {
+		final Set<Card> validCards = EnumSet.noneOf(Card.class);
+		for (Card card : hand)
+			if (mode.canPlayCard(card, trick, roundColor, hand))
+				validCards.add(card);
+		return validCards.isEmpty() ? hand : validCards;
+	}
+}
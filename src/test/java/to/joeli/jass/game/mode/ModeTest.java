@@ -0,0 +1,38 @@
+package to.joeli.jass.game.mode;
+
+import org.junit.Test;
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.game.cards.Card;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class ModeTest {
+
+	@Test
+	public void testDetermineWinningCardSameAsGeneralRules() {
+		final Random random = new Random(42);
+		final List<Card> deck = new ArrayList<>(Arrays.asList(Card.values()));
+		for (int i = 0; i < 1000; i++) {
+			Collections.shuffle(deck, random);
+			final List<Card> trick = deck.subList(0, 1 + random.nextInt(4));
+			for (Mode mode : Mode.standardModes()) {
+				final Card expected = GeneralRules.determineWinnerCard(trick, mode.createRankComparator(), Optional.ofNullable(mode.getTrumpfColor())).orElse(null);
+				assertEquals(mode + " " + trick, expected, mode.determineWinningCard(trick));
+			}
+		}
+	}
+
+	@Test
+	public void testCardScoresSumUpToTotalPoints() {
+		for (Mode mode : Mode.standardModes()) {
+			final int[] cardScores = mode.getCardScores();
+			int score = 0;
+			for (Card card : Card.values())
+				score += cardScores[card.ordinal()];
+			assertEquals(mode.toString(), 157, score * mode.getFactor() + mode.getLastRoundBonus());
+			assertEquals(mode.toString(), mode.calculateRoundScore(Game.LAST_ROUND_NUMBER, EnumSet.allOf(Card.class)), score * mode.getFactor() + mode.getLastRoundBonus());
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package to.joeli.jass.game.mode;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.Blackhole;
+import to.joeli.jass.client.game.Game;
+import to.joeli.jass.game.cards.Card;
+import to.joeli.jass.game.cards.Color;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the table driven trick evaluation in {@link to.joeli.jass.game.mode.Mode} with the previous implementation
+ * based on streams and comparators (still available in {@link GeneralRules}).
+ * This is in the package of the modes because the previous implementation is package private.
+ * Run it with the JMHBenchmarkRunner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class TrickEvaluationBenchmark {
+
+	private static final int NUMBER_OF_TRICKS = 1024;
+
+	private final List<List<Card>> tricks = new ArrayList<>();
+	private final List<Set<Card>> trickSets = new ArrayList<>();
+	private final to.joeli.jass.game.mode.Mode mode = to.joeli.jass.game.mode.Mode.trump(Color.HEARTS);
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final Random random = new Random(42);
+		final List<Card> deck = new ArrayList<>(Arrays.asList(Card.values()));
+		for (int i = 0; i < NUMBER_OF_TRICKS; i++) {
+			Collections.shuffle(deck, random);
+			tricks.add(new ArrayList<>(deck.subList(0, 4)));
+			trickSets.add(EnumSet.copyOf(deck.subList(0, 4)));
+		}
+	}
+
+	@Benchmark
+	@Fork(1)
+	public void benchmarkWinningCardWithStream(Blackhole blackhole) {
+		for (List<Card> trick : tricks)
+			blackhole.consume(GeneralRules.determineWinnerCard(trick, mode.createRankComparator(), Optional.ofNullable(mode.getTrumpfColor())).orElse(null));
+	}
+
+	@Benchmark
+	@Fork(1)
+	public void benchmarkWinningCardWithTable(Blackhole blackhole) {
+		for (List<Card> trick : tricks)
+			blackhole.consume(mode.determineWinningCard(trick));
+	}
+
+	@Benchmark
+	@Fork(1)
+	public void benchmarkScoreWithEnumSet(Blackhole blackhole) {
+		for (List<Card> trick : tricks)
+			blackhole.consume(mode.calculateRoundScore(Game.LAST_ROUND_NUMBER, EnumSet.copyOf(trick)));
+	}
+
+	@Benchmark
+	@Fork(1)
+	public void benchmarkScoreWithTable(Blackhole blackhole) {
+		for (List<Card> trick : tricks) {
+			final int[] cardScores = mode.getCardScores();
+			int score = 0;
+			for (Card card : trick)
+				score += cardScores[card.ordinal()];
+			blackhole.consume(score * mode.getFactor() + mode.getLastRoundBonus());
+		}
+	}
+}